@@ -20,12 +20,19 @@ uniform sampler2D u_Texture;
 
 in vec2 v_TexCoord;
 
+#ifdef INSTANCED
+in float v_Opacity;
+#define OPACITY v_Opacity
+#else
+#define OPACITY 1.0
+#endif
+
 layout(location = 0) out vec4 o_FragColor;
 
 void main() {
   // Mirror texture coordinates over the X axis
   vec2 texCoord = vec2(v_TexCoord.x, 1.0 - v_TexCoord.y);
 
-  o_FragColor = vec4(texture(u_Texture, texCoord).rgb, 1.0);
+  o_FragColor = vec4(texture(u_Texture, texCoord).rgb, 1.0) * OPACITY;
   return;
 }
@@ -24,7 +24,63 @@ layout(location = 2) in vec3 a_Normal;
 
 out vec2 v_TexCoord;
 
+#ifdef INSTANCED
+// One draw per model: position, rotation, billboarding and the constant
+// on-screen size are resolved here per instance instead of per-anchor model
+// matrices on the CPU.
+// Per-frame camera data; see CameraUniforms.java.
+layout(std140) uniform CameraUniforms {
+  mat4 u_View;
+  mat4 u_Projection;
+  mat4 u_ViewProjection;
+  vec4 u_Viewport;        // width px, height px, focal length px, 0
+  vec4 u_CameraPosition;  // world xyz, 1
+};
+// Applied after the camera-facing yaw (model upright correction)
+uniform vec4 u_UprightFix;
+
+// xyz: world position, w: model scale per meter of target on-screen height
+layout(location = 3) in vec4 a_InstancePosition;
+// Anchor rotation quaternion (xyzw), used unless billboarding
+layout(location = 4) in vec4 a_InstanceRotation;
+// x: billboard (0/1), y: lift along local +Y in meters, z: opacity, w: target height in px
+layout(location = 5) in vec4 a_InstanceParams;
+
+out float v_Opacity;
+
+vec4 QuatMul(vec4 a, vec4 b) {
+  return vec4(a.w * b.xyz + b.w * a.xyz + cross(a.xyz, b.xyz),
+              a.w * b.w - dot(a.xyz, b.xyz));
+}
+
+vec3 QuatRotate(vec4 q, vec3 v) {
+  vec3 t = 2.0 * cross(q.xyz, v);
+  return v + q.w * t + cross(q.xyz, t);
+}
+
+// Instance rotation and world position of this vertex.
+vec4 InstanceRotation(vec3 origin) {
+  if (a_InstanceParams.x < 0.5) return a_InstanceRotation;
+  float yaw = atan(u_CameraPosition.x - origin.x, u_CameraPosition.z - origin.z);
+  return QuatMul(vec4(0.0, sin(0.5 * yaw), 0.0, cos(0.5 * yaw)), u_UprightFix);
+}
+
+vec4 InstanceWorldPosition(vec3 origin, vec4 q) {
+  float zView = clamp(-(u_View * vec4(origin, 1.0)).z, 0.05, 50.0);
+  float scale = a_InstanceParams.w * zView / max(u_Viewport.z, 1e-6) *
+                a_InstancePosition.w;
+  vec3 local = a_Position.xyz * scale + vec3(0.0, a_InstanceParams.y, 0.0);
+  return vec4(origin + QuatRotate(q, local), 1.0);
+}
+#endif
+
 void main() {
   v_TexCoord = a_TexCoord;
+#ifdef INSTANCED
+  vec3 origin = a_InstancePosition.xyz;
+  v_Opacity = a_InstanceParams.z;
+  gl_Position = u_ViewProjection * InstanceWorldPosition(origin, InstanceRotation(origin));
+#else
   gl_Position = u_ModelViewProjection * a_Position;
+#endif
 }
@@ -112,6 +112,13 @@ in vec3 v_ViewPosition;
 in vec3 v_ViewNormal;
 in vec2 v_TexCoord;
 
+#ifdef INSTANCED
+in float v_Opacity;
+#define OPACITY v_Opacity
+#else
+#define OPACITY 1.0
+#endif
+
 layout(location = 0) out vec4 o_FragColor;
 
 const float kPi = 3.14159265359;
@@ -270,7 +277,7 @@ void main() {
 
   // Skip all lighting calculations if the estimation is not valid.
   if (!u_LightEstimateIsValid) {
-    o_FragColor = vec4(texture(u_AlbedoTexture, texCoord).rgb, 1.0);
+    o_FragColor = vec4(texture(u_AlbedoTexture, texCoord).rgb, 1.0) * OPACITY;
     return;
   }
 
@@ -293,5 +300,5 @@ void main() {
   vec3 radiance = mainLightRadiance + environmentalRadiance;
 
   // Convert final color to sRGB color space
-  o_FragColor = vec4(LinearToSrgb(radiance), 1.0);
+  o_FragColor = vec4(LinearToSrgb(radiance), 1.0) * OPACITY;
 }
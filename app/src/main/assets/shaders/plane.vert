@@ -16,10 +16,18 @@
  */
 
 uniform mat4 u_Model;
-uniform mat4 u_ModelViewProjection;
 uniform mat2 u_PlaneUvMatrix;
 uniform vec3 u_Normal;
 
+// Per-frame camera data; see CameraUniforms.java.
+layout(std140) uniform CameraUniforms {
+  mat4 u_View;
+  mat4 u_Projection;
+  mat4 u_ViewProjection;
+  vec4 u_Viewport;        // width px, height px, focal length px, 0
+  vec4 u_CameraPosition;  // world xyz, 1
+};
+
 layout(location = 0) in vec3 a_XZPositionAlpha; // (x, z, alpha)
 
 out vec3 v_TexCoordAlpha;
@@ -38,5 +46,5 @@ void main() {
    // Project vertices in world frame onto vec_u and vec_v.
    vec2 uv = vec2(dot(world_pos.xyz, vec_u), dot(world_pos.xyz, vec_v));
    v_TexCoordAlpha = vec3(u_PlaneUvMatrix * uv, a_XZPositionAlpha.z);
-   gl_Position = u_ModelViewProjection * local_pos;
+   gl_Position = u_ViewProjection * world_pos;
 }
@@ -15,12 +15,20 @@
  * limitations under the License.
  */
 
-uniform mat4 u_ModelViewProjection;
+// Per-frame camera data; see CameraUniforms.java.
+layout(std140) uniform CameraUniforms {
+  mat4 u_View;
+  mat4 u_Projection;
+  mat4 u_ViewProjection;
+  vec4 u_Viewport;        // width px, height px, focal length px, 0
+  vec4 u_CameraPosition;  // world xyz, 1
+};
+
 uniform float u_PointSize;
 
 layout(location = 0) in vec4 a_Position;
 
 void main() {
-  gl_Position = u_ModelViewProjection * vec4(a_Position.xyz, 1.0);
+  gl_Position = u_ViewProjection * vec4(a_Position.xyz, 1.0);
   gl_PointSize = u_PointSize;
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.samplerender;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Per-frame camera data in a {@link UniformBuffer}, uploaded and bound once per frame and read by
+ * every shader that declares the {@code CameraUniforms} block:
+ *
+ * <pre>
+ * layout(std140) uniform CameraUniforms {
+ *   mat4 u_View;
+ *   mat4 u_Projection;
+ *   mat4 u_ViewProjection;
+ *   vec4 u_Viewport;        // width px, height px, focal length px, 0
+ *   vec4 u_CameraPosition;  // world xyz, 1
+ * };
+ * </pre>
+ *
+ * <p>Shaders opt in with {@code shader.setUniformBlock(CameraUniforms.BLOCK_NAME,
+ * CameraUniforms.BINDING)}.
+ */
+public final class CameraUniforms implements Closeable {
+  public static final String BLOCK_NAME = "CameraUniforms";
+  public static final int BINDING = 0;
+
+  // std140: three mat4 then two vec4, no padding needed.
+  private static final int VIEW_OFFSET = 0;
+  private static final int PROJECTION_OFFSET = 16;
+  private static final int VIEW_PROJECTION_OFFSET = 32;
+  private static final int VIEWPORT_OFFSET = 48;
+  private static final int CAMERA_POSITION_OFFSET = 52;
+  private static final int FLOATS = 56;
+
+  private final float[] data = new float[FLOATS];
+  private final FloatBuffer staging =
+      ByteBuffer.allocateDirect(FLOATS * GpuBuffer.FLOAT_SIZE)
+          .order(ByteOrder.nativeOrder())
+          .asFloatBuffer();
+  private final UniformBuffer buffer;
+
+  public CameraUniforms(SampleRender render) {
+    buffer = new UniformBuffer(render, staging);
+  }
+
+  /**
+   * Uploads this frame's camera and binds the block to {@link #BINDING}. Call before the first
+   * draw that reads it.
+   *
+   * @param focalLengthPx vertical focal length in pixels (0.5 * viewport height * projection[1][1])
+   * @param cameraPosition world-space camera position {x, y, z}
+   */
+  public void update(
+      float[] view,
+      float[] projection,
+      float[] viewProjection,
+      int viewportWidth,
+      int viewportHeight,
+      float focalLengthPx,
+      float[] cameraPosition) {
+    System.arraycopy(view, 0, data, VIEW_OFFSET, 16);
+    System.arraycopy(projection, 0, data, PROJECTION_OFFSET, 16);
+    System.arraycopy(viewProjection, 0, data, VIEW_PROJECTION_OFFSET, 16);
+    data[VIEWPORT_OFFSET] = viewportWidth;
+    data[VIEWPORT_OFFSET + 1] = viewportHeight;
+    data[VIEWPORT_OFFSET + 2] = focalLengthPx;
+    data[VIEWPORT_OFFSET + 3] = 0f;
+    data[CAMERA_POSITION_OFFSET] = cameraPosition[0];
+    data[CAMERA_POSITION_OFFSET + 1] = cameraPosition[1];
+    data[CAMERA_POSITION_OFFSET + 2] = cameraPosition[2];
+    data[CAMERA_POSITION_OFFSET + 3] = 1f;
+
+    staging.clear();
+    staging.put(data);
+    buffer.set(staging);
+    buffer.bindBase(BINDING);
+  }
+
+  @Override
+  public void close() {
+    buffer.close();
+  }
+}
@@ -24,6 +24,7 @@ public class Framebuffer implements Closeable {
   private static final String TAG = Framebuffer.class.getSimpleName();
 
   private final int[] framebufferId = {0};
+  private final GLStateCache stateCache;
   private final Texture colorTexture;
   private final Texture depthTexture;
   private int width = -1;
@@ -36,6 +37,7 @@ public class Framebuffer implements Closeable {
    * Framebuffer)}.
    */
   public Framebuffer(SampleRender render, int width, int height) {
+    stateCache = render.getStateCache();
     try {
       colorTexture =
           new Texture(
@@ -51,8 +53,7 @@ public class Framebuffer implements Closeable {
               /*useMipmaps=*/ false);
 
       // Set parameters of the depth texture so that it's readable by shaders.
-      GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, depthTexture.getTextureId());
-      GLError.maybeThrowGLException("Failed to bind depth texture", "glBindTexture");
+      depthTexture.bind();
       GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_COMPARE_MODE, GLES30.GL_NONE);
       GLError.maybeThrowGLException("Failed to set texture parameter", "glTexParameteri");
       GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
@@ -66,8 +67,7 @@ public class Framebuffer implements Closeable {
       // Create framebuffer object and bind to the color and depth textures.
       GLES30.glGenFramebuffers(1, framebufferId, 0);
       GLError.maybeThrowGLException("Framebuffer creation failed", "glGenFramebuffers");
-      GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebufferId[0]);
-      GLError.maybeThrowGLException("Failed to bind framebuffer", "glBindFramebuffer");
+      stateCache.bindFramebuffer(framebufferId[0]);
       GLES30.glFramebufferTexture2D(
           GLES30.GL_FRAMEBUFFER,
           GLES30.GL_COLOR_ATTACHMENT0,
@@ -100,6 +100,7 @@ public class Framebuffer implements Closeable {
     if (framebufferId[0] != 0) {
       GLES30.glDeleteFramebuffers(1, framebufferId, 0);
       GLError.maybeLogGLError(Log.WARN, TAG, "Failed to free framebuffer", "glDeleteFramebuffers");
+      stateCache.onFramebufferDeleted(framebufferId[0]);
       framebufferId[0] = 0;
     }
     colorTexture.close();
@@ -115,8 +116,7 @@ public class Framebuffer implements Closeable {
     this.height = height;
 
     // Color texture
-    GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, colorTexture.getTextureId());
-    GLError.maybeThrowGLException("Failed to bind color texture", "glBindTexture");
+    colorTexture.bind();
     GLES30.glTexImage2D(
         GLES30.GL_TEXTURE_2D,
         /*level=*/ 0,
@@ -130,8 +130,7 @@ public class Framebuffer implements Closeable {
     GLError.maybeThrowGLException("Failed to specify color texture format", "glTexImage2D");
 
     // Depth texture
-    GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, depthTexture.getTextureId());
-    GLError.maybeThrowGLException("Failed to bind depth texture", "glBindTexture");
+    depthTexture.bind();
     GLES30.glTexImage2D(
         GLES30.GL_TEXTURE_2D,
         /*level=*/ 0,
@@ -18,29 +18,104 @@ package com.google.ar.core.examples.java.common.samplerender;
 import android.opengl.GLES30;
 import android.opengl.GLException;
 import android.opengl.GLU;
+import android.os.SystemClock;
 import android.util.Log;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
-/** Module for handling OpenGL errors. */
+/**
+ * Module for handling OpenGL errors.
+ *
+ * <p>How often errors are checked depends on the {@link CheckMode}. Only {@link
+ * CheckMode#PER_CALL} checks after each call (and throws); it's meant for debugging, since {@code
+ * glGetError} can stall the pipeline on some drivers. The other modes make {@link
+ * #maybeThrowGLException} and {@link #maybeLogGLError} no-ops and report errors per pass instead,
+ * with pass boundaries marked by {@link #checkpoint}.
+ *
+ * <p>There is no {@code KHR_debug} callback mode: {@code GLES31Ext.glDebugMessageCallbackKHR} has
+ * no native implementation on any Android release and always throws, so the callback isn't
+ * reachable from Java.
+ */
 public class GLError {
-  /** Throws a {@link GLException} if a GL error occurred. */
+  private static final String TAG = GLError.class.getSimpleName();
+  private static final long REPORT_INTERVAL_MS = 1000;
+
+  /** When GL errors are checked. */
+  public enum CheckMode {
+    /** {@code glGetError} after every call; errors throw at the call that caused them. */
+    PER_CALL,
+    /** One {@code glGetError} drain per pass ({@link #checkpoint}); errors are logged per pass. */
+    PER_PASS
+  }
+
+  private static volatile CheckMode activeMode = CheckMode.PER_CALL;
+  private static volatile String currentPass = null;
+  private static long lastReportAt = 0;
+
+  /** Selects the error-checking mode; applies from the next GL call. */
+  public static void setCheckMode(CheckMode mode) {
+    activeMode = mode;
+  }
+
+  /** Returns the mode in effect. */
+  public static CheckMode getCheckMode() {
+    return activeMode;
+  }
+
+  /**
+   * Marks the start of pass {@code pass} (null: no pass). In {@link CheckMode#PER_PASS} mode, errors
+   * raised since the previous checkpoint are reported against the previous pass. Call from the GL
+   * thread.
+   */
+  public static void checkpoint(String pass) {
+    if (activeMode == CheckMode.PER_PASS) {
+      reportPendingErrors(currentPass);
+    }
+    currentPass = pass;
+  }
+
+  /** Throws a {@link GLException} if a GL error occurred. No-op unless checking per call. */
   public static void maybeThrowGLException(String reason, String api) {
+    if (activeMode != CheckMode.PER_CALL) {
+      return;
+    }
     List<Integer> errorCodes = getGlErrors();
     if (errorCodes != null) {
       throw new GLException(errorCodes.get(0), formatErrorMessage(reason, api, errorCodes));
     }
   }
 
-  /** Logs a message with the given logcat priority if a GL error occurred. */
+  /**
+   * Logs a message with the given logcat priority if a GL error occurred. No-op unless checking per
+   * call.
+   */
   public static void maybeLogGLError(int priority, String tag, String reason, String api) {
+    if (activeMode != CheckMode.PER_CALL) {
+      return;
+    }
     List<Integer> errorCodes = getGlErrors();
     if (errorCodes != null) {
       Log.println(priority, tag, formatErrorMessage(reason, api, errorCodes));
     }
   }
 
+  private static void reportPendingErrors(String pass) {
+    List<Integer> errorCodes = getGlErrors();
+    if (errorCodes == null) {
+      return;
+    }
+    // Per-frame errors tend to repeat every frame; don't flood logcat.
+    long now = SystemClock.uptimeMillis();
+    if (now - lastReportAt < REPORT_INTERVAL_MS) {
+      return;
+    }
+    lastReportAt = now;
+    Log.e(
+        TAG,
+        formatErrorMessage("GL error during pass", pass != null ? pass : "(none)", errorCodes));
+  }
+
   private static String formatErrorMessage(String reason, String api, List<Integer> errorCodes) {
     StringBuilder builder = new StringBuilder(String.format("%s: %s: ", reason, api));
     Iterator<Integer> iterator = errorCodes.iterator();
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.samplerender;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES30;
+import java.util.Arrays;
+
+/**
+ * Shadow copy of the GL state that {@link Shader} and {@link SampleRender} set on every draw:
+ * program, blend functions, depth test / write, face culling, texture bindings per unit, the bound
+ * framebuffer and the viewport. Setters skip the GL call when the cached value already matches.
+ *
+ * <p>The cache only knows about calls made through it. Code that changes any of this state with
+ * raw GLES calls must call {@link #invalidate()} afterwards (or use {@link
+ * SampleRender#getStateCache()} instead of GLES30 directly). {@link SampleRender} invalidates at the
+ * start of every frame and on surface changes.
+ */
+public final class GLStateCache {
+  private static final int UNKNOWN = -1;
+  private static final int MAX_CACHED_TEXTURE_UNITS = 32;
+  // Texture targets tracked per unit; others are always issued.
+  private static final int[] TEXTURE_TARGETS = {
+    GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_CUBE_MAP, GLES11Ext.GL_TEXTURE_EXTERNAL_OES
+  };
+
+  private int program;
+  private int sourceRgbBlend;
+  private int destRgbBlend;
+  private int sourceAlphaBlend;
+  private int destAlphaBlend;
+  private int depthMask;
+  private int depthTest;
+  private int cullFace;
+  private int activeTextureUnit;
+  private final int[] boundTextures = new int[MAX_CACHED_TEXTURE_UNITS * TEXTURE_TARGETS.length];
+  private int framebuffer;
+  private int viewportX;
+  private int viewportY;
+  private int viewportWidth;
+  private int viewportHeight;
+
+  private long issuedCount = 0;
+  private long skippedCount = 0;
+
+  /* package-private */
+  GLStateCache() {
+    invalidate();
+  }
+
+  /** Forgets everything; the next call for each piece of state is issued unconditionally. */
+  public void invalidate() {
+    program = UNKNOWN;
+    sourceRgbBlend = UNKNOWN;
+    destRgbBlend = UNKNOWN;
+    sourceAlphaBlend = UNKNOWN;
+    destAlphaBlend = UNKNOWN;
+    depthMask = UNKNOWN;
+    depthTest = UNKNOWN;
+    cullFace = UNKNOWN;
+    activeTextureUnit = UNKNOWN;
+    Arrays.fill(boundTextures, UNKNOWN);
+    framebuffer = UNKNOWN;
+    viewportX = UNKNOWN;
+    viewportY = UNKNOWN;
+    viewportWidth = UNKNOWN;
+    viewportHeight = UNKNOWN;
+  }
+
+  /** Number of state calls issued to GL since the last {@link #resetCounters()}. */
+  public long getIssuedCount() {
+    return issuedCount;
+  }
+
+  /** Number of state calls skipped as redundant since the last {@link #resetCounters()}. */
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  public void resetCounters() {
+    issuedCount = 0;
+    skippedCount = 0;
+  }
+
+  public void useProgram(int programId) {
+    if (program == programId) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glUseProgram(programId);
+    GLError.maybeThrowGLException("Failed to use shader program", "glUseProgram");
+    program = programId;
+    issuedCount++;
+  }
+
+  public void blendFuncSeparate(
+      int sourceRgbBlend, int destRgbBlend, int sourceAlphaBlend, int destAlphaBlend) {
+    if (this.sourceRgbBlend == sourceRgbBlend
+        && this.destRgbBlend == destRgbBlend
+        && this.sourceAlphaBlend == sourceAlphaBlend
+        && this.destAlphaBlend == destAlphaBlend) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glBlendFuncSeparate(sourceRgbBlend, destRgbBlend, sourceAlphaBlend, destAlphaBlend);
+    GLError.maybeThrowGLException("Failed to set blend mode", "glBlendFuncSeparate");
+    this.sourceRgbBlend = sourceRgbBlend;
+    this.destRgbBlend = destRgbBlend;
+    this.sourceAlphaBlend = sourceAlphaBlend;
+    this.destAlphaBlend = destAlphaBlend;
+    issuedCount++;
+  }
+
+  public void depthMask(boolean enabled) {
+    int value = enabled ? 1 : 0;
+    if (depthMask == value) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glDepthMask(enabled);
+    GLError.maybeThrowGLException("Failed to set depth write mask", "glDepthMask");
+    depthMask = value;
+    issuedCount++;
+  }
+
+  public void depthTest(boolean enabled) {
+    depthTest =
+        setCapability(
+            GLES30.GL_DEPTH_TEST,
+            depthTest,
+            enabled,
+            "Failed to enable depth test",
+            "Failed to disable depth test");
+  }
+
+  public void cullFace(boolean enabled) {
+    cullFace =
+        setCapability(
+            GLES30.GL_CULL_FACE,
+            cullFace,
+            enabled,
+            "Failed to enable backface culling",
+            "Failed to disable backface culling");
+  }
+
+  /** Selects texture unit {@code unit} (0-based, not {@code GL_TEXTURE0 + unit}). */
+  public void activeTexture(int unit) {
+    if (activeTextureUnit == unit) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glActiveTexture(GLES30.GL_TEXTURE0 + unit);
+    GLError.maybeThrowGLException("Failed to set active texture", "glActiveTexture");
+    activeTextureUnit = unit;
+    issuedCount++;
+  }
+
+  /** Binds {@code textureId} to {@code target} on the active unit. */
+  public void bindTexture(int target, int textureId) {
+    int slot = textureSlot(activeTextureUnit, target);
+    if (slot >= 0 && boundTextures[slot] == textureId) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glBindTexture(target, textureId);
+    GLError.maybeThrowGLException("Failed to bind texture", "glBindTexture");
+    if (slot >= 0) {
+      boundTextures[slot] = textureId;
+    }
+    issuedCount++;
+  }
+
+  public void bindFramebuffer(int framebufferId) {
+    if (framebuffer == framebufferId) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebufferId);
+    GLError.maybeThrowGLException("Failed to bind framebuffer", "glBindFramebuffer");
+    framebuffer = framebufferId;
+    issuedCount++;
+  }
+
+  public void viewport(int x, int y, int width, int height) {
+    if (viewportX == x && viewportY == y && viewportWidth == width && viewportHeight == height) {
+      skippedCount++;
+      return;
+    }
+    GLES30.glViewport(x, y, width, height);
+    GLError.maybeThrowGLException("Failed to set viewport dimensions", "glViewport");
+    viewportX = x;
+    viewportY = y;
+    viewportWidth = width;
+    viewportHeight = height;
+    issuedCount++;
+  }
+
+  /* package-private */
+  void onProgramDeleted(int programId) {
+    if (program == programId) {
+      program = UNKNOWN;
+    }
+  }
+
+  /* package-private */
+  void onTextureDeleted(int textureId) {
+    // Deleting a texture unbinds it everywhere; a recycled id must not look bound.
+    for (int i = 0; i < boundTextures.length; ++i) {
+      if (boundTextures[i] == textureId) {
+        boundTextures[i] = 0;
+      }
+    }
+  }
+
+  /* package-private */
+  void onFramebufferDeleted(int framebufferId) {
+    if (framebuffer == framebufferId) {
+      framebuffer = 0;
+    }
+  }
+
+  private int setCapability(
+      int capability, int cached, boolean enabled, String enableError, String disableError) {
+    int value = enabled ? 1 : 0;
+    if (cached == value) {
+      skippedCount++;
+      return cached;
+    }
+    if (enabled) {
+      GLES30.glEnable(capability);
+      GLError.maybeThrowGLException(enableError, "glEnable");
+    } else {
+      GLES30.glDisable(capability);
+      GLError.maybeThrowGLException(disableError, "glDisable");
+    }
+    issuedCount++;
+    return value;
+  }
+
+  private static int textureSlot(int unit, int target) {
+    if (unit < 0 || unit >= MAX_CACHED_TEXTURE_UNITS) {
+      return -1;
+    }
+    for (int i = 0; i < TEXTURE_TARGETS.length; ++i) {
+      if (TEXTURE_TARGETS[i] == target) {
+        return unit * TEXTURE_TARGETS.length + i;
+      }
+    }
+    return -1;
+  }
+}
@@ -63,6 +63,7 @@ public class Mesh implements Closeable {
   private final PrimitiveMode primitiveMode;
   private final IndexBuffer indexBuffer;
   private final VertexBuffer[] vertexBuffers;
+  private float[] boundingSphere;
 
   /**
    * Construct a {@link Mesh}.
@@ -136,6 +137,7 @@ public class Mesh implements Closeable {
       FloatBuffer localCoordinates = ObjData.getVertices(obj);
       FloatBuffer textureCoordinates = ObjData.getTexCoords(obj, /*dimensions=*/ 2);
       FloatBuffer normals = ObjData.getNormals(obj);
+      float[] boundingSphere = computeBoundingSphere(localCoordinates);
 
       VertexBuffer[] vertexBuffers = {
         new VertexBuffer(render, 3, localCoordinates),
@@ -145,10 +147,106 @@ public class Mesh implements Closeable {
 
       IndexBuffer indexBuffer = new IndexBuffer(render, vertexIndices);
 
-      return new Mesh(render, Mesh.PrimitiveMode.TRIANGLES, indexBuffer, vertexBuffers);
+      Mesh mesh = new Mesh(render, Mesh.PrimitiveMode.TRIANGLES, indexBuffer, vertexBuffers);
+      mesh.boundingSphere = boundingSphere;
+      return mesh;
     }
   }
 
+  /**
+   * Returns a bounding sphere {@code {x, y, z, radius}} in model units, or null if unknown (only
+   * meshes from {@link #createFromAsset} have one).
+   */
+  public float[] getBoundingSphere() {
+    return boundingSphere != null ? boundingSphere.clone() : null;
+  }
+
+  /**
+   * Attaches per-instance attributes for {@link SampleRender#drawInstanced}.
+   *
+   * <p>{@code instanceBuffer} holds interleaved data, one record per instance; {@code
+   * attributeSizes} gives the float count of each attribute in the record, in order, and must add
+   * up to the buffer's entries per vertex. The attributes take the locations right after this
+   * mesh's vertex buffers and advance once per instance. Calling again re-points the same
+   * locations, so one mesh can be drawn from several instance buffers in turn.
+   */
+  public void setInstanceBuffer(VertexBuffer instanceBuffer, int... attributeSizes) {
+    setInstanceBuffer(instanceBuffer, /*firstInstance=*/ 0, attributeSizes);
+  }
+
+  /**
+   * Like {@link #setInstanceBuffer(VertexBuffer, int...)}, but instance 0 of the next draw reads
+   * record {@code firstInstance} of the buffer, so consecutive runs of one buffer can be drawn
+   * separately without re-uploading.
+   */
+  public void setInstanceBuffer(
+      VertexBuffer instanceBuffer, int firstInstance, int[] attributeSizes) {
+    int stride = 0;
+    for (int size : attributeSizes) {
+      stride += size;
+    }
+    if (stride != instanceBuffer.getNumberOfEntriesPerVertex()) {
+      throw new IllegalArgumentException(
+          "Instance attribute sizes must add up to the buffer's entries per instance");
+    }
+
+    GLES30.glBindVertexArray(vertexArrayId[0]);
+    GLError.maybeThrowGLException("Failed to bind vertex array object", "glBindVertexArray");
+    GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, instanceBuffer.getBufferId());
+    GLError.maybeThrowGLException("Failed to bind instance buffer", "glBindBuffer");
+    int offset = firstInstance * stride;
+    for (int i = 0; i < attributeSizes.length; ++i) {
+      int location = vertexBuffers.length + i;
+      GLES30.glVertexAttribPointer(
+          location,
+          attributeSizes[i],
+          GLES30.GL_FLOAT,
+          false,
+          stride * GpuBuffer.FLOAT_SIZE,
+          offset * GpuBuffer.FLOAT_SIZE);
+      GLError.maybeThrowGLException(
+          "Failed to associate instance buffer with vertex array", "glVertexAttribPointer");
+      GLES30.glVertexAttribDivisor(location, 1);
+      GLError.maybeThrowGLException("Failed to set instance divisor", "glVertexAttribDivisor");
+      GLES30.glEnableVertexAttribArray(location);
+      GLError.maybeThrowGLException(
+          "Failed to enable instance attribute", "glEnableVertexAttribArray");
+      offset += attributeSizes[i];
+    }
+  }
+
+  /** Sphere around the vertex AABB center; not minimal, but cheap and conservative. */
+  private static float[] computeBoundingSphere(FloatBuffer positions) {
+    int count = positions.limit() / 3;
+    if (count == 0) {
+      return null;
+    }
+    float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+    for (int i = 0; i < count; ++i) {
+      float x = positions.get(3 * i);
+      float y = positions.get(3 * i + 1);
+      float z = positions.get(3 * i + 2);
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      minZ = Math.min(minZ, z);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+      maxZ = Math.max(maxZ, z);
+    }
+    float cx = 0.5f * (minX + maxX);
+    float cy = 0.5f * (minY + maxY);
+    float cz = 0.5f * (minZ + maxZ);
+    float maxD2 = 0f;
+    for (int i = 0; i < count; ++i) {
+      float dx = positions.get(3 * i) - cx;
+      float dy = positions.get(3 * i + 1) - cy;
+      float dz = positions.get(3 * i + 2) - cz;
+      maxD2 = Math.max(maxD2, dx * dx + dy * dy + dz * dz);
+    }
+    return new float[] {cx, cy, cz, (float) Math.sqrt(maxD2)};
+  }
+
   @Override
   public void close() {
     if (vertexArrayId[0] != 0) {
@@ -191,4 +289,29 @@ public class Mesh implements Closeable {
           "Failed to draw vertex array object with indices", "glDrawElements");
     }
   }
+
+  /**
+   * Draws {@code instanceCount} instances of the mesh using the buffer attached with {@link
+   * #setInstanceBuffer}. Don't call this directly unless you are doing low level OpenGL code;
+   * instead, prefer {@link SampleRender#drawInstanced}.
+   */
+  public void lowLevelDrawInstanced(int instanceCount) {
+    if (vertexArrayId[0] == 0) {
+      throw new IllegalStateException("Tried to draw a freed Mesh");
+    }
+
+    GLES30.glBindVertexArray(vertexArrayId[0]);
+    GLError.maybeThrowGLException("Failed to bind vertex array object", "glBindVertexArray");
+    if (indexBuffer == null) {
+      GLES30.glDrawArraysInstanced(
+          primitiveMode.glesEnum, 0, vertexBuffers[0].getNumberOfVertices(), instanceCount);
+      GLError.maybeThrowGLException(
+          "Failed to draw instanced vertex array object", "glDrawArraysInstanced");
+    } else {
+      GLES30.glDrawElementsInstanced(
+          primitiveMode.glesEnum, indexBuffer.getSize(), GLES30.GL_UNSIGNED_INT, 0, instanceCount);
+      GLError.maybeThrowGLException(
+          "Failed to draw instanced vertex array object with indices", "glDrawElementsInstanced");
+    }
+  }
 }
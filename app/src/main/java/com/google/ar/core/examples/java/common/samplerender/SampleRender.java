@@ -26,6 +26,7 @@ public class SampleRender {
   private static final String TAG = SampleRender.class.getSimpleName();
 
   private final AssetManager assetManager;
+  private final GLStateCache stateCache = new GLStateCache();
 
   private int viewportWidth = 1;
   private int viewportHeight = 1;
@@ -46,25 +47,37 @@ public class SampleRender {
             new GLSurfaceView.Renderer() {
               @Override
               public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+                GLError.checkpoint("onSurfaceCreated");
                 GLES30.glEnable(GLES30.GL_BLEND);
                 // ✅ Needed so virtual scene (FBO) composites correctly over the camera background
                 GLES30.glBlendFunc(GLES30.GL_ONE, GLES30.GL_ONE_MINUS_SRC_ALPHA);
                 GLError.maybeThrowGLException("Failed to set blending", "glEnable/glBlendFunc");
+                stateCache.invalidate();
                 renderer.onSurfaceCreated(SampleRender.this);
+                stateCache.invalidate();
+                GLError.checkpoint(null);
               }
 
               @Override
               public void onSurfaceChanged(GL10 gl, int w, int h) {
                 viewportWidth = w;
                 viewportHeight = h;
+                GLError.checkpoint("onSurfaceChanged");
                 renderer.onSurfaceChanged(SampleRender.this, w, h);
+                stateCache.invalidate();
+                GLError.checkpoint(null);
               }
 
               @Override
               public void onDrawFrame(GL10 gl) {
+                // ARCore and anything outside this class may have touched GL state since last frame.
+                stateCache.invalidate();
+                GLError.checkpoint("onDrawFrame");
                 // OK to keep: clears default FB (color+depth) before AR background + overlays render.
                 clear(/*framebuffer=*/ null, 0f, 0f, 0f, 1f);
                 renderer.onDrawFrame(SampleRender.this);
+                // Reports the last pass of the frame in per-pass mode
+                GLError.checkpoint(null);
               }
             });
     glSurfaceView.setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
@@ -87,6 +100,22 @@ public class SampleRender {
     mesh.lowLevelDraw();
   }
 
+  /**
+   * Draw {@code instanceCount} instances of a {@link Mesh} with the specified {@link Shader} to the
+   * given {@link Framebuffer}. Per-instance data comes from the buffer attached with {@link
+   * Mesh#setInstanceBuffer}.
+   *
+   * <p>The {@code framebuffer} argument may be null, in which case the default framebuffer is used.
+   */
+  public void drawInstanced(Mesh mesh, Shader shader, Framebuffer framebuffer, int instanceCount) {
+    if (instanceCount <= 0) {
+      return;
+    }
+    useFramebuffer(framebuffer);
+    shader.lowLevelUse();
+    mesh.lowLevelDrawInstanced(instanceCount);
+  }
+
   /**
    * Clear the given framebuffer.
    *
@@ -97,8 +126,7 @@ public class SampleRender {
     useFramebuffer(framebuffer);
     GLES30.glClearColor(r, g, b, a);
     GLError.maybeThrowGLException("Failed to set clear color", "glClearColor");
-    GLES30.glDepthMask(true);
-    GLError.maybeThrowGLException("Failed to set depth write mask", "glDepthMask");
+    stateCache.depthMask(true);
     GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT | GLES30.GL_DEPTH_BUFFER_BIT);
     GLError.maybeThrowGLException("Failed to clear framebuffer", "glClear");
   }
@@ -127,6 +155,14 @@ public class SampleRender {
     void onDrawFrame(SampleRender render);
   }
 
+  /**
+   * Returns the GL state cache used by draws through this context. Code issuing raw GL state calls
+   * should go through it, or call {@link GLStateCache#invalidate()} afterwards.
+   */
+  public GLStateCache getStateCache() {
+    return stateCache;
+  }
+
   /* package-private */
   AssetManager getAssets() {
     return assetManager;
@@ -145,9 +181,7 @@ public class SampleRender {
       viewportWidth = framebuffer.getWidth();
       viewportHeight = framebuffer.getHeight();
     }
-    GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebufferId);
-    GLError.maybeThrowGLException("Failed to bind framebuffer", "glBindFramebuffer");
-    GLES30.glViewport(0, 0, viewportWidth, viewportHeight);
-    GLError.maybeThrowGLException("Failed to set viewport dimensions", "glViewport");
+    stateCache.bindFramebuffer(framebufferId);
+    stateCache.viewport(0, 0, viewportWidth, viewportHeight);
   }
 }
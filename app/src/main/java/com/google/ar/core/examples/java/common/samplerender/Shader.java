@@ -21,6 +21,7 @@ import android.content.res.AssetManager;
 import android.opengl.GLES30;
 import android.opengl.GLException;
 import android.util.Log;
+import android.util.SparseArray;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -66,8 +67,12 @@ public class Shader implements Closeable {
     }
   }
 
+  private final GLStateCache stateCache;
   private int programId = 0;
-  private final Map<Integer, Uniform> uniforms = new HashMap<>();
+  // Uniform objects are kept per location and refilled in place by the setters, so steady-state
+  // frames don't allocate. uniformList mirrors the map for index-based iteration in lowLevelUse().
+  private final SparseArray<Uniform> uniforms = new SparseArray<>();
+  private final ArrayList<Uniform> uniformList = new ArrayList<>();
   private int maxTextureUnit = 0;
 
   private final Map<String, Integer> uniformLocations = new HashMap<>();
@@ -92,6 +97,7 @@ public class Shader implements Closeable {
       String vertexShaderCode,
       String fragmentShaderCode,
       Map<String, String> defines) {
+    stateCache = render.getStateCache();
     int vertexShaderId = 0;
     int fragmentShaderId = 0;
     String definesCode = createShaderDefinesCode(defines);
@@ -162,6 +168,7 @@ public class Shader implements Closeable {
   public void close() {
     if (programId != 0) {
       GLES30.glDeleteProgram(programId);
+      stateCache.onProgramDeleted(programId);
       programId = 0;
     }
   }
@@ -237,35 +244,29 @@ public class Shader implements Closeable {
     // unit.
     int location = getUniformLocation(name);
     Uniform uniform = uniforms.get(location);
-    int textureUnit;
-    if (!(uniform instanceof UniformTexture)) {
-      textureUnit = maxTextureUnit++;
+    if (uniform instanceof UniformTexture) {
+      ((UniformTexture) uniform).texture = texture;
     } else {
-      UniformTexture uniformTexture = (UniformTexture) uniform;
-      textureUnit = uniformTexture.getTextureUnit();
+      putUniform(new UniformTexture(location, maxTextureUnit++, texture));
     }
-    uniforms.put(location, new UniformTexture(textureUnit, texture));
     return this;
   }
 
   /** Sets a {@code bool} uniform. */
   public Shader setBool(String name, boolean v0) {
-    int[] values = {v0 ? 1 : 0};
-    uniforms.put(getUniformLocation(name), new UniformInt(values));
+    intUniform(name, 1).values[0] = v0 ? 1 : 0;
     return this;
   }
 
   /** Sets an {@code int} uniform. */
   public Shader setInt(String name, int v0) {
-    int[] values = {v0};
-    uniforms.put(getUniformLocation(name), new UniformInt(values));
+    intUniform(name, 1).values[0] = v0;
     return this;
   }
 
   /** Sets a {@code float} uniform. */
   public Shader setFloat(String name, float v0) {
-    float[] values = {v0};
-    uniforms.put(getUniformLocation(name), new Uniform1f(values));
+    floatUniform(name, FloatUniform.VEC1, 1).values[0] = v0;
     return this;
   }
 
@@ -274,7 +275,7 @@ public class Shader implements Closeable {
     if (values.length != 2) {
       throw new IllegalArgumentException("Value array length must be 2");
     }
-    uniforms.put(getUniformLocation(name), new Uniform2f(values.clone()));
+    setFloats(name, FloatUniform.VEC2, values);
     return this;
   }
   /** Sets a {@code vec3} uniform. */
@@ -282,7 +283,7 @@ public class Shader implements Closeable {
     if (values.length != 3) {
       throw new IllegalArgumentException("Value array length must be 3");
     }
-    uniforms.put(getUniformLocation(name), new Uniform3f(values.clone()));
+    setFloats(name, FloatUniform.VEC3, values);
     return this;
   }
 
@@ -291,7 +292,7 @@ public class Shader implements Closeable {
     if (values.length != 4) {
       throw new IllegalArgumentException("Value array length must be 4");
     }
-    uniforms.put(getUniformLocation(name), new Uniform4f(values.clone()));
+    setFloats(name, FloatUniform.VEC4, values);
     return this;
   }
 
@@ -300,7 +301,7 @@ public class Shader implements Closeable {
     if (values.length != 4) {
       throw new IllegalArgumentException("Value array length must be 4 (2x2)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix2f(values.clone()));
+    setFloats(name, FloatUniform.MAT2, values);
     return this;
   }
 
@@ -309,7 +310,7 @@ public class Shader implements Closeable {
     if (values.length != 9) {
       throw new IllegalArgumentException("Value array length must be 9 (3x3)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix3f(values.clone()));
+    setFloats(name, FloatUniform.MAT3, values);
     return this;
   }
 
@@ -318,29 +319,28 @@ public class Shader implements Closeable {
     if (values.length != 16) {
       throw new IllegalArgumentException("Value array length must be 16 (4x4)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix4f(values.clone()));
+    setFloats(name, FloatUniform.MAT4, values);
     return this;
   }
 
   /** Sets a {@code bool} array uniform. */
   public Shader setBoolArray(String name, boolean[] values) {
-    int[] intValues = new int[values.length];
+    int[] intValues = intUniform(name, values.length).values;
     for (int i = 0; i < values.length; ++i) {
       intValues[i] = values[i] ? 1 : 0;
     }
-    uniforms.put(getUniformLocation(name), new UniformInt(intValues));
     return this;
   }
 
   /** Sets an {@code int} array uniform. */
   public Shader setIntArray(String name, int[] values) {
-    uniforms.put(getUniformLocation(name), new UniformInt(values.clone()));
+    System.arraycopy(values, 0, intUniform(name, values.length).values, 0, values.length);
     return this;
   }
 
   /** Sets a {@code float} array uniform. */
   public Shader setFloatArray(String name, float[] values) {
-    uniforms.put(getUniformLocation(name), new Uniform1f(values.clone()));
+    setFloats(name, FloatUniform.VEC1, values);
     return this;
   }
 
@@ -349,7 +349,7 @@ public class Shader implements Closeable {
     if (values.length % 2 != 0) {
       throw new IllegalArgumentException("Value array length must be divisible by 2");
     }
-    uniforms.put(getUniformLocation(name), new Uniform2f(values.clone()));
+    setFloats(name, FloatUniform.VEC2, values);
     return this;
   }
   /** Sets a {@code vec3} array uniform. */
@@ -357,7 +357,7 @@ public class Shader implements Closeable {
     if (values.length % 3 != 0) {
       throw new IllegalArgumentException("Value array length must be divisible by 3");
     }
-    uniforms.put(getUniformLocation(name), new Uniform3f(values.clone()));
+    setFloats(name, FloatUniform.VEC3, values);
     return this;
   }
 
@@ -366,7 +366,7 @@ public class Shader implements Closeable {
     if (values.length % 4 != 0) {
       throw new IllegalArgumentException("Value array length must be divisible by 4");
     }
-    uniforms.put(getUniformLocation(name), new Uniform4f(values.clone()));
+    setFloats(name, FloatUniform.VEC4, values);
     return this;
   }
 
@@ -375,7 +375,7 @@ public class Shader implements Closeable {
     if (values.length % 4 != 0) {
       throw new IllegalArgumentException("Value array length must be divisible by 4 (2x2)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix2f(values.clone()));
+    setFloats(name, FloatUniform.MAT2, values);
     return this;
   }
 
@@ -384,7 +384,7 @@ public class Shader implements Closeable {
     if (values.length % 9 != 0) {
       throw new IllegalArgumentException("Values array length must be divisible by 9 (3x3)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix3f(values.clone()));
+    setFloats(name, FloatUniform.MAT3, values);
     return this;
   }
 
@@ -393,7 +393,26 @@ public class Shader implements Closeable {
     if (values.length % 16 != 0) {
       throw new IllegalArgumentException("Value array length must be divisible by 16 (4x4)");
     }
-    uniforms.put(getUniformLocation(name), new UniformMatrix4f(values.clone()));
+    setFloats(name, FloatUniform.MAT4, values);
+    return this;
+  }
+
+  /**
+   * Reads the uniform block {@code blockName} from whatever {@link UniformBuffer} is bound to
+   * {@code bindingPoint} at draw time. Block bindings are program state, so this only needs to be
+   * called once.
+   *
+   * @see <a
+   *     href="https://www.khronos.org/registry/OpenGL-Refpages/es3.0/html/glUniformBlockBinding.xhtml">glUniformBlockBinding</a>
+   */
+  public Shader setUniformBlock(String blockName, int bindingPoint) {
+    int blockIndex = GLES30.glGetUniformBlockIndex(programId, blockName);
+    GLError.maybeThrowGLException("Failed to find uniform block", "glGetUniformBlockIndex");
+    if (blockIndex == GLES30.GL_INVALID_INDEX) {
+      throw new IllegalArgumentException("Shader uniform block does not exist: " + blockName);
+    }
+    GLES30.glUniformBlockBinding(programId, blockIndex, bindingPoint);
+    GLError.maybeThrowGLException("Failed to set uniform block binding", "glUniformBlockBinding");
     return this;
   }
 
@@ -406,192 +425,192 @@ public class Shader implements Closeable {
     if (programId == 0) {
       throw new IllegalStateException("Attempted to use freed shader");
     }
-    GLES30.glUseProgram(programId);
-    GLError.maybeThrowGLException("Failed to use shader program", "glUseProgram");
-    GLES30.glBlendFuncSeparate(
+    // Redundant calls are dropped by the state cache.
+    stateCache.useProgram(programId);
+    stateCache.blendFuncSeparate(
         sourceRgbBlend.glesEnum,
         destRgbBlend.glesEnum,
         sourceAlphaBlend.glesEnum,
         destAlphaBlend.glesEnum);
-    GLError.maybeThrowGLException("Failed to set blend mode", "glBlendFuncSeparate");
-    GLES30.glDepthMask(depthWrite);
-    GLError.maybeThrowGLException("Failed to set depth write mask", "glDepthMask");
-    if (depthTest) {
-      GLES30.glEnable(GLES30.GL_DEPTH_TEST);
-      GLError.maybeThrowGLException("Failed to enable depth test", "glEnable");
-    } else {
-      GLES30.glDisable(GLES30.GL_DEPTH_TEST);
-      GLError.maybeThrowGLException("Failed to disable depth test", "glDisable");
-    }
-    if (cullFace) {
-      GLES30.glEnable(GLES30.GL_CULL_FACE);
-      GLError.maybeThrowGLException("Failed to enable backface culling", "glEnable");
-    } else {
-      GLES30.glDisable(GLES30.GL_CULL_FACE);
-      GLError.maybeThrowGLException("Failed to disable backface culling", "glDisable");
-    }
+    stateCache.depthMask(depthWrite);
+    stateCache.depthTest(depthTest);
+    stateCache.cullFace(cullFace);
     try {
-      // Remove all non-texture uniforms from the map after setting them, since they're stored as
-      // part of the program.
-      ArrayList<Integer> obsoleteEntries = new ArrayList<>(uniforms.size());
-      for (Map.Entry<Integer, Uniform> entry : uniforms.entrySet()) {
+      // Non-texture uniforms are stored as part of the program, so they're only uploaded after
+      // they change; textures are rebound on every use.
+      for (int i = 0; i < uniformList.size(); i++) {
+        Uniform uniform = uniformList.get(i);
+        if (!uniform.pending) {
+          continue;
+        }
         try {
-          entry.getValue().use(entry.getKey());
-          if (!(entry.getValue() instanceof UniformTexture)) {
-            obsoleteEntries.add(entry.getKey());
-          }
+          uniform.use(stateCache);
         } catch (GLException e) {
-          String name = uniformNames.get(entry.getKey());
+          String name = uniformNames.get(uniform.location);
           throw new IllegalArgumentException("Error setting uniform `" + name + "'", e);
         }
+        if (!(uniform instanceof UniformTexture)) {
+          uniform.pending = false;
+        }
       }
-      uniforms.keySet().removeAll(obsoleteEntries);
     } finally {
-      GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
-      GLError.maybeLogGLError(Log.WARN, TAG, "Failed to set active texture", "glActiveTexture");
+      stateCache.activeTexture(0);
     }
   }
 
-  private static interface Uniform {
-    public void use(int location);
+  private void setFloats(String name, int kind, float[] values) {
+    System.arraycopy(values, 0, floatUniform(name, kind, values.length).values, 0, values.length);
   }
 
-  private static class UniformTexture implements Uniform {
-    private final int textureUnit;
-    private final Texture texture;
-
-    public UniformTexture(int textureUnit, Texture texture) {
-      this.textureUnit = textureUnit;
-      this.texture = texture;
-    }
-
-    public int getTextureUnit() {
-      return textureUnit;
-    }
-
-    @Override
-    public void use(int location) {
-      if (texture.getTextureId() == 0) {
-        throw new IllegalStateException("Tried to draw with freed texture");
+  /** The pooled float uniform at {@code name}, marked pending; replaced if its shape changed. */
+  private FloatUniform floatUniform(String name, int kind, int length) {
+    int location = getUniformLocation(name);
+    Uniform uniform = uniforms.get(location);
+    if (uniform instanceof FloatUniform) {
+      FloatUniform f = (FloatUniform) uniform;
+      if (f.kind == kind && f.values.length == length) {
+        f.pending = true;
+        return f;
       }
-      GLES30.glActiveTexture(GLES30.GL_TEXTURE0 + textureUnit);
-      GLError.maybeThrowGLException("Failed to set active texture", "glActiveTexture");
-      GLES30.glBindTexture(texture.getTarget().glesEnum, texture.getTextureId());
-      GLError.maybeThrowGLException("Failed to bind texture", "glBindTexture");
-      GLES30.glUniform1i(location, textureUnit);
-      GLError.maybeThrowGLException("Failed to set shader texture uniform", "glUniform1i");
     }
+    FloatUniform f = new FloatUniform(location, kind, new float[length]);
+    putUniform(f);
+    return f;
   }
 
-  private static class UniformInt implements Uniform {
-    private final int[] values;
-
-    public UniformInt(int[] values) {
-      this.values = values;
-    }
-
-    @Override
-    public void use(int location) {
-      GLES30.glUniform1iv(location, values.length, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform 1i", "glUniform1iv");
-    }
-  }
-
-  private static class Uniform1f implements Uniform {
-    private final float[] values;
-
-    public Uniform1f(float[] values) {
-      this.values = values;
-    }
-
-    @Override
-    public void use(int location) {
-      GLES30.glUniform1fv(location, values.length, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform 1f", "glUniform1fv");
+  /** The pooled int uniform at {@code name}, marked pending; replaced if its length changed. */
+  private UniformInt intUniform(String name, int length) {
+    int location = getUniformLocation(name);
+    Uniform uniform = uniforms.get(location);
+    if (uniform instanceof UniformInt && ((UniformInt) uniform).values.length == length) {
+      uniform.pending = true;
+      return (UniformInt) uniform;
     }
+    UniformInt u = new UniformInt(location, new int[length]);
+    putUniform(u);
+    return u;
   }
 
-  private static class Uniform2f implements Uniform {
-    private final float[] values;
-
-    public Uniform2f(float[] values) {
-      this.values = values;
-    }
-
-    @Override
-    public void use(int location) {
-      GLES30.glUniform2fv(location, values.length / 2, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform 2f", "glUniform2fv");
+  private void putUniform(Uniform uniform) {
+    Uniform old = uniforms.get(uniform.location);
+    uniforms.put(uniform.location, uniform);
+    int index = (old != null) ? uniformList.indexOf(old) : -1;
+    if (index >= 0) {
+      uniformList.set(index, uniform);
+    } else {
+      uniformList.add(uniform);
     }
   }
 
-  private static class Uniform3f implements Uniform {
-    private final float[] values;
+  private abstract static class Uniform {
+    final int location;
+    // Needs uploading on the next lowLevelUse()
+    boolean pending = true;
 
-    public Uniform3f(float[] values) {
-      this.values = values;
+    Uniform(int location) {
+      this.location = location;
     }
 
-    @Override
-    public void use(int location) {
-      GLES30.glUniform3fv(location, values.length / 3, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform 3f", "glUniform3fv");
-    }
+    abstract void use(GLStateCache stateCache);
   }
 
-  private static class Uniform4f implements Uniform {
-    private final float[] values;
+  private static class UniformTexture extends Uniform {
+    private final int textureUnit;
+    private Texture texture;
+    private boolean unitUploaded = false;
 
-    public Uniform4f(float[] values) {
-      this.values = values;
+    public UniformTexture(int location, int textureUnit, Texture texture) {
+      super(location);
+      this.textureUnit = textureUnit;
+      this.texture = texture;
     }
 
     @Override
-    public void use(int location) {
-      GLES30.glUniform4fv(location, values.length / 4, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform 4f", "glUniform4fv");
+    void use(GLStateCache stateCache) {
+      if (texture.getTextureId() == 0) {
+        throw new IllegalStateException("Tried to draw with freed texture");
+      }
+      stateCache.activeTexture(textureUnit);
+      stateCache.bindTexture(texture.getTarget().glesEnum, texture.getTextureId());
+      if (!unitUploaded) {
+        // The sampler's unit is program state, like any other uniform
+        GLES30.glUniform1i(location, textureUnit);
+        GLError.maybeThrowGLException("Failed to set shader texture uniform", "glUniform1i");
+        unitUploaded = true;
+      }
     }
   }
 
-  private static class UniformMatrix2f implements Uniform {
-    private final float[] values;
+  private static class UniformInt extends Uniform {
+    private final int[] values;
 
-    public UniformMatrix2f(float[] values) {
+    public UniformInt(int location, int[] values) {
+      super(location);
       this.values = values;
     }
 
     @Override
-    public void use(int location) {
-      GLES30.glUniformMatrix2fv(location, values.length / 4, /*transpose=*/ false, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform matrix 2f", "glUniformMatrix2fv");
+    void use(GLStateCache stateCache) {
+      GLES30.glUniform1iv(location, values.length, values, 0);
+      GLError.maybeThrowGLException("Failed to set shader uniform 1i", "glUniform1iv");
     }
   }
 
-  private static class UniformMatrix3f implements Uniform {
-    private final float[] values;
+  private static class FloatUniform extends Uniform {
+    static final int VEC1 = 1;
+    static final int VEC2 = 2;
+    static final int VEC3 = 3;
+    static final int VEC4 = 4;
+    static final int MAT2 = 5;
+    static final int MAT3 = 6;
+    static final int MAT4 = 7;
 
-    public UniformMatrix3f(float[] values) {
-      this.values = values;
-    }
-
-    @Override
-    public void use(int location) {
-      GLES30.glUniformMatrix3fv(location, values.length / 9, /*transpose=*/ false, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform matrix 3f", "glUniformMatrix3fv");
-    }
-  }
-
-  private static class UniformMatrix4f implements Uniform {
+    private final int kind;
     private final float[] values;
 
-    public UniformMatrix4f(float[] values) {
+    public FloatUniform(int location, int kind, float[] values) {
+      super(location);
+      this.kind = kind;
       this.values = values;
     }
 
     @Override
-    public void use(int location) {
-      GLES30.glUniformMatrix4fv(location, values.length / 16, /*transpose=*/ false, values, 0);
-      GLError.maybeThrowGLException("Failed to set shader uniform matrix 4f", "glUniformMatrix4fv");
+    void use(GLStateCache stateCache) {
+      switch (kind) {
+        case VEC1:
+          GLES30.glUniform1fv(location, values.length, values, 0);
+          GLError.maybeThrowGLException("Failed to set shader uniform 1f", "glUniform1fv");
+          break;
+        case VEC2:
+          GLES30.glUniform2fv(location, values.length / 2, values, 0);
+          GLError.maybeThrowGLException("Failed to set shader uniform 2f", "glUniform2fv");
+          break;
+        case VEC3:
+          GLES30.glUniform3fv(location, values.length / 3, values, 0);
+          GLError.maybeThrowGLException("Failed to set shader uniform 3f", "glUniform3fv");
+          break;
+        case VEC4:
+          GLES30.glUniform4fv(location, values.length / 4, values, 0);
+          GLError.maybeThrowGLException("Failed to set shader uniform 4f", "glUniform4fv");
+          break;
+        case MAT2:
+          GLES30.glUniformMatrix2fv(location, values.length / 4, /*transpose=*/ false, values, 0);
+          GLError.maybeThrowGLException(
+              "Failed to set shader uniform matrix 2f", "glUniformMatrix2fv");
+          break;
+        case MAT3:
+          GLES30.glUniformMatrix3fv(location, values.length / 9, /*transpose=*/ false, values, 0);
+          GLError.maybeThrowGLException(
+              "Failed to set shader uniform matrix 3f", "glUniformMatrix3fv");
+          break;
+        case MAT4:
+          GLES30.glUniformMatrix4fv(location, values.length / 16, /*transpose=*/ false, values, 0);
+          GLError.maybeThrowGLException(
+              "Failed to set shader uniform matrix 4f", "glUniformMatrix4fv");
+          break;
+        default:
+          throw new IllegalStateException("Unknown uniform kind " + kind);
+      }
     }
   }
 
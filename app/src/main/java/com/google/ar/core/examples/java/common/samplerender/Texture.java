@@ -30,6 +30,7 @@ public class Texture implements Closeable {
 
   private final int[] textureId = {0};
   private final Target target;
+  private final GLStateCache stateCache;
 
   /**
    * Describes the way the texture's edges are rendered.
@@ -98,6 +99,7 @@ public class Texture implements Closeable {
 
   public Texture(SampleRender render, Target target, WrapMode wrapMode, boolean useMipmaps) {
     this.target = target;
+    this.stateCache = render.getStateCache();
 
     GLES30.glGenTextures(1, textureId, 0);
     GLError.maybeThrowGLException("Texture creation failed", "glGenTextures");
@@ -105,8 +107,7 @@ public class Texture implements Closeable {
     int minFilter = useMipmaps ? GLES30.GL_LINEAR_MIPMAP_LINEAR : GLES30.GL_LINEAR;
 
     try {
-      GLES30.glBindTexture(target.glesEnum, textureId[0]);
-      GLError.maybeThrowGLException("Failed to bind texture", "glBindTexture");
+      bind();
       GLES30.glTexParameteri(target.glesEnum, GLES30.GL_TEXTURE_MIN_FILTER, minFilter);
       GLError.maybeThrowGLException("Failed to set texture parameter", "glTexParameteri");
       GLES30.glTexParameteri(target.glesEnum, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
@@ -142,8 +143,7 @@ public class Texture implements Closeable {
       bitmap.copyPixelsToBuffer(buffer);
       buffer.rewind();
 
-      GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, texture.getTextureId());
-      GLError.maybeThrowGLException("Failed to bind texture", "glBindTexture");
+      texture.bind();
       GLES30.glTexImage2D(
           GLES30.GL_TEXTURE_2D,
           /*level=*/ 0,
@@ -173,6 +173,7 @@ public class Texture implements Closeable {
     if (textureId[0] != 0) {
       GLES30.glDeleteTextures(1, textureId, 0);
       GLError.maybeLogGLError(Log.WARN, TAG, "Failed to free texture", "glDeleteTextures");
+      stateCache.onTextureDeleted(textureId[0]);
       textureId[0] = 0;
     }
   }
@@ -182,6 +183,14 @@ public class Texture implements Closeable {
     return textureId[0];
   }
 
+  /**
+   * Binds this texture to its target on the active texture unit, through the {@link
+   * GLStateCache}. Use this rather than {@code glBindTexture} before uploading texture data.
+   */
+  public void bind() {
+    stateCache.bindTexture(target.glesEnum, textureId[0]);
+  }
+
   /* package-private */
   Target getTarget() {
     return target;
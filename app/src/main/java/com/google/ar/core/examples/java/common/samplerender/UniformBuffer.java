@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.samplerender;
+
+import android.opengl.GLES30;
+import java.io.Closeable;
+import java.nio.FloatBuffer;
+
+/**
+ * A block of uniform data stored GPU-side, shared by every {@link Shader} whose uniform block is
+ * bound to the same binding point.
+ *
+ * <p>The contents must follow the block's declared layout; use {@code layout(std140)} in the shader
+ * so the offsets are known without querying the program.
+ *
+ * @see Shader#setUniformBlock(String, int)
+ * @see <a
+ *     href="https://www.khronos.org/registry/OpenGL-Refpages/es3.0/html/glBindBufferBase.xhtml">glBindBufferBase</a>
+ */
+public class UniformBuffer implements Closeable {
+  private final GpuBuffer buffer;
+
+  /**
+   * Construct a {@link UniformBuffer} populated with initial data.
+   *
+   * <p>The GPU buffer will be filled with the data in the <i>direct</i> buffer {@code entries},
+   * starting from the beginning of the buffer. {@code entries} may be null, in which case an empty
+   * buffer is constructed instead.
+   */
+  public UniformBuffer(SampleRender render, FloatBuffer entries) {
+    buffer = new GpuBuffer(GLES30.GL_UNIFORM_BUFFER, GpuBuffer.FLOAT_SIZE, entries);
+  }
+
+  /**
+   * Populate with new data.
+   *
+   * <p>The entire buffer is replaced by the contents of the <i>direct</i> buffer {@code entries}
+   * starting from the beginning of the buffer, not the current cursor position. The GPU buffer is
+   * reallocated automatically if necessary.
+   */
+  public void set(FloatBuffer entries) {
+    buffer.set(entries);
+  }
+
+  /** Binds this buffer to uniform block binding point {@code bindingPoint}. */
+  public void bindBase(int bindingPoint) {
+    GLES30.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, bindingPoint, buffer.getBufferId());
+    GLError.maybeThrowGLException("Failed to bind uniform buffer", "glBindBufferBase");
+  }
+
+  @Override
+  public void close() {
+    buffer.free();
+  }
+}
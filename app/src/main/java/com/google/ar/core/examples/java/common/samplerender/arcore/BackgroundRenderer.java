@@ -186,7 +186,7 @@ public class BackgroundRenderer {
 
   /** Update depth texture with Image contents. */
   public void updateCameraDepthTexture(Image image) {
-    GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, cameraDepthTexture.getTextureId());
+    cameraDepthTexture.bind();
     GLES30.glTexImage2D(
             GLES30.GL_TEXTURE_2D,
             0,
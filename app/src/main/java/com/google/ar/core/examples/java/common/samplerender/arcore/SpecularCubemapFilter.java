@@ -23,6 +23,7 @@ import android.opengl.GLES30;
 import android.util.Log;
 import com.google.ar.core.ImageFormat;
 import com.google.ar.core.examples.java.common.samplerender.GLError;
+import com.google.ar.core.examples.java.common.samplerender.GLStateCache;
 import com.google.ar.core.examples.java.common.samplerender.Mesh;
 import com.google.ar.core.examples.java.common.samplerender.SampleRender;
 import com.google.ar.core.examples.java.common.samplerender.Shader;
@@ -145,6 +146,7 @@ public class SpecularCubemapFilter implements Closeable {
     public float level;
   }
 
+  private final GLStateCache stateCache;
   private final int resolution;
   private final int numberOfImportanceSamples;
   private final int numberOfMipmapLevels;
@@ -173,6 +175,7 @@ public class SpecularCubemapFilter implements Closeable {
    */
   public SpecularCubemapFilter(SampleRender render, int resolution, int numberOfImportanceSamples)
       throws IOException {
+    this.stateCache = render.getStateCache();
     this.resolution = resolution;
     this.numberOfImportanceSamples = numberOfImportanceSamples;
     this.numberOfMipmapLevels = log2(resolution) + 1;
@@ -210,6 +213,8 @@ public class SpecularCubemapFilter implements Closeable {
         GLError.maybeLogGLError(
             Log.WARN, TAG, "Failed to free framebuffers", "glDeleteFramebuffers");
       }
+      // One of them may have been bound
+      stateCache.invalidate();
     }
     if (radianceCubemap != null) {
       radianceCubemap.close();
@@ -235,8 +240,7 @@ public class SpecularCubemapFilter implements Closeable {
    */
   public void update(Image[] images) {
     try {
-      GLES30.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, radianceCubemap.getTextureId());
-      GLError.maybeThrowGLException("Failed to bind radiance cubemap texture", "glBindTexture");
+      radianceCubemap.bind();
 
       if (images.length != NUMBER_OF_CUBE_FACES) {
         throw new IllegalArgumentException(
@@ -282,11 +286,9 @@ public class SpecularCubemapFilter implements Closeable {
       // cubemap.
       for (int level = 0; level < numberOfMipmapLevels; ++level) {
         int mipmapResolution = resolution >> level;
-        GLES30.glViewport(0, 0, mipmapResolution, mipmapResolution);
-        GLError.maybeThrowGLException("Failed to set viewport dimensions", "glViewport");
+        stateCache.viewport(0, 0, mipmapResolution, mipmapResolution);
         for (int chunkIndex = 0; chunkIndex < shaders.length; ++chunkIndex) {
-          GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebuffers[level][chunkIndex]);
-          GLError.maybeThrowGLException("Failed to bind cubemap framebuffer", "glBindFramebuffer");
+          stateCache.bindFramebuffer(framebuffers[level][chunkIndex]);
           shaders[chunkIndex].setInt("u_RoughnessLevel", level);
           shaders[chunkIndex].lowLevelUse();
           mesh.lowLevelDraw();
@@ -314,8 +316,7 @@ public class SpecularCubemapFilter implements Closeable {
 
   private void initializeLdCubemap() {
     // Initialize mipmap levels of LD cubemap.
-    GLES30.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, ldCubemap.getTextureId());
-    GLError.maybeThrowGLException("Could not bind LD cubemap texture", "glBindTexture");
+    ldCubemap.bind();
     for (int level = 0; level < numberOfMipmapLevels; ++level) {
       int mipmapResolution = resolution >> level;
       for (int face = 0; face < NUMBER_OF_CUBE_FACES; ++face) {
@@ -387,8 +388,7 @@ public class SpecularCubemapFilter implements Closeable {
       GLError.maybeThrowGLException("Could not create cubemap framebuffers", "glGenFramebuffers");
       for (Chunk chunk : chunks) {
         // Set the drawbuffers
-        GLES30.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, framebufferChunks[chunk.chunkIndex]);
-        GLError.maybeThrowGLException("Could not bind framebuffer", "glBindFramebuffer");
+        stateCache.bindFramebuffer(framebufferChunks[chunk.chunkIndex]);
         GLES30.glDrawBuffers(chunk.chunkSize, ATTACHMENT_ENUMS, 0);
         GLError.maybeThrowGLException("Could not bind draw buffers", "glDrawBuffers");
         // Since GLES doesn't support glFramebufferTexture, we will use each cubemap face as a
@@ -0,0 +1,139 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.TrackingState;
+import com.google.ar.core.examples.java.helloar.anchors.AnchorRegistry;
+
+/**
+ * CPU side of the egg draw: walks the registry slots {@link FrameContext} captured, culls by
+ * distance, frustum and projected size, smooths the translation and queues one instance per
+ * visible anchor into a {@link RenderQueue}.
+ *
+ * Billboarding and on-screen sizing happen in the vertex shader; this only decides what's drawn
+ * and with which per-instance data. Nothing here touches ARCore or GL, so tests drive it from plain
+ * arrays. GL thread only.
+ */
+final class EggCollector<T> {
+
+    static final int MODEL_STAR = 0, MODEL_PUZZLE = 1;
+
+    /** MODEL_STAR or MODEL_PUZZLE for an entry. */
+    interface ModelOf<T> {
+        int model(T item);
+    }
+
+    /** How one model is sized on screen; see the INSTANCED shaders. */
+    static final class Sizing {
+        /** Approx raw height of the OBJ in its own units (Y-extent). */
+        final float rawHeightUnits;
+        final float sizeMult;
+        /** Extra multiplier for saved anchors only. */
+        final float savedMult;
+        final float targetPx;
+        final boolean billboard;
+        /** Bounding radius about the model origin in model units; rawHeightUnits until the meshes load. */
+        float boundRadius;
+
+        Sizing(float rawHeightUnits, float sizeMult, float savedMult, float targetPx, boolean billboard) {
+            this.rawHeightUnits = rawHeightUnits;
+            this.sizeMult = sizeMult;
+            this.savedMult = savedMult;
+            this.targetPx = targetPx;
+            this.billboard = billboard;
+            this.boundRadius = rawHeightUnits;
+        }
+    }
+
+    private static final float SMOOTHING_ALPHA = 0.65f;
+    private static final float PAUSED_OPACITY = 0.85f;
+    // Anchors projecting smaller than this (radius, px) aren't drawn
+    private static final float MIN_PROJECTED_RADIUS_PX = 1.5f;
+    // Just-placed saved anchors may be this close (~8 cm) and still show
+    private static final float RECENT_MIN_DISTANCE_M = 0.08f;
+
+    private final ModelOf<T> modelOf;
+    final Sizing star, puzzle;
+    private final float baseScale;
+    private final float minDistanceM;
+    private final float maxSavedDistanceM;
+
+    private final float[] t = new float[3];
+    private final float[] q = new float[4];
+
+    /**
+     * @param minDistanceM anchors closer than this to the camera aren't drawn (too close to the glass)
+     * @param maxSavedDistanceM far cull for saved anchors
+     */
+    EggCollector(ModelOf<T> modelOf, Sizing star, Sizing puzzle, float baseScale,
+                 float minDistanceM, float maxSavedDistanceM) {
+        this.modelOf = modelOf;
+        this.star = star;
+        this.puzzle = puzzle;
+        this.baseScale = baseScale;
+        this.minDistanceM = minDistanceM;
+        this.maxSavedDistanceM = maxSavedDistanceM;
+    }
+
+    /**
+     * Queues one kind of entry (SAVED or PREVIEW). recentOnly: saved entries placed this session
+     * only. {@code frame} must be current for {@code anchors}. Returns how many were queued.
+     */
+    int collect(AnchorRegistry<T> anchors, FrameContext frame, RenderQueue queue, int kind,
+                boolean recentOnly) {
+        int queued = 0;
+        final boolean isSavedList = (kind == AnchorRegistry.SAVED);
+
+        for (int slot = 0; slot < frame.anchorCount(); slot++) {
+            if (!anchors.has(slot, kind)) continue;
+            boolean isRecent = anchors.has(slot, AnchorRegistry.RECENT);
+            if (isSavedList && recentOnly && !isRecent) continue;
+
+            TrackingState st = frame.anchorState(slot);
+            if (st == TrackingState.STOPPED) continue; // pruneDeadAnchors detaches it next frame
+
+            // ---- distance-based culling (near + far) ----
+            if (frame.hasCameraPosition) {
+                float d = frame.distanceToCamera(slot);
+                // Allow much closer render for the just-placed saved anchor
+                float minCull = (isSavedList && recentOnly && isRecent) ? RECENT_MIN_DISTANCE_M : minDistanceM;
+                if (d < minCull) continue;
+                if (isSavedList && d > maxSavedDistanceM) continue;
+            }
+
+            boolean isPaused   = (st == TrackingState.PAUSED);
+            boolean isTracking = (st == TrackingState.TRACKING);
+            if (!isPaused && !isTracking) continue;
+
+            final int model = modelOf.model(anchors.itemAt(slot));
+            final Sizing size = (model == MODEL_PUZZLE) ? puzzle : star;
+
+            // Lift previews slightly; saved items stay on the pose
+            float liftY = (isSavedList ? 0f : 0.02f) + (isPaused ? 0.03f : 0f);
+
+            float savedM = isSavedList ? size.savedMult : 1.0f;
+            float scalePerM = size.sizeMult * savedM * baseScale / Math.max(1e-6f, size.rawHeightUnits);
+
+            // ---- frustum + screen-size culling on the raw pose, before smoothing / batching ----
+            // Eggs are sized to a constant on-screen height, so the projected radius doesn't
+            // depend on distance; the world radius does.
+            float radiusPx = size.boundRadius * scalePerM * size.targetPx;
+            if (radiusPx < MIN_PROJECTED_RADIUS_PX) continue;
+            float depth = frame.anchorDepth(slot);
+            float zView = Math.max(0.05f, Math.min(50f, depth));
+            float radiusM = radiusPx * zView / frame.focalLengthPx + liftY;
+            if (!frame.sphereVisible(frame.anchorX(slot), frame.anchorY(slot),
+                    frame.anchorZ(slot), radiusM)) continue;
+
+            // --- pose smoothing (translation only) ---
+            frame.anchorTranslation(slot, t);
+            anchors.smooth(slot, t, SMOOTHING_ALPHA);
+            frame.anchorRotation(slot, q);
+
+            queue.add(model, /*translucent=*/isPaused, depth,
+                    t[0], t[1], t[2], scalePerM, q,
+                    size.billboard, liftY,
+                    isPaused ? PAUSED_OPACITY : 1f, size.targetPx);
+            queued++;
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,198 @@
+package com.google.ar.core.examples.java.helloar;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Camera;
+import com.google.ar.core.Earth;
+import com.google.ar.core.Frame;
+import com.google.ar.core.GeospatialPose;
+import com.google.ar.core.Pose;
+import com.google.ar.core.Session;
+import com.google.ar.core.TrackingState;
+import com.google.ar.core.examples.java.helloar.anchors.AnchorRegistry;
+import com.google.ar.core.examples.java.helloar.util.PoseMath;
+
+import java.util.Arrays;
+
+/**
+ * What the frame loop reads from ARCore, fetched once per onDrawFrame into storage that is reused
+ * frame to frame.
+ *
+ * Every camera / anchor / Earth pose read is a JNI call and usually an allocation, and culling,
+ * smoothing, billboarding, the HUD, tap picking and mount/evict all wanted the same values. They
+ * read them from here instead. Anchor entries are indexed by {@link AnchorRegistry} slot and are
+ * only valid while {@link #anchorsCurrent} holds; recapture after the registry changed. GL thread
+ * only.
+ *
+ * {@link #setCamera} and an {@link AnchorReader} over plain arrays stand in for ARCore in JVM tests;
+ * everything derived from them takes the same path as a real frame.
+ */
+final class FrameContext {
+
+    interface AnchorOf<T> {
+        @Nullable Anchor get(T item);
+    }
+
+    /** Writes an item's pose (tx ty tz qx qy qz qw) at {@code offset} unless it returns STOPPED. */
+    interface AnchorReader<T> {
+        TrackingState read(T item, float[] pose, int offset);
+    }
+
+    /** Reads each item's ARCore anchor; a null anchor reads as STOPPED. */
+    static <T> AnchorReader<T> arcore(AnchorOf<T> anchorOf) {
+        return (item, pose, offset) -> {
+            Anchor a = anchorOf.get(item);
+            if (a == null) return TrackingState.STOPPED;
+            TrackingState st = a.getTrackingState();
+            if (st != TrackingState.STOPPED) {
+                Pose p = a.getPose();
+                p.getTranslation(pose, offset);
+                p.getRotationQuaternion(pose, offset + 3);
+            }
+            return st;
+        };
+    }
+
+    private static final int POSE_STRIDE = 7; // tx ty tz qx qy qz qw
+
+    long timestampNs;
+    TrackingState cameraTracking = TrackingState.STOPPED;
+    @Nullable Pose cameraPose;
+    /** True once {@link #cameraT} holds a real position. */
+    boolean hasCameraPosition;
+    final float[] cameraT = new float[3];
+    final float[] viewMatrix = new float[16];
+    final float[] projectionMatrix = new float[16];
+    final float[] viewProjectionMatrix = new float[16];
+    /** Inward planes of the view-projection frustum; see {@link PoseMath#frustumPlanes}. */
+    final float[] frustumPlanes = new float[24];
+    int viewportWidth = 1;
+    int viewportHeight = 1;
+    /** Vertical focal length in px (0.5 * viewport height * projection[1][1]). */
+    float focalLengthPx = 1f;
+
+    @Nullable Earth earth;
+    TrackingState earthTracking = TrackingState.STOPPED;
+    /** Camera geospatial pose; null unless Earth is tracking. */
+    @Nullable GeospatialPose geoPose;
+
+    private int anchorCount = 0;
+    private float[] anchorPoses = new float[64 * POSE_STRIDE];
+    private TrackingState[] anchorStates = new TrackingState[64];
+    private int anchorsVersion = -1;
+
+    /**
+     * Camera pose, tracking state and viewport. View/projection are only refreshed while tracking,
+     * so they keep the last good values otherwise.
+     */
+    void begin(Frame frame, Camera camera, int viewportW, int viewportH, float near, float far) {
+        timestampNs = frame.getTimestamp();
+        viewportWidth = viewportW;
+        viewportHeight = viewportH;
+        cameraTracking = camera.getTrackingState();
+        try {
+            cameraPose = camera.getPose();
+            cameraPose.getTranslation(cameraT, 0);
+            hasCameraPosition = true;
+        } catch (Throwable ignore) {}
+        if (cameraTracking == TrackingState.TRACKING) {
+            camera.getProjectionMatrix(projectionMatrix, 0, near, far);
+            camera.getViewMatrix(viewMatrix, 0);
+            deriveFromMatrices();
+        }
+        focalLengthPx = Math.max(1e-6f, 0.5f * Math.max(1, viewportH) * projectionMatrix[5]);
+    }
+
+    /** {@link #begin} from plain arrays, for a tracking camera at {@code camT}. */
+    void setCamera(float[] camT, float[] view, float[] projection, int viewportW, int viewportH) {
+        viewportWidth = viewportW;
+        viewportHeight = viewportH;
+        cameraTracking = TrackingState.TRACKING;
+        System.arraycopy(camT, 0, cameraT, 0, 3);
+        hasCameraPosition = true;
+        System.arraycopy(view, 0, viewMatrix, 0, 16);
+        System.arraycopy(projection, 0, projectionMatrix, 0, 16);
+        deriveFromMatrices();
+        focalLengthPx = Math.max(1e-6f, 0.5f * Math.max(1, viewportH) * projectionMatrix[5]);
+    }
+
+    private void deriveFromMatrices() {
+        PoseMath.multiplyMM(projectionMatrix, viewMatrix, viewProjectionMatrix);
+        PoseMath.frustumPlanes(viewProjectionMatrix, frustumPlanes);
+    }
+
+    void captureEarth(Session session) {
+        earth = null;
+        earthTracking = TrackingState.STOPPED;
+        geoPose = null;
+        try { earth = session.getEarth(); } catch (Throwable ignore) {}
+        if (earth == null) return;
+        try { earthTracking = earth.getTrackingState(); } catch (Throwable ignore) {}
+        if (earthTracking == TrackingState.TRACKING) {
+            try { geoPose = earth.getCameraGeospatialPose(); } catch (Throwable ignore) {}
+        }
+    }
+
+    /** One read per live anchor (for ARCore: one getPose / getTrackingState). */
+    <T> void captureAnchors(AnchorRegistry<T> registry, AnchorReader<T> reader) {
+        int n = registry.size();
+        if (n > anchorStates.length) {
+            int cap = Math.max(n, anchorStates.length * 2);
+            anchorStates = Arrays.copyOf(anchorStates, cap);
+            anchorPoses = Arrays.copyOf(anchorPoses, cap * POSE_STRIDE);
+        }
+        for (int i = 0; i < n; i++) {
+            TrackingState st;
+            try {
+                st = reader.read(registry.itemAt(i), anchorPoses, i * POSE_STRIDE);
+            } catch (Throwable t) {
+                st = TrackingState.STOPPED;
+            }
+            anchorStates[i] = st;
+        }
+        for (int i = n; i < anchorCount; i++) anchorStates[i] = null;
+        anchorCount = n;
+        anchorsVersion = registry.version();
+    }
+
+    /** True while the captured slots still line up with {@code registry}. */
+    boolean anchorsCurrent(AnchorRegistry<?> registry) {
+        return anchorsVersion == registry.version() && anchorCount == registry.size();
+    }
+
+    int anchorCount() { return anchorCount; }
+
+    TrackingState anchorState(int slot) { return anchorStates[slot]; }
+
+    float anchorX(int slot) { return anchorPoses[slot * POSE_STRIDE]; }
+    float anchorY(int slot) { return anchorPoses[slot * POSE_STRIDE + 1]; }
+    float anchorZ(int slot) { return anchorPoses[slot * POSE_STRIDE + 2]; }
+
+    void anchorTranslation(int slot, float[] out) {
+        System.arraycopy(anchorPoses, slot * POSE_STRIDE, out, 0, 3);
+    }
+
+    /** {qx, qy, qz, qw} into {@code out}. */
+    void anchorRotation(int slot, float[] out) {
+        System.arraycopy(anchorPoses, slot * POSE_STRIDE + 3, out, 0, 4);
+    }
+
+    /** View-space depth of a slot's anchor (positive in front of the camera). */
+    float anchorDepth(int slot) {
+        int o = slot * POSE_STRIDE;
+        return PoseMath.viewDepth(viewMatrix, anchorPoses[o], anchorPoses[o + 1], anchorPoses[o + 2]);
+    }
+
+    boolean sphereVisible(float x, float y, float z, float radius) {
+        return PoseMath.sphereInFrustum(frustumPlanes, x, y, z, radius);
+    }
+
+    float distanceToCamera(int slot) {
+        int o = slot * POSE_STRIDE;
+        float dx = anchorPoses[o] - cameraT[0];
+        float dy = anchorPoses[o + 1] - cameraT[1];
+        float dz = anchorPoses[o + 2] - cameraT[2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -50,7 +50,9 @@ import com.google.ar.core.examples.java.common.helpers.InstantPlacementSettings;
 import com.google.ar.core.examples.java.common.helpers.SnackbarHelper;
 import com.google.ar.core.examples.java.common.helpers.TapHelper;
 import com.google.ar.core.examples.java.common.helpers.TrackingStateHelper;
+import com.google.ar.core.examples.java.common.samplerender.CameraUniforms;
 import com.google.ar.core.examples.java.common.samplerender.Framebuffer;
+import com.google.ar.core.examples.java.common.samplerender.GLError;
 import com.google.ar.core.examples.java.common.samplerender.Mesh;
 import com.google.ar.core.examples.java.common.samplerender.SampleRender;
 import com.google.ar.core.examples.java.common.samplerender.Shader;
@@ -59,10 +61,26 @@ import com.google.ar.core.examples.java.common.samplerender.VertexBuffer;
 import com.google.ar.core.examples.java.common.samplerender.arcore.BackgroundRenderer;
 import com.google.ar.core.examples.java.common.samplerender.arcore.PlaneRenderer;
 import com.google.ar.core.examples.java.common.samplerender.arcore.SpecularCubemapFilter;
+import com.google.ar.core.examples.java.helloar.anchors.AnchorBudget;
+import com.google.ar.core.examples.java.helloar.anchors.AnchorRegistry;
+import com.google.ar.core.examples.java.helloar.anchors.CloudAnchorTasks;
+import com.google.ar.core.examples.java.helloar.anchors.HostQueue;
+import com.google.ar.core.examples.java.helloar.anchors.ResolveScheduler;
+import com.google.ar.core.examples.java.helloar.anchors.WarmSnapshot;
+import com.google.ar.core.examples.java.helloar.data.CellPrefetcher;
+import com.google.ar.core.examples.java.helloar.data.CellSubscriptionManager;
+import com.google.ar.core.examples.java.helloar.data.EggCache;
 import com.google.ar.core.examples.java.helloar.data.EggEntry;
 import com.google.ar.core.examples.java.helloar.data.EggRepository;
+import com.google.ar.core.examples.java.helloar.data.EggSpatialIndex;
+import com.google.ar.core.examples.java.helloar.data.EggSummary;
+import com.google.ar.core.examples.java.helloar.data.TerrainCache;
 import com.google.ar.core.examples.java.helloar.ui.CenterStatusDialogFragment;
 import com.google.ar.core.examples.java.helloar.ui.EggCardSheet;
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+import com.google.ar.core.examples.java.helloar.util.PoseMath;
+import com.google.ar.core.examples.java.helloar.util.SingleFlight;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
 import com.google.ar.core.exceptions.UnavailableApkTooOldException;
 import com.google.ar.core.exceptions.UnavailableArcoreNotInstalledException;
@@ -74,27 +92,24 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.SetOptions;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 import android.view.LayoutInflater;
 import android.widget.ImageView;
 
@@ -138,13 +153,47 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
     private static final int CLOUD_TTL_DAYS = 365;
     private static final String EGGS = "eggs";
-    private static final double CELL_DEG = 0.01;
     private static final int FIRESTORE_FETCH_LIMIT = 120;
-    private boolean previousEggsLoadedOnce = false;
-    private long lastPrevLoadAtMs = 0L;
-    private static final long PREV_RELOAD_MS = 60_000L;
-    private final Set<String> mountedPrevDocIds =
-            java.util.Collections.synchronizedSet(new HashSet<>());
+    private static final int ARRAY_CONTAINS_ANY_MAX = 10;
+    // Owns "which docIds are queued / resolving / mounted"; releases resolves nearest-first.
+    private static final int MAX_GEO_RESOLVES = 4;      // earth.createAnchor is synchronous and cheap
+    private static final int MAX_TERRAIN_RESOLVES = 2;
+    private static final int MAX_CLOUD_RESOLVES = 2;
+    private static final double RESOLVE_CANCEL_MARGIN_M = 20.0;
+    private static final long RESOLVE_METRICS_LOG_MS = 10_000L;
+    private final ResolveScheduler resolveScheduler = new ResolveScheduler(
+            MAX_GEO_RESOLVES, MAX_TERRAIN_RESOLVES, MAX_CLOUD_RESOLVES,
+            MOUNT_RADIUS_M + RESOLVE_CANCEL_MARGIN_M);
+    private static final long CLOUD_RESOLVE_TIMEOUT_MS = 30_000L;
+    private long lastResolveMetricsLogMs = 0L;
+    // Saved anchors are detached past EVICT_RADIUS_M (> MOUNT_RADIUS_M, so no thrash at the edge)
+    // and capped at MAX_LIVE_ANCHORS nearest, so ARCore's per-frame work doesn't grow with the walk.
+    private static final double EVICT_RADIUS_M = MOUNT_RADIUS_M + 40.0;
+    private static final int MAX_LIVE_ANCHORS = 40;
+    private static final int EVICT_REMEMBER_MAX = 256;
+    private static final long EVICT_CHECK_MS = 1_000L;
+    private final AnchorBudget anchorBudget =
+            new AnchorBudget(EVICT_RADIUS_M, MAX_LIVE_ANCHORS, EVICT_REMEMBER_MAX);
+    private final String[] evictBuf = new String[16];
+    private long lastEvictCheckMs = 0L;
+    // Shared on-device index of egg metadata; every nearby/mount path reads from it.
+    private static final double INDEX_CELL_M = 100.0;
+    private final EggSpatialIndex eggIndex = new EggSpatialIndex(INDEX_CELL_M);
+    // Realtime per-cell listeners feeding eggIndex (replaces the old 60 s re-query).
+    private static final double SUBS_DETACH_MARGIN_M = 40.0;
+    private static final double SUBS_UPDATE_STEP_M = 10.0;
+    private CellSubscriptionManager cellSubscriptions;
+    private EggCache eggCache;
+    private CellPrefetcher cellPrefetcher;
+    // Resolved terrain altitudes, so re-entering an area mounts with createAnchor instead of terrain resolves.
+    private TerrainCache terrainCache;
+    private static final int TERRAIN_MEM_MAX = 2048;
+    // Set by subscription deltas; the next frame re-sweeps the index for eggs to mount.
+    private volatile boolean mountSweepPending = true;
+    // Mounted set captured in onPause; re-created from the stored poses once Earth tracks again.
+    private static final long WARM_MAX_AGE_MS = 15 * 60_000L;
+    private WarmSnapshot warmSnapshot;
+    @Nullable private volatile List<WarmSnapshot.Entry> pendingWarm;
 
     private static final boolean ENABLE_QUIZ = false;
 
@@ -176,9 +225,16 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     private Texture dfgTexture;
     private SpecularCubemapFilter cubemapFilter;
 
+    // Per-frame ARCore reads (camera, matrices, Earth, anchor poses); see FrameContext
+    private final FrameContext frameCtx = new FrameContext();
+    private static final FrameContext.AnchorReader<WrappedAnchor> ANCHOR_OF =
+            FrameContext.arcore(WrappedAnchor::getAnchor);
+    private final float[] sAnchorQ = new float[4];
+    private final float[] sPickScreen = new float[3];
+
     private final float[] modelMatrix               = new float[16];
-    private final float[] viewMatrix                = new float[16];
-    private final float[] projectionMatrix          = new float[16];
+    private final float[] viewMatrix                = frameCtx.viewMatrix;
+    private final float[] projectionMatrix          = frameCtx.projectionMatrix;
     private final float[] modelViewMatrix           = new float[16];
     private final float[] modelViewProjectionMatrix = new float[16];
 
@@ -188,8 +244,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     private TextView poseInfoCard;
     private TextView tvLatLng, tvLatLngAcc, tvAlt, tvAltAcc, tvHeading, tvHeadingAcc, tvAnchorState, tvEarthState;
 
-    private final List<WrappedAnchor> wrappedAnchors = new CopyOnWriteArrayList<>();
-    private final List<WrappedAnchor> prevAnchors    = new CopyOnWriteArrayList<>();
+    // Saved eggs (SAVED, keyed by docId) and live previews (PREVIEW) in one place. GL thread writes.
+    private final AnchorRegistry<WrappedAnchor> anchors = new AnchorRegistry<>(64);
     @Nullable private Anchor currentPlacedAnchor = null;
 
     @Nullable private GeospatialPose lastGoodGeoPose = null;
@@ -200,14 +256,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     private SharedPreferences prefs;
 
     private Anchor localAnchorForHosting;   // set for BOTH indoor and outdoor now
-    private Anchor hostedCloudAnchor;
-    private String hostedCloudId;
-    private String pendingEggDocId;
-    private enum HostState { IDLE, HOSTING, SUCCESS, ERROR }
-    private HostState hostState = HostState.IDLE;
-
-    private static final float SMOOTHING_ALPHA = 0.65f;
-    private final Map<Anchor, float[]> lastStableT = new HashMap<>();
+    // One job per saved star; a new save never clobbers one still hosting.
+    private HostQueue hostQueue;
+    private static final long CLOUD_HOST_TIMEOUT_MS = 90_000L;
+    private static final int MAX_PARALLEL_HOSTS = 2;
 
     private Pose   lastHitPose;
     private String lastHitSurfaceType = "UNKNOWN";
@@ -290,6 +342,20 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     // Per-model assets
     private Mesh[]  starMeshes,  puzzleMeshes;
     private Shader[] starShaders, puzzleShaders;
+    // Instanced eggs: queued each frame, sorted into opaque / translucent runs and drawn with one
+    // call per run and sub-mesh (see RenderQueue). Paused anchors go in the translucent pass.
+    @Nullable private RenderQueue eggQueue;
+    // Culls, smooths and queues the eggs into eggQueue each frame; bound radii are set once the meshes load
+    private final EggCollector<WrappedAnchor> eggCollector = new EggCollector<>(
+            w -> (w.getModelType() == ModelType.PUZZLE) ? EggCollector.MODEL_PUZZLE : EggCollector.MODEL_STAR,
+            new EggCollector.Sizing(STAR_RAW_HEIGHT_UNITS, STAR_SIZE_MULT, SAVED_STAR_MULT, STAR_TARGET_PX,
+                    /*billboard=*/ALWAYS_FACE_CAMERA),
+            new EggCollector.Sizing(PUZZLE_RAW_HEIGHT_UNITS, PUZZLE_SIZE_MULT, SAVED_PUZZLE_MULT, PUZZLE_TARGET_PX,
+                    /*billboard=*/false),
+            MODEL_BASE_SCALE, MIN_RENDER_DISTANCE_M, (float) MOUNT_RADIUS_M);
+    // View / projection / viewport / camera position for every shader, uploaded once per frame
+    @Nullable private CameraUniforms cameraUniforms;
+    private static final int INITIAL_BATCH_CAPACITY = 64;
     private static final boolean SHOW_ONLY_JUST_PLACED = true;
     private boolean inPuzzleFlow = false;
     private ModelType currentPreviewModel = ModelType.STAR;
@@ -305,9 +371,6 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     private volatile boolean isSavingFlow = false;
     // Keep status dialog visible until user dismisses
     private volatile boolean statusModalPinned = false;
-    // Add this field near your other tracking fields
-    private final Set<String> currentSessionRecentDocIds =
-            java.util.Collections.synchronizedSet(new HashSet<>());
 
     private volatile boolean saveAckShown = false;
     private volatile long suppressProgressUntilMs = 0L; // prevent re-open for a short window
@@ -334,11 +397,21 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     // Nearby list (independent of rendering)
     private static final double NEARBY_RADIUS_M = 500.0;   // radius for list
     private static final long   NEARBY_SCAN_MS  = 10_000L; // refresh button every 10s
+    // Nearby queries: callers within NEARBY_INVALIDATE_M of the same origin share one in-flight query,
+    // results live briefly. Moving further starts a new origin (and a new key).
+    private static final long   NEARBY_TTL_MS = 15_000L;
+    private static final double NEARBY_INVALIDATE_M = 25.0;
+    private final SingleFlight<String, java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item>>
+            nearbyQueries = new SingleFlight<>(NEARBY_TTL_MS);
+    private double nearbyOriginLat = Double.NaN, nearbyOriginLng = Double.NaN;
+    private int nearbyOriginSeq = 0; // bumped with each new origin (guarded by nearbyQueries)
     private long lastNearbyScanAt = 0L;
     private ConnectivityManager connectivityManager;
     private ConnectivityManager.NetworkCallback networkCallback;
     private volatile boolean internetOk = true;                // last-known internet status
     private long lastOfflineHintAt = 0L;
+    private long lastHudUpdateAt = 0L;
+    private static final long HUD_UPDATE_INTERVAL_MS = 250L;
     private static final long OFFLINE_HINT_COOLDOWN_MS = 8000L;
     // Turn model's +X to +Z so the face points at camera. Flip sign if needed.
     private static final float[] PUZZLE_FACE_FIX = quatAxisAngle(0, 1, 0, -90f);
@@ -346,10 +419,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 // If it still looks sideways, try 90f or 180f here.
     private static final float PUZZLE_FACE_YAW_DEG = -90f;
     private static float yawFromQuaternion(float[] q) {
-        // yaw (around +Y), same convention as yawToQuaternion()
-        float siny_cosp = 2f * (q[3]*q[1] + q[0]*q[2]);
-        float cosy_cosp = 1f - 2f * (q[1]*q[1] + q[2]*q[2]);
-        return (float) Math.atan2(siny_cosp, cosy_cosp); // radians
+        return PoseMath.yawOf(q); // radians, same convention as yawToQuaternion()
     }
 
     // If you prefer a single global orientation (not facing camera), use this instead:
@@ -377,15 +447,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     @Nullable
     private WrappedAnchor findNearbyAnchor(Pose p, float meters) {
         float[] t = p.getTranslation();
-        // Check already-mounted stars (prev) and any live preview(s) (wrapped)
-        for (WrappedAnchor w : prevAnchors) {
-            Anchor a = (w != null) ? w.getAnchor() : null;
-            if (a == null) continue;
-            Pose ap = a.getPose();
-            float dx = ap.tx() - t[0], dy = ap.ty() - t[1], dz = ap.tz() - t[2];
-            if (Math.sqrt(dx*dx + dy*dy + dz*dz) <= meters) return w;
-        }
-        for (WrappedAnchor w : wrappedAnchors) {
+        // Check already-mounted stars and any live preview(s)
+        for (WrappedAnchor w : anchors.snapshot(AnchorRegistry.SAVED | AnchorRegistry.PREVIEW)) {
             Anchor a = (w != null) ? w.getAnchor() : null;
             if (a == null) continue;
             Pose ap = a.getPose();
@@ -399,14 +462,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     @Nullable
     private WrappedAnchor findNearbyAnchor2D(Pose p, float meters) {
         float[] t = p.getTranslation();
-        for (WrappedAnchor w : prevAnchors) {
-            Anchor a = (w != null) ? w.getAnchor() : null;
-            if (a == null) continue;
-            Pose ap = a.getPose();
-            float dx = ap.tx() - t[0], dz = ap.tz() - t[2];
-            if (Math.hypot(dx, dz) <= meters) return w;
-        }
-        for (WrappedAnchor w : wrappedAnchors) {
+        for (WrappedAnchor w : anchors.snapshot(AnchorRegistry.SAVED | AnchorRegistry.PREVIEW)) {
             Anchor a = (w != null) ? w.getAnchor() : null;
             if (a == null) continue;
             Pose ap = a.getPose();
@@ -426,8 +482,9 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             double hitAlt,   // altitude of our placed anchor (WGS84)
             String eggId
     ) {
+        // Third arg is altitude ABOVE terrain: 0 puts the probe anchor on the ground itself.
         earth.resolveAnchorOnTerrainAsync(
-                lat, lng, (float) hitAlt, 0, 0, 0, 1,
+                lat, lng, 0f, 0, 0, 0, 1,
                 (terrainAnchor, state) -> {
                     try {
                         if (state == Anchor.TerrainAnchorState.SUCCESS && terrainAnchor != null) {
@@ -435,6 +492,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                             if (tp == null) { Log.w(TAG, "Terrain pose null"); return; }
 
                             double terrainAlt = tp.getAltitude();   // also WGS84
+                            terrainCache.put(TerrainCache.keyOf(lat, lng), terrainAlt);
                             double hat = hitAlt - terrainAlt;
 
                             // Discard obviously wrong values (indoor/DEPTH or poor geo)
@@ -447,6 +505,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
                             Map<String, Object> m = new HashMap<>();
                             m.put("heightAboveTerrain", hat);
+                            m.put("updatedAt", FieldValue.serverTimestamp());
 
                             FirebaseFirestore.getInstance()
                                     .collection(EGGS).document(eggId)
@@ -469,6 +528,17 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        eggCache = new EggCache(this);
+        cellSubscriptions = new CellSubscriptionManager(
+                FirebaseFirestore.getInstance(), EGGS, eggIndex, eggCache,
+                new CellSubscriptionManager.Listener() {
+                    @Override public void onEggUpserted(EggSummary egg) { onRealtimeEggUpserted(egg); }
+                    @Override public void onEggRemoved(String docId) { unmountPrevEgg(docId); }
+                },
+                MOUNT_RADIUS_M, SUBS_DETACH_MARGIN_M, SUBS_UPDATE_STEP_M);
+        cellPrefetcher = new CellPrefetcher(cellSubscriptions, this::warmThumbnail, MOUNT_RADIUS_M);
+        terrainCache = new TerrainCache(eggCache, TERRAIN_MEM_MAX);
+
         // 1) Always ensure auth for real features (release + debug)
         if (FirebaseAuth.getInstance().getCurrentUser() == null) {
             FirebaseAuth.getInstance().signInAnonymously()
@@ -492,6 +562,17 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
         setContentView(R.layout.activity_main);
         prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+        hostQueue = new HostQueue(prefs, FirebaseFirestore.getInstance(), EGGS, () -> session,
+                new HostQueue.Listener() {
+                    @Override public void onHosted(String docId, String cloudId) { onStarHosted(docId); }
+                    @Override public void onFailed(String docId, CloudAnchorTasks.Outcome outcome,
+                                                   @Nullable Anchor.CloudAnchorState st) {
+                        onStarHostFailed(docId, outcome, st);
+                    }
+                },
+                CLOUD_TTL_DAYS, CLOUD_HOST_TIMEOUT_MS, MAX_PARALLEL_HOSTS);
+        hostQueue.restore(); // settle jobs a previous instance left in HOSTING
+        warmSnapshot = new WarmSnapshot(prefs);
 
         tvEarthState  = findViewById(R.id.tvEarthState);
         tvLatLng      = findViewById(R.id.tvLatLng);
@@ -566,6 +647,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             return tapHelper.onTouch(v, e);
         });
 
+        // Per-call glGetError only while debugging; release builds check once per render pass
+        GLError.setCheckMode(BuildConfig.DEBUG ? GLError.CheckMode.PER_CALL : GLError.CheckMode.PER_PASS);
         render = new SampleRender(surfaceView, this, getAssets());
         installRequested = false;
 
@@ -605,22 +688,12 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
     /** Helper: cleanly remove any existing preview before creating a new one. */
     private void clearExistingPreview() {
-        for (WrappedAnchor w : new ArrayList<>(wrappedAnchors)) {
+        for (WrappedAnchor w : anchors.removeAll(AnchorRegistry.PREVIEW)) {
             try {
                 Anchor old = w.getAnchor();
-                if (old != null) {
-                    boolean promoted = false;
-                    for (WrappedAnchor p : prevAnchors) {
-                        if (p.getAnchor() == old) { promoted = true; break; }
-                    }
-                    if (!promoted) {
-                        old.detach();
-                        lastStableT.remove(old);
-                    }
-                }
+                if (old != null && !isSavedAnchor(old)) old.detach(); // a promoted preview stays attached
             } catch (Throwable ignore) {}
         }
-        wrappedAnchors.clear();
         currentPlacedAnchor = null;
     }
     private void clearExistingPreviewAsync() {
@@ -628,6 +701,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     }
 
     @Override protected void onDestroy() {
+        if (cellSubscriptions != null) cellSubscriptions.detachAll();
+        if (eggCache != null) eggCache.shutdown();
+        if (hostQueue != null) hostQueue.shutdown();
+        resolveScheduler.clear(); // aborts cloud resolves still in flight
         if (session != null) {
             session.close();
             session = null;
@@ -708,28 +785,12 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             }
         }
 
-        // --- Force a (re)load window for previous anchors on resume ---
-        previousEggsLoadedOnce = false;   // allow loading again
-        lastPrevLoadAtMs = 0L;            // don't wait for PREV_RELOAD_MS
+        // Warm restore: what was mounted at onPause comes back on the first Earth-tracking frame;
+        // the index re-sweep (listeners re-attach on first update) reconciles behind it.
+        pendingWarm = warmSnapshot.take(WARM_MAX_AGE_MS);
+        mountSweepPending = true;
 
-        // Try to load immediately if AR Earth is already tracking; otherwise onDrawFrame() will do it.
-        try {
-            Earth earth = (session != null) ? session.getEarth() : null;
-            if (earth != null && earth.getTrackingState() == TrackingState.TRACKING) {
-                GeospatialPose camGp = earth.getCameraGeospatialPose();
-                if (camGp != null) {
-                    if (!SHOW_ONLY_JUST_PLACED) {
-                        maybeLoadPreviousEggs(earth, camGp);
-                    } else {
-                        purgePrevAnchors();
-                    }
-                }
-            }
-        } catch (Throwable t) {
-            Log.w(TAG, "Immediate previous-eggs load on resume skipped", t);
-        }
-
-        boolean hasActivePlacement = (currentPlacedAnchor != null) || !wrappedAnchors.isEmpty();
+        boolean hasActivePlacement = (currentPlacedAnchor != null) || anchors.count(AnchorRegistry.PREVIEW) > 0;
         if (!inMetadataFlow && !hasActivePlacement && !initialScanDialogShown) {
             placementModeActive = false;
             readyPromptShown = false;
@@ -747,6 +808,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         super.onPause();
         stopNetMonitor();
         sessionPaused = true;
+        // No point paying for listener traffic while backgrounded
+        if (cellSubscriptions != null) cellSubscriptions.detachAll();
+        if (cellPrefetcher != null) cellPrefetcher.reset();
+        captureWarmSnapshot();
         if (session != null) session.pause();
         surfaceView.onPause();
         displayRotationHelper.onPause();
@@ -795,6 +860,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             // Plane grid & virtual scene target
             planeRenderer = new PlaneRenderer(render);
             virtualSceneFramebuffer = new Framebuffer(render, 1, 1);
+            cameraUniforms = new CameraUniforms(render);
 
             // IBL / PBR helpers
             cubemapFilter = new SpecularCubemapFilter(
@@ -816,7 +882,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 buf.put(bytes, 0, sizeBytes);
                 buf.position(0);
 
-                GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, dfgTexture.getTextureId());
+                dfgTexture.bind();
                 GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RG16F, 64, 64, 0,
                         GLES30.GL_RG, GLES30.GL_HALF_FLOAT, buf);
             } catch (IOException io) {
@@ -827,6 +893,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             try {
                 pointCloudShader = Shader.createFromAssets(
                                 render, "shaders/point_cloud.vert", "shaders/point_cloud.frag", null)
+                        .setUniformBlock(CameraUniforms.BLOCK_NAME, CameraUniforms.BINDING)
                         .setVec4("u_Color", new float[]{31f/255f,188f/255f,210f/255f,1f})
                         .setFloat("u_PointSize", 5f);
                 pointCloudVertexBuffer = new VertexBuffer(render, 4, null);
@@ -857,9 +924,12 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 Map<String, String> defs = new HashMap<>();
                 defs.put("NUMBER_OF_MIPMAP_LEVELS",
                         Integer.toString(cubemapFilter.getNumberOfMipmapLevels()));
+                defs.put("INSTANCED", "1");
 
                 Shader starPbr = Shader.createFromAssets(
                                 render, "shaders/environmental_hdr.vert", "shaders/environmental_hdr.frag", defs)
+                        .setUniformBlock(CameraUniforms.BLOCK_NAME, CameraUniforms.BINDING)
+                        .setVec4("u_UprightFix", MODEL_UPRIGHT_FIX)
                         .setTexture("u_AlbedoTexture", virtualObjectAlbedoTexture)
                         .setTexture("u_Cubemap", cubemapFilter.getFilteredCubemapTexture())
                         .setTexture("u_DfgTexture", dfgTexture)
@@ -883,6 +953,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 }
                 Shader puzzlePbr = Shader.createFromAssets(
                                 render, "shaders/environmental_hdr.vert", "shaders/environmental_hdr.frag", defs)
+                        .setUniformBlock(CameraUniforms.BLOCK_NAME, CameraUniforms.BINDING)
+                        .setVec4("u_UprightFix", MODEL_UPRIGHT_FIX)
                         .setTexture("u_AlbedoTexture", magnifierTex)
                         .setTexture("u_Cubemap", cubemapFilter.getFilteredCubemapTexture())
                         .setTexture("u_DfgTexture", dfgTexture)
@@ -921,10 +993,13 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                     Mesh starMesh = (virtualObjectMesh != null) ? virtualObjectMesh
                             : Mesh.createFromAsset(render, "models/star.obj");
 
+                    Map<String, String> unlitDefs = new HashMap<>();
+                    unlitDefs.put("INSTANCED", "1");
                     Shader starUnlit = Shader.createFromAssets(
-                                    render, "shaders/ar_unlit_object.vert", "shaders/ar_unlit_object.frag", null)
+                                    render, "shaders/ar_unlit_object.vert", "shaders/ar_unlit_object.frag", unlitDefs)
+                            .setUniformBlock(CameraUniforms.BLOCK_NAME, CameraUniforms.BINDING)
+                            .setVec4("u_UprightFix", MODEL_UPRIGHT_FIX)
                             .setTexture("u_Texture", starTex)
-                            .setFloat("u_Opacity", 1.0f)
                             .setDepthTest(true)
                             .setDepthWrite(true);
 
@@ -941,9 +1016,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                     }
 
                     Shader puzzleUnlit = Shader.createFromAssets(
-                                    render, "shaders/ar_unlit_object.vert", "shaders/ar_unlit_object.frag", null)
+                                    render, "shaders/ar_unlit_object.vert", "shaders/ar_unlit_object.frag", unlitDefs)
+                            .setUniformBlock(CameraUniforms.BLOCK_NAME, CameraUniforms.BINDING)
+                            .setVec4("u_UprightFix", MODEL_UPRIGHT_FIX)
                             .setTexture("u_Texture", magnifierTex)
-                            .setFloat("u_Opacity", 1.0f)
                             .setDepthTest(true)
                             .setDepthWrite(true);
 
@@ -963,6 +1039,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 }
             }
 
+            eggCollector.star.boundRadius   = boundingRadiusOf(starMeshes, STAR_RAW_HEIGHT_UNITS);
+            eggCollector.puzzle.boundRadius = boundingRadiusOf(puzzleMeshes, PUZZLE_RAW_HEIGHT_UNITS);
+            eggQueue = new RenderQueue(render, INITIAL_BATCH_CAPACITY);
+
             // GL state hygiene
             try {
                 GLES30.glEnable(GLES30.GL_DEPTH_TEST);
@@ -1096,14 +1176,15 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             e.alt      = alt;
         }
 
-        Trackable firstTrackable = (!wrappedAnchors.isEmpty()) ? wrappedAnchors.get(0).getTrackable() : null;
+        WrappedAnchor firstPreview = firstPreview();
+        Trackable firstTrackable = (firstPreview != null) ? firstPreview.getTrackable() : null;
         e.placementType = (firstTrackable != null) ? firstTrackable.getClass().getSimpleName() : "Local";
         e.distanceFromCamera = (currentPlacedAnchor != null)
                 ? distance(currentPlacedAnchor.getPose(), cameraForSave.getPose())
                 : 0f;
 
         e.anchorType = inPuzzleFlow ? "GEO_PUZZLE" : "CLOUD";
-        String cellKeyStr = (haveLatLngAny) ? cellKey(lat, lng) : null;
+        List<String> cellsList = (haveLatLngAny) ? GeoHash.cellKeys(lat, lng) : null;
 
         final Earth earthNowF           = earthNow;
         final GeospatialPose anchorGpF  = anchorGp;
@@ -1112,11 +1193,21 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         final Double hAccF = hAcc, vAccF = vAcc;
         final boolean haveLatLngAnyF = haveLatLngAny;
         final boolean goodAccF = goodAcc;
-        final String cellKeyStrF = cellKeyStr;
+        final List<String> cellsF = cellsList;
 
         // ---- Stage 1: Create draft in Firestore ----
         eggRepo.createDraft(e).addOnSuccessListener(docRef -> {
-            currentSessionRecentDocIds.add(docRef.getId());
+            runOnGl(() -> anchors.markRecent(docRef.getId()));
+            if (haveLatLngAnyF) {
+                eggIndex.put(new EggSummary(
+                        docRef.getId(), true, latF, lngF, altF,
+                        (e.heading != null) ? e.heading : 0.0,
+                        inPuzzleFlow ? "puzzle" : "star",
+                        e.anchorType, /*cloudId*/ null,
+                        e.title.trim().isEmpty() ? null : e.title.trim(), /*thumbUrl*/ null,
+                        (lastHitPose != null) ? lastHitPose.getRotationQuaternion() : null,
+                        /*heightAboveTerrain*/ null, System.currentTimeMillis()));
+            }
 
             // Patch orientation + extras + provisional geo + status
             try {
@@ -1132,14 +1223,19 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 orient.put("surface", lastHitSurfaceType);
                 orient.put("placementEnv", envMode.name());
                 orient.put("model", inPuzzleFlow ? "puzzle" : "star");
-                if (cellKeyStrF != null) orient.put("cellKey", cellKeyStrF);
 
                 Map<String, Object> patch = new HashMap<>(orient);
-                patch.put("extras", new HashMap<>(orient));
                 patch.put("anchorType", inPuzzleFlow ? "GEO_PUZZLE" : "CLOUD");
 
+                // The raw orientation snapshot is detail-only; keep it off the doc spatial queries read.
+                Map<String, Object> extras = new HashMap<>();
+                extras.put("extras", new HashMap<>(orient));
+                EggRepository.contentRef(docRef).set(extras, SetOptions.merge());
+
                 if (haveLatLngAnyF) {
                     patch.put("geo", new com.google.firebase.firestore.GeoPoint(latF, lngF));
+                    patch.put("geohash", GeoHash.encode(latF, lngF, GeoHash.FULL_PRECISION));
+                    patch.put("cells", cellsF);
                     if (altF  != null) patch.put("alt", altF);
                     if (hAccF != null) patch.put("horizAcc", hAccF);
                     if (vAccF != null) patch.put("vertAcc", vAccF);
@@ -1147,6 +1243,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 } else {
                     patch.put("cloudStatus", "NO_GEOPOSE");
                 }
+                patch.put("updatedAt", FieldValue.serverTimestamp());
 
                 FirebaseFirestore.getInstance().collection(EGGS)
                         .document(docRef.getId())
@@ -1223,15 +1320,17 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                             FirebaseFirestore.getInstance().collection(EGGS).document(docRef.getId())
                                     .update("cloudStatus", "HOSTING",
                                             "cloudTtlDays", CLOUD_TTL_DAYS,
-                                            "anchorType", "CLOUD");
-
-                            uiShowProgress("Saving (3/3)", "Hosting anchor in the cloud…", "This can take a few seconds");
+                                            "anchorType", "CLOUD",
+                                            "updatedAt", FieldValue.serverTimestamp());
 
-                            pendingEggDocId = docRef.getId();
                             lastPlacedDocId = docRef.getId();
 
-                            // Keep rendering the LOCAL anchor; cloud is for sharing
-                            startHostingCloudAnchor(localAnchorForHosting, pendingEggDocId);
+                            // Keep rendering the LOCAL anchor; cloud is for sharing. Hosting runs in
+                            // the background so the user can place the next star right away.
+                            startHostingCloudAnchor(localAnchorForHosting, docRef.getId());
+                            uiShowMessage("All set!",
+                                    "Star saved ✓\nCloud hosting continues in the background.\nTap OK to place again.",
+                                    true);
 
                         } else {
                             // PUZZLE: finalize immediately
@@ -1255,7 +1354,6 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                             placementModeActive = true; // back to placement
                             readyPromptShown = true;
                             localAnchorForHosting = null;
-                            hostState = HostState.IDLE;
 
                             // Optional: save height-above-terrain
                             try {
@@ -1318,17 +1416,24 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         } catch (Throwable t) {
             return;
         }
+        // ARCore may touch GL bindings inside update(); don't trust the cached state across it
+        render.getStateCache().invalidate();
 
         final Camera camera = frame.getCamera();
 
-        // Cache camera pose for billboarding & culling
-        Pose camPoseForCull = null;
-        try { camPoseForCull = camera.getPose(); } catch (Throwable ignore) {}
-        if (camPoseForCull != null) lastCameraPose = camPoseForCull;
+        // One read of camera pose + matrices (before tap handling so picking uses the current PV),
+        // Earth and every live anchor; everything below reads frameCtx.
+        try {
+            frameCtx.begin(frame, camera, viewportWidth, viewportHeight, Z_NEAR, Z_FAR);
+        } catch (Throwable t) { return; }
+        if (frameCtx.cameraPose != null) lastCameraPose = frameCtx.cameraPose;
+        frameCtx.captureEarth(session);
+        frameCtx.captureAnchors(anchors, ANCHOR_OF);
+        pruneDeadAnchors();
 
         try { backgroundRenderer.updateDisplayGeometry(frame); } catch (Throwable t) { return; }
 
-        if (camera.getTrackingState() == TrackingState.TRACKING
+        if (frameCtx.cameraTracking == TrackingState.TRACKING
                 && (depthSettings.useDepthForOcclusion() || depthSettings.depthColorVisualizationEnabled())) {
             try (Image depthImage = frame.acquireDepthImage16Bits()) {
                 backgroundRenderer.updateCameraDepthTexture(depthImage);
@@ -1337,20 +1442,13 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
         trySetBackgroundZoom(zoomFactor);
 
-        // === MOVED: get fresh matrices BEFORE tap handling so picking uses the current PV ===
-        if (camera.getTrackingState() == TrackingState.TRACKING) {
-            try {
-                camera.getProjectionMatrix(projectionMatrix, 0, Z_NEAR, Z_FAR);
-                camera.getViewMatrix(viewMatrix, 0);
-            } catch (Throwable t) { return; }
-        }
-
         // Handle taps (uses fresh matrices for picking)
         if (!inMetadataFlow) {
             try { handleTap(frame, camera); } catch (Throwable ignore) {}
         }
 
         // Draw camera background
+        GLError.checkpoint("background");
         try {
             if (frame.getTimestamp() != 0) backgroundRenderer.drawBackground(render);
         } catch (Throwable t) {
@@ -1358,7 +1456,21 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         }
 
         // If not tracking, nothing else to render
-        if (camera.getTrackingState() != TrackingState.TRACKING) return;
+        if (frameCtx.cameraTracking != TrackingState.TRACKING) return;
+
+        // Camera block for planes, point cloud and eggs; stays bound for the rest of the frame
+        if (cameraUniforms == null) return;
+        try {
+            cameraUniforms.update(frameCtx.viewMatrix, frameCtx.projectionMatrix,
+                    frameCtx.viewProjectionMatrix, frameCtx.viewportWidth, frameCtx.viewportHeight,
+                    frameCtx.focalLengthPx, frameCtx.cameraT);
+        } catch (Throwable t) {
+            Log.w(TAG, "camera uniforms upload failed", t);
+            return;
+        }
+
+        // One plane query per frame, shared by the scan hints and the grid
+        final Collection<Plane> planes = session.getAllTrackables(Plane.class);
 
         // Scan UI hints — keep hands off while saving or while the sheet is open
         try {
@@ -1371,7 +1483,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 uiHideStatus();
             } else {
                 int trackedPlanes = 0;
-                for (Plane p : session.getAllTrackables(Plane.class)) {
+                for (Plane p : planes) {
                     if (p.getTrackingState() == TrackingState.TRACKING && p.getSubsumedBy() == null) trackedPlanes++;
                 }
 
@@ -1398,188 +1510,75 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         } catch (Throwable ignore) {}
 
         // --- Draw plane grid as a non-occluding overlay ---
+        GLError.checkpoint("planes");
         try {
             GLES30.glEnable(GLES30.GL_POLYGON_OFFSET_FILL);
             GLES30.glPolygonOffset(3.0f, 3.0f);
             // Planes should not write to depth
-            GLES30.glDepthMask(false);
+            render.getStateCache().depthMask(false);
 
             if (planeRenderer != null) {
                 planeRenderer.drawPlanes(
                         render,
-                        session.getAllTrackables(Plane.class),
-                        camera.getDisplayOrientedPose(),
-                        projectionMatrix
+                        planes,
+                        camera.getDisplayOrientedPose()
                 );
             }
         } finally {
-            GLES30.glDepthMask(true);
+            render.getStateCache().depthMask(true);
             GLES30.glDisable(GLES30.GL_POLYGON_OFFSET_FILL);
         }
 
         // Point cloud (optional)
+        GLError.checkpoint("point cloud");
         try (com.google.ar.core.PointCloud pc = frame.acquirePointCloud()) {
             if (pointCloudShader != null && pointCloudMesh != null && pointCloudVertexBuffer != null) {
                 if (pc.getTimestamp() > lastPointCloudTimestamp) {
                     pointCloudVertexBuffer.set(pc.getPoints());
                     lastPointCloudTimestamp = pc.getTimestamp();
                 }
-                Matrix.multiplyMM(modelViewProjectionMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
-                pointCloudShader.setMat4("u_ModelViewProjection", modelViewProjectionMatrix);
                 render.draw(pointCloudMesh, pointCloudShader);
             }
         } catch (Throwable ignore) {}
 
         // Ensure sane depth state for our content
         try {
-            GLES30.glEnable(GLES30.GL_DEPTH_TEST);
+            render.getStateCache().depthTest(true);
             GLES30.glDepthFunc(GLES30.GL_LEQUAL);
-            GLES30.glDepthMask(true);
+            render.getStateCache().depthMask(true);
             GLES30.glDisable(GLES30.GL_POLYGON_OFFSET_FILL);
         } catch (Throwable ignore) {}
 
         // Prepare the virtual scene target
+        GLError.checkpoint("eggs");
         render.clear(virtualSceneFramebuffer, 0f, 0f, 0f, 0f);
 
-        // Maintain anchor lists
-        pruneDeadAnchors(prevAnchors);
-        pruneDeadAnchors(wrappedAnchors);
+        // Taps may have added / removed previews since the capture
+        if (!frameCtx.anchorsCurrent(anchors)) frameCtx.captureAnchors(anchors, ANCHOR_OF);
 
         try { GLES30.glDisable(GLES30.GL_POLYGON_OFFSET_FILL); } catch (Throwable ignore) {}
 
         // === CHANGE: render saved list only if we are not in "just placed" mode ===
-        if (SHOW_ONLY_JUST_PLACED) {
-            // Show ALL recent placements from current session
-            drawAnchorsList(prevAnchors, MODEL_BASE_SCALE, /*isSavedList=*/true, render, currentSessionRecentDocIds);
-        } else {
-            drawAnchorsList(prevAnchors, MODEL_BASE_SCALE, /*isSavedList=*/true, render, null);
+        if (eggQueue != null) {
+            eggQueue.reset();
+            // SHOW_ONLY_JUST_PLACED: show ALL recent placements from current session
+            eggCollector.collect(anchors, frameCtx, eggQueue, AnchorRegistry.SAVED, /*recentOnly=*/SHOW_ONLY_JUST_PLACED);
+            eggCollector.collect(anchors, frameCtx, eggQueue, AnchorRegistry.PREVIEW, false);
         }
-        drawAnchorsList(wrappedAnchors, MODEL_BASE_SCALE, /*isSavedList=*/false, render, null);
+        drawEggQueue(render);
 
         // Composite virtual scene
+        GLError.checkpoint("composite");
         final boolean vsReady = backgroundRenderer != null && backgroundRenderer.isVirtualSceneInitialized();
         if (virtualSceneFramebuffer != null && vsReady) {
             backgroundRenderer.drawVirtualScene(render, virtualSceneFramebuffer, Z_NEAR, Z_FAR);
         }
 
-        // Cloud Anchor state machine
-        if (hostState == HostState.HOSTING && hostedCloudAnchor != null) {
-            Anchor.CloudAnchorState st = hostedCloudAnchor.getCloudAnchorState();
-            Log.i(TAG, "CloudAnchor state: " + st);
-
-            if (st.isError()) {
-                hostState = HostState.ERROR;
-
-                // Determine the specific error for better user messaging
-                String userMessage;
-                switch (st) {
-                    case ERROR_HOSTING_DATASET_PROCESSING_FAILED:
-                        userMessage = "Couldn't process the visual data. Try better lighting or more textured surfaces.";
-                        break;
-                    case ERROR_NOT_AUTHORIZED:
-                        userMessage = "Authentication failed. Please check your ARCore configuration.";
-                        break;
-                    case ERROR_SERVICE_UNAVAILABLE:
-                        userMessage = "Cloud Anchor service is temporarily unavailable. Please try again later.";
-                        break;
-                    case ERROR_RESOURCE_EXHAUSTED:
-                        userMessage = "Too many cloud anchor requests. Please try again later.";
-                        break;
-                    default:
-                        userMessage = "Cloud hosting failed: " + st;
-                        break;
-                }
-
-                if (pendingEggDocId != null) {
-                    // Update Firestore with error status
-                    FirebaseFirestore.getInstance().collection(EGGS).document(pendingEggDocId)
-                            .update("cloudStatus", "ERROR", "cloudError", st.toString())
-                            .addOnFailureListener(e -> Log.w(TAG, "Failed to mark cloud error", e));
-
-                    // REMOVE THE STAR FROM VISIBLE ANCHORS
-                    runOnGl(() -> {
-                        try {
-                            // Remove from recent placements
-                            currentSessionRecentDocIds.remove(pendingEggDocId);
-
-                            // Remove from mounted anchors
-                            mountedPrevDocIds.remove(pendingEggDocId);
-
-                            // Remove from prevAnchors list and detach anchor
-                            for (WrappedAnchor w : new ArrayList<>(prevAnchors)) {
-                                if (pendingEggDocId.equals(w.getDocId())) {
-                                    try {
-                                        if (w.getAnchor() != null) {
-                                            w.getAnchor().detach();
-                                            lastStableT.remove(w.getAnchor());
-                                        }
-                                    } catch (Throwable ignore) {}
-                                    prevAnchors.remove(w);
-                                }
-                            }
-                        } catch (Throwable t) {
-                            Log.w(TAG, "Error removing failed cloud anchor", t);
-                        }
-                    });
-
-                    // Show error message - star will NOT be visible
-                    uiShowMessage("Cloud Hosting Failed",
-                            "Your star could not be hosted in the cloud. " +
-                                    userMessage + " " +
-                                    "Please try placing again with better lighting and surfaces.",
-                            true);
-                }
-            } else if (st == Anchor.CloudAnchorState.SUCCESS) {
-                hostState = HostState.SUCCESS;
-                hostedCloudId = hostedCloudAnchor.getCloudAnchorId();
-
-                // IMPORTANT: Don't remove the local anchor - just update Firestore
-                // The local anchor should continue to be used for rendering
-
-                // Mount the cloud-resolved version ONLY if we don't have a good local anchor
-                if (hostedCloudId != null && pendingEggDocId != null) {
-                    currentSessionRecentDocIds.add(pendingEggDocId);
-
-                    // But keep using the LOCAL anchor for rendering, not the cloud one
-                    // The cloud ID is just for sharing with other users
-                    Log.d(TAG, "Cloud hosting successful for " + pendingEggDocId + ", but keeping local anchor for rendering");
-                }
-
-                // Patch Firestore with cloud info
-                if (pendingEggDocId != null && hostedCloudId != null) {
-                    Map<String, Object> patch = new HashMap<>();
-                    patch.put("cloudStatus", "SUCCESS");
-                    patch.put("cloudId", hostedCloudId);
-                    patch.put("cloudHostedAt", FieldValue.serverTimestamp());
-                    patch.put("cloudTtlDays", CLOUD_TTL_DAYS);
-                    patch.put("anchorType", "CLOUD");
-
-                    FirebaseFirestore.getInstance().collection(EGGS)
-                            .document(pendingEggDocId)
-                            .update(patch)
-                            .addOnSuccessListener(v -> uiShowMessage(
-                                    "All set!",
-                                    "Star saved and cloud hosted ✓\nOther users can now see it.\nTap OK to place again.",
-                                    true))
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Failed to patch egg with cloudId", e);
-                                uiShowMessage(
-                                        "All set!",
-                                        "Star saved locally ✓ (cloud update failed).\nTap OK to place again.",
-                                        true);
-                            });
-                } else {
-                    uiShowMessage("All set!", "Star saved locally ✓\nTap OK to place again.", true);
-                }
-            }
-        }
-
         // Telemetry / HUD
         try {
-            Earth earth = null;
-            try { earth = session.getEarth(); } catch (Throwable ignore) {}
+            final Earth earth = frameCtx.earth;
             // OFFLINE hint when Earth isn't tracking
-            if (earth != null && earth.getTrackingState() != TrackingState.TRACKING && !hasInternetNow()) {
+            if (earth != null && frameCtx.earthTracking != TrackingState.TRACKING && !hasInternetNow()) {
                 long now = System.currentTimeMillis();
                 if (now - lastOfflineHintAt > OFFLINE_HINT_COOLDOWN_MS) {
                     messageSnackbarHelper.showMessage(
@@ -1588,10 +1587,27 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 }
             }
 
+            final GeospatialPose camGp = frameCtx.geoPose;
+            final GeospatialPose prevGoodGeoPose = lastGoodGeoPose; // heading fallback for the HUD
+            if (earth != null && camGp != null) {
+                if (camGp.getHorizontalAccuracy() <= hGate()) lastGoodGeoPose = camGp;
+
+                if (pendingWarm != null) applyWarmRestore(earth, camGp);
+                if (!SHOW_ONLY_JUST_PLACED) {
+                    maybeLoadPreviousEggs(earth, camGp);
+                }
+                maybeScanNearbyForButton(camGp);
+            }
+
+            // Text views only need a few updates a second; skip the formatting and UI post otherwise
+            long hudNow = System.currentTimeMillis();
+            if (hudNow - lastHudUpdateAt < HUD_UPDATE_INTERVAL_MS) return;
+            lastHudUpdateAt = hudNow;
+
             boolean online = hasInternetNow();
             final String earthLine = (earth == null)
                     ? "Earth: not available" + (online ? "" : " • OFFLINE")
-                    : "AR Earth: " + earth.getEarthState() + " • Tracking: " + earth.getTrackingState()
+                    : "AR Earth: " + earth.getEarthState() + " • Tracking: " + frameCtx.earthTracking
                     + (online ? "" : " • OFFLINE (check connection)");
             String latLngLine = "LAT/LNG: —";
             String latLngAcc  = "H-Accuracy: —";
@@ -1601,42 +1617,33 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             String headAcc    = "Heading accuracy: —";
             String anchorLine = "Anchor: none";
 
-            Anchor currentAnchor = (!wrappedAnchors.isEmpty() && wrappedAnchors.get(0) != null)
-                    ? wrappedAnchors.get(0).getAnchor() : null;
-            if (currentAnchor != null) {
-                String suffix;
-                if (hostState == HostState.HOSTING)      suffix = " (CLOUD…)";
-                else if (hostState == HostState.SUCCESS) suffix = " (CLOUD✔)";
-                else if (envMode == Env.OUTDOOR)         suffix = " (LOCAL)";
-                else                                     suffix = " (LOCAL)";
-                anchorLine = "Anchor: " + currentAnchor.getTrackingState().name() + suffix;
+            int previewSlot = -1;
+            for (int i = 0; i < frameCtx.anchorCount(); i++) {
+                if (anchors.has(i, AnchorRegistry.PREVIEW)) { previewSlot = i; break; }
             }
-
-            GeospatialPose camGp = null;
-            if (earth != null && earth.getTrackingState() == TrackingState.TRACKING) {
-                try { camGp = earth.getCameraGeospatialPose(); } catch (Throwable ignore) {}
-                if (camGp != null) {
-                    double heading = camGp.getHeading();
-                    if ((Double.isNaN(heading) || Math.abs(heading) < 1e-6 || camGp.getHeadingAccuracy() > headGate())
-                            && lastGoodGeoPose != null) {
-                        heading = lastGoodGeoPose.getHeading();
-                    }
-
-                    latLngLine = String.format(Locale.US, "LAT/LNG: %.6f°, %.6f°",
-                            camGp.getLatitude(), camGp.getLongitude());
-                    latLngAcc  = String.format(Locale.US, "H-Accuracy: ±%.2f m", camGp.getHorizontalAccuracy());
-                    altLine    = String.format(Locale.US, "ALTITUDE: %.2f m", camGp.getAltitude());
-                    altAcc     = String.format(Locale.US, "V-Accuracy: ±%.2f m", camGp.getVerticalAccuracy());
-                    headLine   = String.format(Locale.US, "HEADING: %.1f°", heading);
-                    headAcc    = String.format(Locale.US, "Heading accuracy: ±%.1f°", camGp.getHeadingAccuracy());
-
-                    if (camGp.getHorizontalAccuracy() <= hGate()) lastGoodGeoPose = camGp;
-
-                    if (!SHOW_ONLY_JUST_PLACED) {
-                        maybeLoadPreviousEggs(earth, camGp);
-                    }
-                    maybeScanNearbyForButton();
+            if (previewSlot >= 0) {
+                String suffix;
+                HostQueue.State hs = hostQueue.stateOf(lastPlacedDocId);
+                if (hs == HostQueue.State.DONE)                       suffix = " (CLOUD✔)";
+                else if (hs != null && hs != HostQueue.State.FAILED)  suffix = " (CLOUD…)";
+                else                                                  suffix = " (LOCAL)";
+                anchorLine = "Anchor: " + frameCtx.anchorState(previewSlot).name() + suffix;
+            }
+
+            if (earth != null && camGp != null) {
+                double heading = camGp.getHeading();
+                if ((Double.isNaN(heading) || Math.abs(heading) < 1e-6 || camGp.getHeadingAccuracy() > headGate())
+                        && prevGoodGeoPose != null) {
+                    heading = prevGoodGeoPose.getHeading();
                 }
+
+                latLngLine = String.format(Locale.US, "LAT/LNG: %.6f°, %.6f°",
+                        camGp.getLatitude(), camGp.getLongitude());
+                latLngAcc  = String.format(Locale.US, "H-Accuracy: ±%.2f m", camGp.getHorizontalAccuracy());
+                altLine    = String.format(Locale.US, "ALTITUDE: %.2f m", camGp.getAltitude());
+                altAcc     = String.format(Locale.US, "V-Accuracy: ±%.2f m", camGp.getVerticalAccuracy());
+                headLine   = String.format(Locale.US, "HEADING: %.1f°", heading);
+                headAcc    = String.format(Locale.US, "Heading accuracy: ±%.1f°", camGp.getHeadingAccuracy());
             }
 
             final String fEarthLine  = earthLine, fAnchorLine = anchorLine;
@@ -1658,182 +1665,88 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             Log.w(TAG, "Location permission missing for geospatial.", se);
         } catch (Throwable ignore) {}
     }
-    private void trySetBackgroundZoom(float z) {
-        try {
-            Method m = backgroundRenderer.getClass().getMethod("setZoom", float.class);
-            m.invoke(backgroundRenderer, z);
-        } catch (Throwable ignore) {}
-    }
+    // Zoom last pushed to which renderer; the per-frame call is a no-op until one of them changes
+    private float appliedZoom = Float.NaN;
+    @Nullable private BackgroundRenderer appliedZoomTarget;
 
-    private void pruneDeadAnchors(List<WrappedAnchor> list) {
-        for (WrappedAnchor w : new ArrayList<>(list)) {
-            if (w == null) continue;
+    private void trySetBackgroundZoom(float z) {
+        BackgroundRenderer br = backgroundRenderer;
+        if (br == null || (br == appliedZoomTarget && z == appliedZoom)) return;
+        br.setZoom(z);
+        appliedZoom = z;
+        appliedZoomTarget = br;
+    }
+
+    /** Drop anchors frameCtx saw as STOPPED (or null); recaptures if anything moved slots. */
+    private void pruneDeadAnchors() {
+        boolean removed = false;
+        for (int i = frameCtx.anchorCount() - 1; i >= 0; i--) {
+            if (frameCtx.anchorState(i) != TrackingState.STOPPED) continue;
+            WrappedAnchor w = anchors.itemAt(i);
             Anchor a = w.getAnchor();
-            if (a == null) {
-                list.remove(w);
-                continue;
-            }
-            if (a.getTrackingState() == TrackingState.STOPPED) {
-                try { a.detach(); } catch (Throwable ignore) {}
-                lastStableT.remove(a);
-                list.remove(w);
-            }
-        }
-    }
-
-    // Keep the original 4-arg API for any existing callers.
-    private int drawAnchorsList(List<WrappedAnchor> list, float baseScale, boolean isSavedList, SampleRender render) {
-        return drawAnchorsList(list, baseScale, isSavedList, render, /*onlyDocId=*/null);
-    }
-
-    // New core with optional filter: only draw the saved anchor whose docId == onlyDocId.
-    // Replace the current drawAnchorsList method with this version:
-    private int drawAnchorsList(
-            List<WrappedAnchor> list,
-            float baseScale,
-            boolean isSavedList,
-            SampleRender render,
-            @Nullable Object filter // Can be String (single ID) or Set<String> (multiple IDs)
-    ) {
-        int drawn = 0;
-
-        for (WrappedAnchor wrapped : list) {
-            if (wrapped == null) continue;
-
-            // Handle filtering for saved items
-            if (isSavedList && filter != null) {
-                String did = wrapped.getDocId();
-                if (did == null) continue;
-
-                if (filter instanceof String) {
-                    // Single ID filter
-                    if (!((String) filter).equals(did)) continue;
-                } else if (filter instanceof Set) {
-                    // Multiple IDs filter
-                    if (!((Set<String>) filter).contains(did)) continue;
-                }
-            }
-
-            // ... rest of the existing drawing code remains the same ...
-            Anchor a = wrapped.getAnchor();
-            if (a == null) continue;
-
-            // ---- distance-based culling (near + far) ----
-            if (lastCameraPose != null) {
-                float d = distance(a.getPose(), lastCameraPose);
-
-                // Allow much closer render for the just-placed saved anchor
-                float minCull = MIN_RENDER_DISTANCE_M; // default 0.35m
-                if (isSavedList && filter != null) {
-                    String didThis = wrapped.getDocId();
-                    if (didThis != null) {
-                        boolean isRecent = false;
-                        if (filter instanceof String) {
-                            isRecent = ((String) filter).equals(didThis);
-                        } else if (filter instanceof Set) {
-                            isRecent = ((Set<String>) filter).contains(didThis);
-                        }
-                        if (isRecent) {
-                            minCull = 0.08f; // ~8 cm — show it even if you're very close
-                        }
-                    }
-                }
-
-                if (d < minCull) continue;               // too close to the glass
-                if (isSavedList && d > MOUNT_RADIUS_M) continue; // far cull for persisted list
-            }
-
-            // ... rest of the existing drawing code remains exactly the same ...
-            TrackingState st = a.getTrackingState();
-            if (st == TrackingState.STOPPED) {
-                try { a.detach(); } catch (Throwable ignore) {}
-                lastStableT.remove(a);
-                continue;
-            }
-            boolean isPaused   = (st == TrackingState.PAUSED);
-            boolean isTracking = (st == TrackingState.TRACKING);
-            if (!isPaused && !isTracking) continue;
-
-            // --- pose smoothing (translation only) ---
-            Pose p = a.getPose();
-            float[] t = p.getTranslation();
-            float[] last = lastStableT.get(a);
-            if (last != null && SMOOTHING_ALPHA < 1f) {
-                for (int i = 0; i < 3; i++) {
-                    t[i] = SMOOTHING_ALPHA * last[i] + (1f - SMOOTHING_ALPHA) * t[i];
-                }
-            }
-            lastStableT.put(a, t.clone());
-
-            // --- choose render rotation ---
-            // --- choose render rotation ---
-            final boolean isPuzzle = (wrapped.getModelType() == ModelType.PUZZLE);
-            float[] renderQ;
-            if (ALWAYS_FACE_CAMERA && lastCameraPose != null && !isPuzzle) {
-                float[] camT = lastCameraPose.getTranslation();
-                float yawDeg = (float) Math.toDegrees(Math.atan2(camT[0] - t[0], camT[2] - t[2]));
-                renderQ = quatMul(yawToQuaternion(yawDeg), MODEL_UPRIGHT_FIX);
-            } else {
-                renderQ = new float[]{ p.qx(), p.qy(), p.qz(), p.qw() };
-            }
-            // Build model matrix
-            Pose rPose = new Pose(t, renderQ);
-            rPose.toMatrix(modelMatrix, 0);
-
-            // Lift previews slightly; saved items stay on the pose
-            float liftY = (isSavedList ? 0f : 0.02f) + (isPaused ? 0.03f : 0f);
-            Matrix.translateM(modelMatrix, 0, 0f, liftY, 0f);
-
-            // --- constant-pixel size scaling ---
-            float[] wp   = new float[]{ t[0], t[1], t[2], 1f };
-            float[] vpos = new float[4];
-            Matrix.multiplyMV(vpos, 0, viewMatrix, 0, wp, 0);
-            float zView = -vpos[2];
-            zView = Math.max(0.05f, Math.min(50f, zView));
-            float fyNdc = projectionMatrix[5];
-            int   vh    = Math.max(1, viewportHeight);
-            float fyPx  = 0.5f * vh * fyNdc;
-
-            float targetPx = isPuzzle ? PUZZLE_TARGET_PX : STAR_TARGET_PX;
-            float targetHeightM = (targetPx * zView) / Math.max(1e-6f, fyPx);
-
-            float rawH   = isPuzzle ? PUZZLE_RAW_HEIGHT_UNITS : STAR_RAW_HEIGHT_UNITS;
-            float typeM  = isPuzzle ? PUZZLE_SIZE_MULT        : STAR_SIZE_MULT;
-            float savedM = (isSavedList ? (isPuzzle ? SAVED_PUZZLE_MULT : SAVED_STAR_MULT) : 1.0f);
-
-            float s = (targetHeightM / Math.max(1e-6f, rawH)) * typeM * savedM * baseScale;
-            Matrix.scaleM(modelMatrix, 0, s, s, s);
-
-            // --- MVP ---
-            Matrix.multiplyMM(modelViewMatrix, 0, viewMatrix, 0, modelMatrix, 0);
-            Matrix.multiplyMM(modelViewProjectionMatrix, 0, projectionMatrix, 0, modelViewMatrix, 0);
-
-            // --- draw ---
+            if (a != null) try { a.detach(); } catch (Throwable ignore) {}
+            boolean saved = anchors.has(i, AnchorRegistry.SAVED);
+            anchors.removeAt(i);
+            removed = true;
+            if (saved && w.getDocId() != null) resolveScheduler.forget(w.getDocId());
+        }
+        if (removed) frameCtx.captureAnchors(anchors, ANCHOR_OF);
+    }
+
+    /** Largest sub-mesh bounding sphere, measured from the model origin; {@code fallback} if unknown. */
+    private static float boundingRadiusOf(@Nullable Mesh[] meshes, float fallback) {
+        if (meshes == null) return fallback;
+        float r = 0f;
+        for (Mesh m : meshes) {
+            float[] sphere = (m != null) ? m.getBoundingSphere() : null;
+            if (sphere == null) return fallback;
+            float c = (float) Math.sqrt(sphere[0]*sphere[0] + sphere[1]*sphere[1] + sphere[2]*sphere[2]);
+            r = Math.max(r, c + sphere[3]);
+        }
+        return (r > 0f) ? r : fallback;
+    }
+
+    /**
+     * Draws eggQueue run by run: pass state once per run, then one instanced draw per sub-mesh.
+     * Camera data comes from the CameraUniforms block bound earlier in the frame. Translucent runs
+     * (paused anchors) skip the depth test, don't write depth and blend premultiplied over what's
+     * already drawn.
+     */
+    private void drawEggQueue(SampleRender render) {
+        final RenderQueue queue = eggQueue;
+        if (queue == null) return;
+        queue.build();
+        if (queue.runCount() == 0) return;
+
+        for (int run = 0; run < queue.runCount(); run++) {
+            boolean isPuzzle = queue.runModel(run) == EggCollector.MODEL_PUZZLE;
+            boolean translucent = queue.runTranslucent(run);
             Mesh[]   meshes  = isPuzzle ? puzzleMeshes  : starMeshes;
             Shader[] shaders = isPuzzle ? puzzleShaders : starShaders;
-            if (meshes != null && shaders != null && meshes.length == shaders.length && meshes.length > 0) {
-                for (int i = 0; i < meshes.length; i++) {
-                    if (meshes[i] == null || shaders[i] == null) continue;
-                    try { shaders[i].setMat4("u_ModelViewProjection", modelViewProjectionMatrix); } catch (Throwable ignore) {}
-                    try { shaders[i].setMat4("u_ModelView",           modelViewMatrix);           } catch (Throwable ignore) {}
-                    try { shaders[i].setMat4("u_Model",               modelMatrix);               } catch (Throwable ignore) {}
-
-                    if (isPaused) {
-                        try { shaders[i].setDepthTest(false); } catch (Throwable ignore) {}
-                        try { shaders[i].setFloat("u_Opacity", 0.85f); } catch (Throwable ignore) {}
-                        render.draw(meshes[i], shaders[i], virtualSceneFramebuffer);
-                        try { shaders[i].setDepthTest(true); } catch (Throwable ignore) {}
-                        try { shaders[i].setFloat("u_Opacity", 1.0f); } catch (Throwable ignore) {}
-                    } else {
-                        try { shaders[i].setFloat("u_Opacity", 1.0f); } catch (Throwable ignore) {}
-                        render.draw(meshes[i], shaders[i], virtualSceneFramebuffer);
+            if (meshes == null || shaders == null || meshes.length != shaders.length) continue;
+            for (int i = 0; i < meshes.length; i++) {
+                if (meshes[i] == null || shaders[i] == null) continue;
+                try {
+                    if (translucent) {
+                        shaders[i].setDepthTest(false)
+                                .setDepthWrite(false)
+                                .setBlend(Shader.BlendFactor.ONE, Shader.BlendFactor.ONE_MINUS_SRC_ALPHA);
+                    }
+                    queue.bindRun(run, meshes[i]);
+                    render.drawInstanced(meshes[i], shaders[i], virtualSceneFramebuffer, queue.runLength(run));
+                } catch (Throwable t) {
+                    Log.w(TAG, "instanced egg draw failed", t);
+                } finally {
+                    if (translucent) {
+                        shaders[i].setDepthTest(true)
+                                .setDepthWrite(true)
+                                .setBlend(Shader.BlendFactor.ONE, Shader.BlendFactor.ZERO);
                     }
                 }
-                drawn++;
             }
         }
-        return drawn;
     }
+
     private boolean hasPausedAnchors(List<WrappedAnchor> list) {
         for (WrappedAnchor w : list) {
             if (w == null) continue;
@@ -1870,30 +1783,25 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         final float[] dir    = new float[3];
     }
 
-    private Ray screenTapToWorldRay(Camera camera, float xPx, float yPx, int vw, int vh) {
-        float[] proj = new float[16], view = new float[16], vp = new float[16], invVP = new float[16];
-        camera.getProjectionMatrix(projectionMatrix, 0, Z_NEAR, Z_FAR);
-        camera.getViewMatrix(viewMatrix, 0);
-        System.arraycopy(projectionMatrix, 0, proj, 0, 16);
-        System.arraycopy(viewMatrix, 0, view, 0, 16);
-        android.opengl.Matrix.multiplyMM(vp, 0, proj, 0, view, 0);
-        android.opengl.Matrix.invertM(invVP, 0, vp, 0);
+    // Scratch for screenTapToWorldRay (GL thread)
+    private final float[] sInvViewProj = new float[16];
+    private final float[] sInvView     = new float[16];
+    private final float[] sRayNear     = new float[3];
+    private final float[] sRayFar      = new float[3];
+
+    /** Ray through a screen pixel, from this frame's view/projection. Only the returned Ray is allocated. */
+    private Ray screenTapToWorldRay(float xPx, float yPx, int vw, int vh) {
+        android.opengl.Matrix.invertM(sInvViewProj, 0, frameCtx.viewProjectionMatrix, 0);
+        android.opengl.Matrix.invertM(sInvView, 0, frameCtx.viewMatrix, 0);
 
         float nx =  (2f * xPx) / vw - 1f;
         float ny =  1f - (2f * yPx) / vh;
+        PoseMath.unproject(sInvViewProj, nx, ny, -1f, sRayNear);
+        PoseMath.unproject(sInvViewProj, nx, ny,  1f, sRayFar);
 
-        float[] nearN = {nx, ny, -1f, 1f};
-        float[] farN  = {nx, ny,  1f, 1f};
-        float[] nearW = new float[4], farW = new float[4];
-        android.opengl.Matrix.multiplyMV(nearW, 0, invVP, 0, nearN, 0);
-        android.opengl.Matrix.multiplyMV(farW,  0, invVP, 0, farN,  0);
-        for (int i=0;i<3;i++){ nearW[i]/=nearW[3]; farW[i]/=farW[3]; }
-
-        float[] invView = new float[16];
-        android.opengl.Matrix.invertM(invView, 0, view, 0);
         Ray r = new Ray();
-        r.origin[0] = invView[12]; r.origin[1] = invView[13]; r.origin[2] = invView[14];
-        float dx = farW[0]-nearW[0], dy = farW[1]-nearW[1], dz = farW[2]-nearW[2];
+        r.origin[0] = sInvView[12]; r.origin[1] = sInvView[13]; r.origin[2] = sInvView[14];
+        float dx = sRayFar[0]-sRayNear[0], dy = sRayFar[1]-sRayNear[1], dz = sRayFar[2]-sRayNear[2];
         float len = (float)Math.sqrt(dx*dx+dy*dy+dz*dz);
         r.dir[0] = dx/len; r.dir[1] = dy/len; r.dir[2] = dz/len;
         return r;
@@ -1929,7 +1837,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             inPuzzleFlow = true;
             currentPreviewModel = ModelType.PUZZLE;
 
-            wrappedAnchors.add(new WrappedAnchor(a, null, null, grace, ModelType.PUZZLE));
+            anchors.add(null, new WrappedAnchor(a, null, null, grace, ModelType.PUZZLE), AnchorRegistry.PREVIEW);
             noOccUntilMs = grace;
         });
     }
@@ -1937,19 +1845,55 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
     private void purgePrevAnchors() {
         runOnGl(() -> {
-            for (WrappedAnchor w : new ArrayList<>(prevAnchors)) {
-                try {
-                    Anchor a = w.getAnchor();
-                    if (a != null) {
-                        a.detach();
-                        lastStableT.remove(a);
-                    }
-                } catch (Throwable ignore) {}
-            }
-            prevAnchors.clear();
-            mountedPrevDocIds.clear();
+            for (WrappedAnchor w : anchors.removeAll(AnchorRegistry.SAVED)) detachQuietly(w);
+            resolveScheduler.clear();
+            anchorBudget.clear();
+        });
+    }
+
+    /** Detach a mounted previous egg (deleted remotely or failed hosting). GL-thread safe. */
+    private void unmountPrevEgg(String docId) {
+        runOnGl(() -> {
+            resolveScheduler.forget(docId);
+            anchorBudget.forget(docId);
+            WrappedAnchor w = anchors.remove(docId);
+            if (w != null) detachQuietly(w);
         });
-        previousEggsLoadedOnce = true; // disables reload logic elsewhere
+    }
+
+    /** Register a mounted saved egg; if its docId is already mounted the new anchor is dropped. GL thread. */
+    private void addSavedAnchor(WrappedAnchor w) {
+        if (anchors.add(w.getDocId(), w, AnchorRegistry.SAVED) < 0) detachQuietly(w);
+    }
+
+    private static void detachQuietly(WrappedAnchor w) {
+        try {
+            if (w.getAnchor() != null) w.getAnchor().detach();
+        } catch (Throwable ignore) {}
+    }
+
+    /** True if a saved entry holds this exact anchor (a preview that got promoted on save). */
+    private boolean isSavedAnchor(Anchor a) {
+        for (int i = 0; i < anchors.size(); i++) {
+            if (anchors.has(i, AnchorRegistry.SAVED) && anchors.itemAt(i).getAnchor() == a) return true;
+        }
+        return false;
+    }
+
+    @Nullable
+    private WrappedAnchor firstPreview() {
+        List<WrappedAnchor> pv = anchors.snapshot(AnchorRegistry.PREVIEW);
+        return pv.isEmpty() ? null : pv.get(0);
+    }
+
+    private void onRealtimeEggUpserted(EggSummary egg) {
+        runOnGl(() -> anchorBudget.forget(egg.id)); // its remembered pose may be stale now
+        if (SHOW_ONLY_JUST_PLACED || resolveScheduler.isKnown(egg.id)) return;
+        if (egg.hasGeo) {
+            mountSweepPending = true; // distance gate runs against the index on the next frame
+        } else if (egg.cloudId != null) {
+            mountCloudEgg(egg);
+        }
     }
 
     private void handleTap(Frame frame, Camera camera) {
@@ -2045,7 +1989,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         // ---------- No hits at all → geo-ray fallback → ASK FIRST, then place PUZZLE ahead ----------
         {
             int vw = surfaceView.getWidth(), vh = surfaceView.getHeight();
-            Ray r = screenTapToWorldRay(camera, tap.getX(), tap.getY(), vw, vh);
+            Ray r = screenTapToWorldRay(tap.getX(), tap.getY(), vw, vh);
 
             float yawDeg = (float) Math.toDegrees(Math.atan2(-r.dir[0], -r.dir[2]));
             final Pose candidate = poseAlongRay(r, 6f, yawDeg);
@@ -2119,13 +2063,13 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         currentPreviewModel = asPuzzle ? ModelType.PUZZLE : ModelType.STAR;
 
         // Keep this preview visible and suppress occlusion briefly
-        wrappedAnchors.add(new WrappedAnchor(
+        anchors.add(null, new WrappedAnchor(
                 visualAnchor,
                 trackable,
                 /*docId*/ null,
                 grace,
                 asPuzzle ? ModelType.PUZZLE : ModelType.STAR
-        ));
+        ), AnchorRegistry.PREVIEW);
         noOccUntilMs = grace;
         placementModeActive = false;
 
@@ -2139,7 +2083,6 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         localAnchorForHosting = (!asPuzzle && hostableForCloud != null)
                 ? (hostableForCloud.getHitPose().equals(pose) ? visualAnchor : hostableForCloud.createAnchor())
                 : null;
-        hostState = HostState.IDLE;
 
         // Small toast hint
         runOnUiThread(() -> Toast.makeText(
@@ -2215,7 +2158,6 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 placementModeActive = true;
                 readyPromptShown = true;
                 localAnchorForHosting = null;
-                hostState = HostState.IDLE;
                 inMetadataFlow = false;
                 hideStatus();
             }
@@ -2229,33 +2171,54 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         });
     }
     private void startHostingCloudAnchor(Anchor local, @Nullable String eggDocIdToPatch) {
-        if (local == null || session == null) return;
-
-        pendingEggDocId = eggDocIdToPatch;
-        hostState = HostState.HOSTING;
-
-        try {
-            Anchor result = null;
-            try {
-                Method m = Session.class.getMethod("hostCloudAnchor", Anchor.class, int.class);
-                result = (Anchor) m.invoke(session, local, CLOUD_TTL_DAYS);
-            } catch (NoSuchMethodException ignore1) {
-                try {
-                    Method m2 = Session.class.getMethod("hostCloudAnchorWithTtl", Anchor.class, int.class);
-                    result = (Anchor) m2.invoke(session, local, CLOUD_TTL_DAYS);
-                } catch (NoSuchMethodException ignore2) {
-                    result = session.hostCloudAnchor(local);
-                }
-            }
-
-            hostedCloudAnchor = result;
-            runOnUiThread(() ->
-                    Toast.makeText(this, "Hosting anchor… (~" + CLOUD_TTL_DAYS + "d)", Toast.LENGTH_SHORT).show());
-
-        } catch (Throwable t) {
-            hostState = HostState.ERROR;
-            uiShowMessage("Hosting failed", "Failed to start hosting: " + t.getMessage(), true);
-        }
+        if (local == null || eggDocIdToPatch == null) return;
+        hostQueue.enqueue(eggDocIdToPatch, local);
+        runOnUiThread(() ->
+                Toast.makeText(this, "Hosting anchor… (~" + CLOUD_TTL_DAYS + "d)", Toast.LENGTH_SHORT).show());
+    }
+
+    /** HostQueue already patched the doc; just update this session's view. Main thread. */
+    private void onStarHosted(String docId) {
+        // Keep using the LOCAL anchor for rendering; the cloud ID is just for sharing with other users
+        runOnGl(() -> anchors.markRecent(docId));
+        Log.d(TAG, "Cloud hosting successful for " + docId + ", keeping local anchor for rendering");
+        Toast.makeText(this, "Star cloud hosted ✓ Other users can now see it.", Toast.LENGTH_SHORT).show();
+    }
+
+    private void onStarHostFailed(String docId, CloudAnchorTasks.Outcome outcome,
+                                  @Nullable Anchor.CloudAnchorState st) {
+        // Determine the specific error for better user messaging
+        String userMessage;
+        if (outcome == CloudAnchorTasks.Outcome.TIMEOUT) {
+            userMessage = "It took too long to reach the Cloud Anchor service.";
+        } else switch (st != null ? st : Anchor.CloudAnchorState.ERROR_INTERNAL) {
+            case ERROR_HOSTING_DATASET_PROCESSING_FAILED:
+                userMessage = "Couldn't process the visual data. Try better lighting or more textured surfaces.";
+                break;
+            case ERROR_NOT_AUTHORIZED:
+                userMessage = "Authentication failed. Please check your ARCore configuration.";
+                break;
+            case ERROR_SERVICE_UNAVAILABLE:
+                userMessage = "Cloud Anchor service is temporarily unavailable. Please try again later.";
+                break;
+            case ERROR_RESOURCE_EXHAUSTED:
+                userMessage = "Too many cloud anchor requests. Please try again later.";
+                break;
+            default:
+                userMessage = "Cloud hosting failed: " + (st != null ? st : outcome);
+                break;
+        }
+
+        // REMOVE THE STAR FROM VISIBLE ANCHORS
+        runOnGl(() -> anchors.unmarkRecent(docId));
+        unmountPrevEgg(docId);
+
+        // Show error message - star will NOT be visible
+        uiShowMessage("Cloud Hosting Failed",
+                "Your star could not be hosted in the cloud. " +
+                        userMessage + " " +
+                        "Please try placing again with better lighting and surfaces.",
+                true);
     }
 
     private void enqueueQuizGenerationOnEggDoc(String eggDocId, String title, String description) {
@@ -2271,9 +2234,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         Map<String, Object> payload = new HashMap<>();
         payload.put("quizRequest", quizReq);
 
-        FirebaseFirestore.getInstance()
-                .collection(EGGS)
-                .document(eggDocId)
+        eggRepo.contentRef(eggDocId)
                 .set(payload, SetOptions.merge())
                 .addOnSuccessListener(v -> Log.d(TAG, "Quiz request queued inside egg doc."))
                 .addOnFailureListener(e -> Log.e(TAG, "Failed to queue quiz request.", e));
@@ -2439,30 +2400,24 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         return new float[]{0f, 0f, s, c};
     }
 
+    // ----- Quaternion utilities: allocating wrappers for the one-off callers -----
+    // Per-frame code uses PoseMath directly with its own scratch arrays.
     private static float[] yawToQuaternion(float yawDeg) {
-        float r = (float) Math.toRadians(yawDeg);
-        float s = (float) Math.sin(r * 0.5f), c = (float) Math.cos(r * 0.5f);
-        return new float[]{0f, s, 0f, c};
+        float[] q = new float[4];
+        PoseMath.yawToQuat(yawDeg, q);
+        return q;
     }
 
-    // ----- Quaternion utilities (ADD ONCE) -----
     private static float[] quatMul(float[] a, float[] b) {
-        // a ∘ b
-        return new float[] {
-                a[3]*b[0] + a[0]*b[3] + a[1]*b[2] - a[2]*b[1],
-                a[3]*b[1] - a[0]*b[2] + a[1]*b[3] + a[2]*b[0],
-                a[3]*b[2] + a[0]*b[1] - a[1]*b[0] + a[2]*b[3],
-                a[3]*b[3] - a[0]*b[0] - a[1]*b[1] - a[2]*b[2]
-        };
+        float[] q = new float[4];
+        PoseMath.quatMul(a, b, q);
+        return q;
     }
 
     private static float[] quatAxisAngle(float ax, float ay, float az, float deg) {
-        float rad = (float) Math.toRadians(deg);
-        float s = (float) Math.sin(rad * 0.5f), c = (float) Math.cos(rad * 0.5f);
-        float len = (float) Math.sqrt(ax*ax + ay*ay + az*az);
-        if (len < 1e-6f) return new float[]{0,0,0,1};
-        ax /= len; ay /= len; az /= len;
-        return new float[]{ ax*s, ay*s, az*s, c };
+        float[] q = new float[4];
+        PoseMath.axisAngle(ax, ay, az, deg, q);
+        return q;
     }
 
     private static Pose poseWithExtraRotation(Pose base, float[] extraQ) {
@@ -2524,15 +2479,11 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
                     // Reset placement state
                     try {
-                        if (currentPlacedAnchor != null) {
-                            currentPlacedAnchor.detach();
-                            lastStableT.remove(currentPlacedAnchor);
-                        }
+                        if (currentPlacedAnchor != null) currentPlacedAnchor.detach();
                     } catch (Throwable ignore) {}
                     currentPlacedAnchor = null;
-                    try { wrappedAnchors.clear(); } catch (Throwable ignore) {}
+                    runOnGl(() -> anchors.removeAll(AnchorRegistry.PREVIEW));
                     localAnchorForHosting = null;
-                    hostState = HostState.IDLE;
 
                     placementModeActive = true;
                     readyPromptShown = true;
@@ -2673,66 +2624,104 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         });
     }
 
-    private static String cellKey(double lat, double lng) {
-        long cy = (long) Math.floor(lat / CELL_DEG);
-        long cx = (long) Math.floor(lng / CELL_DEG);
-        return cy + "_" + cx;
-    }
-
-    private static List<String> neighborKeys(double lat, double lng) {
-        long cy = (long) Math.floor(lat / CELL_DEG);
-        long cx = (long) Math.floor(lng / CELL_DEG);
-        List<String> keys = new ArrayList<>(9);
-        for (long dy = -1; dy <= 1; dy++) {
-            for (long dx = -1; dx <= 1; dx++) {
-                keys.add((cy + dy) + "_" + (cx + dx));
-            }
-        }
-        return keys;
-    }
-
     private void maybeLoadPreviousEggs(Earth earth, GeospatialPose camGp) {
         if (SHOW_ONLY_JUST_PLACED) return;
-        long now = System.currentTimeMillis();
-        if (previousEggsLoadedOnce && (now - lastPrevLoadAtMs) < PREV_RELOAD_MS) return;
 
         // Require valid Earth tracking + pose
         if (earth == null || earth.getTrackingState() != TrackingState.TRACKING || camGp == null) return;
 
-        lastPrevLoadAtMs = now;
-        List<String> keys = neighborKeys(camGp.getLatitude(), camGp.getLongitude());
+        // Cheap when the camera hasn't moved SUBS_UPDATE_STEP_M; otherwise attaches/detaches cell listeners.
+        boolean moved = cellSubscriptions.update(camGp.getLatitude(), camGp.getLongitude());
+        cellPrefetcher.onPose(camGp.getLatitude(), camGp.getLongitude(), System.currentTimeMillis());
+        if (moved || mountSweepPending) {
+            mountSweepPending = false;
+            mountNearbyFromIndex(earth, camGp);
+        }
+
+        long nowMs = System.currentTimeMillis();
+        if (nowMs - lastEvictCheckMs >= EVICT_CHECK_MS) {
+            lastEvictCheckMs = nowMs;
+            evictFarAnchors(earth, camGp);
+        }
+        resolveScheduler.pump(camGp.getLatitude(), camGp.getLongitude());
+
+        long now = System.currentTimeMillis();
+        if (now - lastResolveMetricsLogMs >= RESOLVE_METRICS_LOG_MS) {
+            lastResolveMetricsLogMs = now;
+            Log.d(TAG, "resolve: " + resolveScheduler.metrics());
+        }
+    }
 
+    /** Record the drawable saved anchors with their geo pose; see {@link WarmSnapshot}. Main thread, before session.pause(). */
+    private void captureWarmSnapshot() {
+        List<WarmSnapshot.Entry> out = new ArrayList<>();
         try {
-            Query q = FirebaseFirestore.getInstance()
-                    .collection(EGGS)
-                    .whereIn("cellKey", keys)
-                    .limit(FIRESTORE_FETCH_LIMIT);
-
-            q.get().addOnSuccessListener(qs -> {
-                List<DocumentSnapshot> docs = (qs != null) ? qs.getDocuments() : null;
-                if (docs == null || docs.isEmpty()) {
-                    Log.d(TAG, "cellKey query returned 0 docs; falling back to unfiltered fetch.");
-                    fallbackPrevFetch(earth, camGp);
-                    return;
+            Earth earth = (session != null) ? session.getEarth() : null;
+            if (earth != null && earth.getTrackingState() == TrackingState.TRACKING) {
+                for (WrappedAnchor w : anchors.snapshot(AnchorRegistry.SAVED)) {
+                    String docId = w.getDocId();
+                    Anchor a = w.getAnchor();
+                    if (docId == null || a == null || a.getTrackingState() != TrackingState.TRACKING) continue;
+                    boolean recent = anchors.isRecent(docId);
+                    if (SHOW_ONLY_JUST_PLACED && !recent) continue; // not drawn anyway
+                    GeospatialPose gp = earth.getGeospatialPose(a.getPose());
+                    out.add(new WarmSnapshot.Entry(docId, mountKindOf(eggIndex.get(docId)),
+                            gp.getLatitude(), gp.getLongitude(), gp.getAltitude(),
+                            gp.getEastUpSouthQuaternion(), recent,
+                            w.getModelType().name(), w.getTitle(), w.getThumbUrl()));
                 }
-                mountPreviousEggsFromSnapshot(earth, camGp, docs, true);
-            }).addOnFailureListener(e -> {
-                Log.w(TAG, "cellKey query failed, falling back to full fetch", e);
-                fallbackPrevFetch(earth, camGp);
-            });
+            }
         } catch (Throwable t) {
-            Log.w(TAG, "cellKey query not supported or failed to build; falling back", t);
-            fallbackPrevFetch(earth, camGp);
+            Log.w(TAG, "warm snapshot skipped", t);
+            out.clear();
+        }
+        warmSnapshot.save(out);
+    }
+
+    /**
+     * Re-create geo/terrain eggs from the onPause snapshot with plain createAnchor, nearest first up
+     * to the live cap. Anchors that survived the pause are kept as they are. GL thread.
+     */
+    private void applyWarmRestore(Earth earth, GeospatialPose camGp) {
+        List<WarmSnapshot.Entry> warm = pendingWarm;
+        pendingWarm = null;
+        if (warm == null || warm.isEmpty()) return;
+
+        final double camLat = camGp.getLatitude(), camLng = camGp.getLongitude();
+        final double cos = GeoMath.cosLat(camLat);
+        List<WarmSnapshot.Entry> todo = new ArrayList<>(warm);
+        Collections.sort(todo, (x, y) -> Double.compare(
+                GeoMath.equirectMeters(camLat, camLng, x.lat, x.lng, cos),
+                GeoMath.equirectMeters(camLat, camLng, y.lat, y.lng, cos)));
+
+        int restored = 0;
+        for (WarmSnapshot.Entry e : todo) {
+            if (e.recent) anchors.markRecent(e.docId);
+            if (anchors.contains(e.docId)) continue;                // still alive from before the pause
+            if (e.kind == ResolveScheduler.Kind.CLOUD) continue;    // resolved normally
+            if (anchors.count(AnchorRegistry.SAVED) >= MAX_LIVE_ANCHORS) break;
+            if (!e.recent && GeoMath.equirectMeters(camLat, camLng, e.lat, e.lng, cos) > EVICT_RADIUS_M) continue;
+            try {
+                Anchor a = earth.createAnchor(e.lat, e.lng, e.alt, e.qx, e.qy, e.qz, e.qw);
+                resolveScheduler.markMounted(e.docId);
+                ModelType mType = "PUZZLE".equals(e.modelType) ? ModelType.PUZZLE : ModelType.STAR;
+                addSavedAnchor(new WrappedAnchor(a, null, e.docId, System.currentTimeMillis() + 2500L,
+                        mType, e.title, e.thumbUrl));
+                restored++;
+            } catch (Throwable t) {
+                Log.w(TAG, "warm restore failed for " + e.docId, t);
+            }
         }
+        Log.d(TAG, "warm restore: " + restored + "/" + warm.size() + " anchor(s)");
     }
 
-    private void fallbackPrevFetch(Earth earth, GeospatialPose camGp) {
-        FirebaseFirestore.getInstance()
-                .collection(EGGS)
-                .limit(FIRESTORE_FETCH_LIMIT)
-                .get()
-                .addOnSuccessListener(qs -> mountPreviousEggsFromSnapshot(earth, camGp, qs.getDocuments(), false))
-                .addOnFailureListener(e -> Log.w(TAG, "Previous eggs fetch failed", e));
+    private static ResolveScheduler.Kind mountKindOf(@Nullable EggSummary egg) {
+        if (egg == null) return ResolveScheduler.Kind.GEO; // own placement not in the index yet
+        String type = egg.anchorType;
+        if (egg.cloudId != null && "CLOUD".equalsIgnoreCase(type)) return ResolveScheduler.Kind.CLOUD;
+        boolean geo = type != null && (type.equalsIgnoreCase("GEO")
+                || type.equalsIgnoreCase("GEO+CLOUD") || type.equalsIgnoreCase("GEO_PUZZLE"));
+        return (geo && egg.alt != null) ? ResolveScheduler.Kind.GEO : ResolveScheduler.Kind.TERRAIN;
     }
 
     private void setStarTextureIndex(int idx) {
@@ -2760,180 +2749,23 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         virtualObjectAlbedoTexture = t;
     }
 
-    private void mountPreviousEggsFromSnapshot(
-            Earth earth,
-            GeospatialPose camGp,
-            List<DocumentSnapshot> docs,
-            boolean cellFiltered
-    ) {
+    private void mountNearbyFromIndex(Earth earth, GeospatialPose camGp) {
         int added = 0; // NOTE: additions happen on the GL thread; this counter is best-effort (SHOW_LOAD_TOAST is false by default).
 
-        if (earth == null || earth.getTrackingState() != TrackingState.TRACKING || camGp == null) {
-            return;
-        }
-
-        for (DocumentSnapshot snap : docs) {
-            final String docId = snap.getId();
-            if (mountedPrevDocIds.contains(docId)) continue;
-
-            // Pull fields
-            Double lat = (snap.getGeoPoint("geo") != null) ? snap.getGeoPoint("geo").getLatitude() : null;
-            Double lng = (snap.getGeoPoint("geo") != null) ? snap.getGeoPoint("geo").getLongitude() : null;
-            Double alt = snap.getDouble("alt");
-            String type = snap.getString("anchorType");
-            String cloudId = snap.getString("cloudId");
-            Double heading = snap.getDouble("heading");
-            if (heading == null) heading = 0.0;
-
-            // Choose STAR vs PUZZLE based on saved "model" field
-            String modelField = snap.getString("model"); // "star" or "puzzle"
-            final ModelType mType = (modelField != null && modelField.equalsIgnoreCase("puzzle"))
-                    ? ModelType.PUZZLE : ModelType.STAR;
-
-
-            // Prefer saved local rotation; else face camera heading + keep upright
-            Float lqx = (snap.getDouble("localQx") != null) ? snap.getDouble("localQx").floatValue() : null;
-            Float lqy = (snap.getDouble("localQy") != null) ? snap.getDouble("localQy").floatValue() : null;
-            Float lqz = (snap.getDouble("localQz") != null) ? snap.getDouble("localQz").floatValue() : null;
-            Float lqw = (snap.getDouble("localQw") != null) ? snap.getDouble("localQw").floatValue() : null;
-
-            final float[] q = (lqx != null && lqy != null && lqz != null && lqw != null)
-                    ? new float[]{ lqx, lqy, lqz, lqw }
-                    : quatMul(yawToQuaternion(heading.floatValue()), MODEL_UPRIGHT_FIX);
-
-            // Cloud-only fallback if no geo
-            if (lat == null || lng == null) {
-                if (cloudId != null && !cloudId.isEmpty()) {
-                    final String fCloudId = cloudId;
-                    runOnGl(() -> {
-                        try {
-                            if (session == null) return;
-                            if (mountedPrevDocIds.contains(docId)) return;
-                            Anchor a = session.resolveCloudAnchor(fCloudId);
-                            long grace = System.currentTimeMillis() + 2500L;
-                            prevAnchors.add(new WrappedAnchor(a, null, docId, grace, mType));
-                            mountedPrevDocIds.add(docId);
-                        } catch (Throwable t) {
-                            Log.w(TAG, "Failed to resolve cloud-only egg " + docId, t);
-                        }
-                    });
-                }
-                continue;
-            }
-
-            // ---- Distance gate: only mount items within MOUNT_RADIUS_M of the camera ----
-            if (!isWithinMeters(camGp.getLatitude(), camGp.getLongitude(), lat, lng, MOUNT_RADIUS_M)) {
-                continue; // skip far-away eggs so they don't clutter the view
-            }
-
+        // ---- Distance gate: only mount items within MOUNT_RADIUS_M of the camera ----
+        EggSpatialIndex.Hits hits = new EggSpatialIndex.Hits();
+        eggIndex.queryRadius(camGp.getLatitude(), camGp.getLongitude(), MOUNT_RADIUS_M, hits);
+        // hits are nearest-first; stopping at the live cap keeps mount and evict from fighting
+        for (int i = 0; i < hits.count && i < MAX_LIVE_ANCHORS; i++) {
             // Don't mount right at the camera position
-            if (isWithinMeters(camGp.getLatitude(), camGp.getLongitude(), lat, lng, MIN_LOAD_METERS)) {
-                continue;
-            }
-
+            if (hits.distM[i] <= MIN_LOAD_METERS) continue;
+            EggSummary egg = hits.eggs[i];
+            if (resolveScheduler.isKnown(egg.id)) continue;
             try {
-                boolean wantsCloudOnly = (cloudId != null && !cloudId.isEmpty()) &&
-                        (type != null && type.equalsIgnoreCase("CLOUD"));
-                boolean wantsGeo = (type != null && (type.equalsIgnoreCase("GEO")
-                        || type.equalsIgnoreCase("GEO+CLOUD")
-                        || type.equalsIgnoreCase("GEO_PUZZLE")));
-
-                final double flat = lat, flng = lng;
-                final Double falt = alt; // may be null
-                final String fCloudId = cloudId;
-
-                if (wantsGeo && alt != null) {
-                    runOnGl(() -> {
-                        try {
-                            if (earth.getTrackingState() != TrackingState.TRACKING) return;
-                            if (mountedPrevDocIds.contains(docId)) return;
-                            Anchor a = earth.createAnchor(flat, flng, falt, q[0], q[1], q[2], q[3]);
-                            long grace = System.currentTimeMillis() + 2500L;
-                            prevAnchors.add(new WrappedAnchor(a, null, docId, grace, mType));
-                            mountedPrevDocIds.add(docId);
-                        } catch (Throwable t) {
-                            Log.w(TAG, "earth.createAnchor failed for " + docId, t);
-                        }
-                    });
-                    added++;
-                } else if (wantsGeo) {
-                    final float approxAlt = (float) (falt != null ? falt : camGp.getAltitude());
-                    runOnGl(() -> {
-                        try {
-                            if (earth.getTrackingState() != TrackingState.TRACKING) return;
-                            earth.resolveAnchorOnTerrainAsync(
-                                    flat, flng, approxAlt, q[0], q[1], q[2], q[3],
-                                    (terrainAnchor, state) -> runOnGl(() -> {
-                                        if (state == Anchor.TerrainAnchorState.SUCCESS && terrainAnchor != null) {
-                                            try {
-                                                if (mountedPrevDocIds.contains(docId)) {
-                                                    try { terrainAnchor.detach(); } catch (Throwable ignore) {}
-                                                    return;
-                                                }
-                                                long grace = System.currentTimeMillis() + 2500L;
-                                                prevAnchors.add(new WrappedAnchor(terrainAnchor, null, docId, grace, mType));
-                                                mountedPrevDocIds.add(docId);
-                                            } catch (Throwable ignore) { }
-                                        } else {
-                                            if (terrainAnchor != null) {
-                                                try { terrainAnchor.detach(); } catch (Throwable ignore) {}
-                                            }
-                                        }
-                                    })
-                            );
-                        } catch (Throwable t) {
-                            Log.w(TAG, "resolveAnchorOnTerrainAsync failed for " + docId, t);
-                        }
-                    });
-                    added++;
-                } else if (wantsCloudOnly) {
-                    runOnGl(() -> {
-                        try {
-                            if (session == null) return;
-                            if (mountedPrevDocIds.contains(docId)) return;
-                            Anchor a = session.resolveCloudAnchor(fCloudId);
-                            long grace = System.currentTimeMillis() + 2500L;
-                            prevAnchors.add(new WrappedAnchor(a, null, docId, grace, mType));
-                            mountedPrevDocIds.add(docId);
-                        } catch (Throwable t) {
-                            Log.w(TAG, "resolveCloudAnchor failed for " + docId, t);
-                        }
-                    });
-                    added++;
-                } else {
-                    // Generic fallback: try terrain with our rotation
-                    final float approxAlt = (float) (falt != null ? falt : camGp.getAltitude());
-                    runOnGl(() -> {
-                        try {
-                            if (earth.getTrackingState() != TrackingState.TRACKING) return;
-                            earth.resolveAnchorOnTerrainAsync(
-                                    flat, flng, approxAlt, q[0], q[1], q[2], q[3],
-                                    (terrainAnchor, state) -> runOnGl(() -> {
-                                        if (state == Anchor.TerrainAnchorState.SUCCESS && terrainAnchor != null) {
-                                            try {
-                                                if (mountedPrevDocIds.contains(docId)) {
-                                                    try { terrainAnchor.detach(); } catch (Throwable ignore) {}
-                                                    return;
-                                                }
-                                                long grace = System.currentTimeMillis() + 2500L;
-                                                prevAnchors.add(new WrappedAnchor(terrainAnchor, null, docId, grace, mType));
-                                                mountedPrevDocIds.add(docId);
-                                            } catch (Throwable ignore) { }
-                                        } else {
-                                            if (terrainAnchor != null) {
-                                                try { terrainAnchor.detach(); } catch (Throwable ignore) {}
-                                            }
-                                        }
-                                    })
-                            );
-                        } catch (Throwable t) {
-                            Log.w(TAG, "resolveAnchorOnTerrainAsync (fallback) failed for " + docId, t);
-                        }
-                    });
-                    added++;
-                }
+                mountGeoEgg(earth, camGp, egg);
+                added++;
             } catch (Throwable t) {
-                Log.w(TAG, "Failed to mount previous egg " + docId, t);
+                Log.w(TAG, "Failed to mount previous egg " + egg.id, t);
             }
         }
 
@@ -2943,39 +2775,174 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                     Toast.makeText(HelloArActivity.this,
                             "Loaded " + addedCount + " nearby item(s).", Toast.LENGTH_SHORT).show());
         }
-        previousEggsLoadedOnce = true;
     }
-    private static boolean isWithinMeters(double lat1, double lon1, double lat2, double lon2, double meters) {
-        double R = 6371000.0;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2)*Math.sin(dLat/2)
-                + Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon/2)*Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return (R * c) <= meters;
+
+    private static ModelType modelTypeOf(EggSummary egg) {
+        return egg.isPuzzle() ? ModelType.PUZZLE : ModelType.STAR;
+    }
+
+    /** Prefer saved local rotation; else face the saved heading and keep upright. */
+    private static float[] mountRotationOf(EggSummary egg) {
+        return (egg.localQ != null)
+                ? egg.localQ
+                : quatMul(yawToQuaternion((float) egg.heading), MODEL_UPRIGHT_FIX);
+    }
+
+    /**
+     * Detach saved anchors that are too far or over the live cap. Own placements and anchors whose
+     * egg isn't in the index are pinned. GL thread.
+     */
+    private void evictFarAnchors(Earth earth, GeospatialPose camGp) {
+        final double camLat = camGp.getLatitude(), camLng = camGp.getLongitude();
+        final double cos = GeoMath.cosLat(camLat);
+        int pinned = 0;
+        anchorBudget.begin();
+        for (int i = 0; i < anchors.size(); i++) {
+            if (!anchors.has(i, AnchorRegistry.SAVED)) continue;
+            String docId = anchors.docIdAt(i);
+            EggSummary egg = (docId != null && !anchors.has(i, AnchorRegistry.RECENT))
+                    ? eggIndex.get(docId) : null;
+            if (egg == null || !egg.hasGeo) { pinned++; continue; }
+            anchorBudget.offer(docId, (float) GeoMath.equirectMeters(camLat, camLng, egg.lat, egg.lng, cos));
+        }
+        int n = anchorBudget.select(pinned, evictBuf);
+        if (n == 0) return;
+
+        for (int i = 0; i < n; i++) {
+            String docId = evictBuf[i];
+            evictBuf[i] = null;
+            WrappedAnchor w = anchors.remove(docId);
+            if (w != null) {
+                Anchor a = w.getAnchor();
+                try {
+                    if (a != null && a.getTrackingState() == TrackingState.TRACKING) {
+                        GeospatialPose gp = earth.getGeospatialPose(a.getPose());
+                        anchorBudget.remember(docId, gp.getLatitude(), gp.getLongitude(),
+                                gp.getAltitude(), gp.getEastUpSouthQuaternion());
+                    }
+                } catch (Throwable ignore) {}
+                detachQuietly(w);
+            }
+            resolveScheduler.forget(docId); // lets the index sweep mount it again on return
+        }
+        Log.d(TAG, "evicted " + n + " anchor(s), live=" + anchors.size());
+    }
+
+    private void mountCloudEgg(EggSummary egg) {
+        final String docId = egg.id;
+        final String fCloudId = egg.cloudId;
+        final ModelType mType = modelTypeOf(egg);
+        resolveScheduler.submit(docId, ResolveScheduler.Kind.CLOUD, egg.hasGeo, egg.lat, egg.lng, ticket -> {
+            // pump() runs on the GL thread, so we can touch the session directly
+            if (session == null) { ticket.complete(false); return; }
+            CloudAnchorTasks.Handle h = CloudAnchorTasks.resolve(session, fCloudId, CLOUD_RESOLVE_TIMEOUT_MS,
+                    (outcome, anchor, state) -> runOnGl(() -> {
+                        boolean ok = (outcome == CloudAnchorTasks.Outcome.SUCCESS);
+                        if (!ok) Log.w(TAG, "cloud resolve " + docId + ": " + outcome + (state != null ? " " + state : ""));
+                        if (ticket.complete(ok)) {
+                            long grace = System.currentTimeMillis() + 2500L;
+                            addSavedAnchor(new WrappedAnchor(anchor, null, docId, grace, mType, egg.title, egg.thumbUrl));
+                        } else if (anchor != null) {
+                            try { anchor.detach(); } catch (Throwable ignore) {}
+                        }
+                    }));
+            ticket.setOnCancel(h::cancel); // out of range / forgotten: abort the ARCore future
+        });
     }
-    /** Project a world-space point to screen pixels. Returns {xPx, yPx, wClip}, or null if behind camera. */
-    @Nullable
-    private float[] worldToScreenPx(float wx, float wy, float wz) {
-        float[] world = new float[]{wx, wy, wz, 1f};
-        float[] viewPos = new float[4];
-        Matrix.multiplyMV(viewPos, 0, viewMatrix, 0, world, 0);
 
-        // In the ARCore OpenGL camera, points in front typically have view z <= 0
-        if (viewPos[2] > 0f) return null; // behind camera
+    private void mountGeoEgg(Earth earth, GeospatialPose camGp, EggSummary egg) {
+        final String docId = egg.id;
+        final String type = egg.anchorType;
+        final ModelType mType = modelTypeOf(egg);
+        final float[] q = mountRotationOf(egg);
 
-        float[] clip = new float[4];
-        Matrix.multiplyMV(clip, 0, projectionMatrix, 0, viewPos, 0);
-        float w = clip[3];
-        if (Math.abs(w) < 1e-6f) return null;
+        boolean wantsCloudOnly = (egg.cloudId != null) &&
+                (type != null && type.equalsIgnoreCase("CLOUD"));
+        boolean wantsGeo = (type != null && (type.equalsIgnoreCase("GEO")
+                || type.equalsIgnoreCase("GEO+CLOUD")
+                || type.equalsIgnoreCase("GEO_PUZZLE")));
 
-        float ndcX = clip[0] / w;
-        float ndcY = clip[1] / w;
+        final double flat = egg.lat, flng = egg.lng;
+        final Double falt = egg.alt; // may be null
 
-        float sx = ((ndcX + 1f) * 0.5f) * viewportWidth;
-        float sy = ((1f - ndcY) * 0.5f) * viewportHeight;
-        return new float[]{sx, sy, w};
+        // Jobs are started from resolveScheduler.pump(), i.e. on the GL thread, nearest egg first.
+        if (wantsGeo && falt != null) {
+            resolveScheduler.submit(docId, ResolveScheduler.Kind.GEO, true, flat, flng, ticket -> {
+                if (earth.getTrackingState() != TrackingState.TRACKING) { ticket.complete(false); return; }
+                Anchor a = earth.createAnchor(flat, flng, falt, q[0], q[1], q[2], q[3]);
+                if (ticket.complete(true)) {
+                    long grace = System.currentTimeMillis() + 2500L;
+                    addSavedAnchor(new WrappedAnchor(a, null, docId, grace, mType, egg.title, egg.thumbUrl));
+                } else {
+                    try { a.detach(); } catch (Throwable ignore) {}
+                }
+            });
+        } else if (wantsCloudOnly) {
+            mountCloudEgg(egg);
+        } else if (anchorBudget.recall(docId) != null) {
+            // Evicted earlier: reuse the pose the terrain resolve gave us instead of resolving again
+            final double[] r = anchorBudget.recall(docId);
+            resolveScheduler.submit(docId, ResolveScheduler.Kind.GEO, true, flat, flng, ticket -> {
+                if (earth.getTrackingState() != TrackingState.TRACKING) { ticket.complete(false); return; }
+                Anchor a = earth.createAnchor(r[0], r[1], r[2], (float) r[3], (float) r[4], (float) r[5], (float) r[6]);
+                if (ticket.complete(true)) {
+                    long grace = System.currentTimeMillis() + 2500L;
+                    addSavedAnchor(new WrappedAnchor(a, null, docId, grace, mType, egg.title, egg.thumbUrl));
+                } else {
+                    try { a.detach(); } catch (Throwable ignore) {}
+                }
+            });
+        } else {
+            // GEO without altitude, or generic fallback: stand on the terrain at the stored
+            // height-above-terrain (0 if none). Cached terrain altitude skips the resolve entirely.
+            final double hat = (egg.heightAboveTerrain != null) ? egg.heightAboveTerrain : 0.0;
+            final String tKey = TerrainCache.keyOf(flat, flng);
+            final Double terrainAlt = terrainCache.peek(tKey);
+            if (terrainAlt == null) {
+                // not checked on disk yet; sweep again once it's in memory
+                terrainCache.load(tKey, () -> mountSweepPending = true);
+                return;
+            }
+            if (!Double.isNaN(terrainAlt)) {
+                resolveScheduler.submit(docId, ResolveScheduler.Kind.GEO, true, flat, flng, ticket -> {
+                    if (earth.getTrackingState() != TrackingState.TRACKING) { ticket.complete(false); return; }
+                    Anchor a = earth.createAnchor(flat, flng, terrainAlt + hat, q[0], q[1], q[2], q[3]);
+                    if (ticket.complete(true)) {
+                        long grace = System.currentTimeMillis() + 2500L;
+                        addSavedAnchor(new WrappedAnchor(a, null, docId, grace, mType, egg.title, egg.thumbUrl));
+                    } else {
+                        try { a.detach(); } catch (Throwable ignore) {}
+                    }
+                });
+                return;
+            }
+            resolveScheduler.submit(docId, ResolveScheduler.Kind.TERRAIN, true, flat, flng, ticket -> {
+                if (earth.getTrackingState() != TrackingState.TRACKING) { ticket.complete(false); return; }
+                earth.resolveAnchorOnTerrainAsync(
+                        flat, flng, (float) hat, q[0], q[1], q[2], q[3],
+                        (terrainAnchor, state) -> runOnGl(() -> {
+                            boolean ok = (state == Anchor.TerrainAnchorState.SUCCESS && terrainAnchor != null);
+                            if (ok && terrainAnchor.getTrackingState() == TrackingState.TRACKING) {
+                                try {
+                                    GeospatialPose tp = earth.getGeospatialPose(terrainAnchor.getPose());
+                                    terrainCache.put(tKey, tp.getAltitude() - hat);
+                                } catch (Throwable ignore) {}
+                            }
+                            if (ticket.complete(ok)) {
+                                long grace = System.currentTimeMillis() + 2500L;
+                                addSavedAnchor(new WrappedAnchor(terrainAnchor, null, docId, grace, mType, egg.title, egg.thumbUrl));
+                            } else if (terrainAnchor != null) {
+                                try { terrainAnchor.detach(); } catch (Throwable ignore) {}
+                            }
+                        })
+                );
+            });
+        }
+    }
+    /** Project a world-space point to screen pixels into {@code out} = {xPx, yPx, wClip}; false if behind camera. */
+    private boolean worldToScreenPx(float wx, float wy, float wz, float[] out) {
+        return PoseMath.worldToScreen(frameCtx.viewProjectionMatrix, wx, wy, wz,
+                viewportWidth, viewportHeight, out);
     }
 
     private float pickRadiusPxFor(WrappedAnchor w) {
@@ -3009,20 +2976,17 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         WrappedAnchor bestRecent = null, bestOther = null;
         float bestRecentD2 = Float.MAX_VALUE, bestOtherD2 = Float.MAX_VALUE;
 
-        List<WrappedAnchor> all = new ArrayList<>();
-        all.addAll(prevAnchors);
-        all.addAll(wrappedAnchors);
+        if (!frameCtx.anchorsCurrent(anchors)) frameCtx.captureAnchors(anchors, ANCHOR_OF);
 
-        for (WrappedAnchor w : all) {
-            if (w == null) continue;
-            Anchor a = w.getAnchor();
-            if (a == null) continue;
-            TrackingState st = a.getTrackingState();
+        for (int slot = 0; slot < frameCtx.anchorCount(); slot++) {
+            if (!anchors.has(slot, AnchorRegistry.SAVED | AnchorRegistry.PREVIEW)) continue;
+            WrappedAnchor w = anchors.itemAt(slot);
+            TrackingState st = frameCtx.anchorState(slot);
             if (!(st == TrackingState.TRACKING || st == TrackingState.PAUSED)) continue;
 
-            Pose p = a.getPose();
-            float[] scr = worldToScreenPx(p.tx(), p.ty(), p.tz());
-            if (scr == null) continue;
+            final float px = frameCtx.anchorX(slot), py = frameCtx.anchorY(slot), pz = frameCtx.anchorZ(slot);
+            final float[] scr = sPickScreen;
+            if (!worldToScreenPx(px, py, pz, scr)) continue;
 
             float dx = scr[0] - xPx, dy = scr[1] - yPx;
             float d2 = dx * dx + dy * dy;
@@ -3035,10 +2999,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             // If miss and this is a PUZZLE (magnifier), also test a hotspot near the lens ring.
             if (!inside && w.getModelType() == ModelType.PUZZLE) {
                 // Estimate distance-scaled model height (same math as your constant-pixel sizing)
-                float[] wp = new float[]{ p.tx(), p.ty(), p.tz(), 1f };
-                float[] vpos = new float[4];
-                Matrix.multiplyMV(vpos, 0, viewMatrix, 0, wp, 0);
-                float zView = -vpos[2];
+                float zView = PoseMath.viewDepth(viewMatrix, px, py, pz);
                 zView = Math.max(0.05f, Math.min(50f, zView));
                 float fyPx = 0.5f * Math.max(1, viewportHeight) * projectionMatrix[5];
                 float targetHeightM = (PUZZLE_TARGET_PX * zView) / Math.max(1e-6f, fyPx);
@@ -3047,19 +3008,16 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 float lensOffsetM = 0.40f * targetHeightM;
 
                 // Extract yaw from quaternion (same convention as yawToQuaternion)
-                float[] q = new float[]{ p.qx(), p.qy(), p.qz(), p.qw() };
-                float siny_cosp = 2f * (q[3]*q[1] + q[0]*q[2]);
-                float cosy_cosp = 1f - 2f * (q[1]*q[1] + q[2]*q[2]);
-                float yaw = (float) Math.atan2(siny_cosp, cosy_cosp); // radians
+                frameCtx.anchorRotation(slot, sAnchorQ);
+                float yaw = PoseMath.yawOf(sAnchorQ); // radians
 
                 // Lens hotspot world position (forward in XZ from pivot)
-                float lx = p.tx() + (float) Math.sin(yaw) * lensOffsetM;
-                float ly = p.ty();
-                float lz = p.tz() + (float) Math.cos(yaw) * lensOffsetM;
+                float lx = px + (float) Math.sin(yaw) * lensOffsetM;
+                float ly = py;
+                float lz = pz + (float) Math.cos(yaw) * lensOffsetM;
 
-                float[] scr2 = worldToScreenPx(lx, ly, lz);
-                if (scr2 != null) {
-                    float dx2 = scr2[0] - xPx, dy2 = scr2[1] - yPx;
+                if (worldToScreenPx(lx, ly, lz, scr)) {
+                    float dx2 = scr[0] - xPx, dy2 = scr[1] - yPx;
                     float d2Lens = dx2 * dx2 + dy2 * dy2;
                     if (d2Lens <= r2) {
                         inside = true;
@@ -3071,7 +3029,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             if (!inside) continue;
 
             // Prioritize the current user's recent placement
-            if (w.getDocId() != null && currentSessionRecentDocIds.contains(w.getDocId())) {
+            if (anchors.isRecent(w.getDocId())) {
                 if (usedD2 < bestRecentD2) {
                     bestRecentD2 = usedD2;
                     bestRecent = w;
@@ -3096,7 +3054,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             else if (haveGeo)       body = "Puzzle saved by location ✓\nIt may appear slightly offset.\nTap OK to place again.";
             else                    body = "Puzzle saved ✓\nWe’ll geo-lock it when tracking improves.\nTap OK to place again.";
         } else {
-            if (hostedCloudId != null) body = "Star saved and cloud hosted ✓\nOther users can now see it.\nTap OK to place again.";
+            if (hostQueue.stateOf(lastPlacedDocId) == HostQueue.State.DONE) body = "Star saved and cloud hosted ✓\nOther users can now see it.\nTap OK to place again.";
             else                       body = "Star saved locally ✓\nTap OK to place again.";
         }
         uiShowMessage(title, body, true); // pinned until user taps OK
@@ -3140,17 +3098,17 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             return;
         }
 
-        FirebaseFirestore.getInstance().collection(EGGS).document(docId).get()
-                .addOnSuccessListener(doc -> runOnUiThread(() -> {
+        loadEggWithContent(docId,
+                (doc, content) -> runOnUiThread(() -> {
                     String t = doc.getString("title");
-                    String d = doc.getString("description");
+                    String d = contentString(doc, content, "description");
                     new androidx.appcompat.app.AlertDialog.Builder(HelloArActivity.this)
                             .setTitle((t != null && !t.isEmpty()) ? t : fallbackTitle)
                             .setMessage((d != null && !d.isEmpty()) ? d : "(no description)")
                             .setPositiveButton("OK", null)
                             .show();
-                }))
-                .addOnFailureListener(e -> runOnUiThread(() -> new androidx.appcompat.app.AlertDialog.Builder(HelloArActivity.this)
+                }),
+                e -> runOnUiThread(() -> new androidx.appcompat.app.AlertDialog.Builder(HelloArActivity.this)
                         .setTitle(fallbackTitle)
                         .setMessage("Failed to load details: " + e.getMessage())
                         .setPositiveButton("OK", null)
@@ -3172,7 +3130,7 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 if (session == null) return;
 
                 // Skip if already mounted
-                if (mountedPrevDocIds.contains(docId)) {
+                if (resolveScheduler.isKnown(docId)) {
                     Log.d(TAG, "addPersistentAnchorForSaved: already mounted " + docId);
                     return;
                 }
@@ -3193,8 +3151,20 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 }
                 // PRIORITY 2: Cloud anchor (only if we have cloud ID and no local anchor)
                 else if (cloudId != null && !cloudId.isEmpty()) {
-                    a = session.resolveCloudAnchor(cloudId);
                     Log.d(TAG, "Resolving cloud anchor for " + docId);
+                    resolveScheduler.markMounted(docId);
+                    CloudAnchorTasks.resolve(session, cloudId, CLOUD_RESOLVE_TIMEOUT_MS,
+                            (outcome, resolved, state) -> runOnGl(() -> {
+                                if (outcome == CloudAnchorTasks.Outcome.SUCCESS && resolveScheduler.isKnown(docId)) {
+                                    long grace = System.currentTimeMillis() + 2500L;
+                                    addSavedAnchor(new WrappedAnchor(resolved, null, docId, grace, modelType));
+                                } else {
+                                    if (resolved != null) try { resolved.detach(); } catch (Throwable ignore) {}
+                                    if (outcome != CloudAnchorTasks.Outcome.SUCCESS) resolveScheduler.forget(docId);
+                                    Log.w(TAG, "addPersistentAnchorForSaved: cloud resolve " + docId + " " + outcome);
+                                }
+                            }));
+                    return;
                 }
                 // PRIORITY 3: Geo placement
                 else if (gp != null && earth != null && earth.getTrackingState() == TrackingState.TRACKING) {
@@ -3212,8 +3182,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
 
                 if (a != null) {
                     long grace = System.currentTimeMillis() + 2500L;
-                    prevAnchors.add(new WrappedAnchor(a, null, docId, grace, modelType));
-                    mountedPrevDocIds.add(docId);
+                    addSavedAnchor(new WrappedAnchor(a, null, docId, grace, modelType));
+                    resolveScheduler.markMounted(docId);
                     Log.d(TAG, "Successfully mounted anchor for " + docId + " (type: " +
                             (existingLocalAnchor != null ? "LOCAL" :
                                     cloudId != null ? "CLOUD" : "GEO") + ")");
@@ -3235,17 +3205,27 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             ModelType modelType) {
         addPersistentAnchorForSaved(docId, gp, localQ, cloudId, modelType, null);
     }
+    /**
+     * Items for the nearby list: indexed eggs within MOUNT_RADIUS_M of the geospatial camera, plus
+     * mounted anchors the index doesn't know about (saved this session without a geo fix).
+     */
     private java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item>
-    gatherNearbyAnchors() {
+    gatherNearbyAnchors(@Nullable GeospatialPose camGp) {
         java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> out = new java.util.ArrayList<>();
+
+        if (camGp != null) {
+            out.addAll(nearbyItemsFromIndex(camGp.getLatitude(), camGp.getLongitude(), MOUNT_RADIUS_M));
+            out.removeIf(it -> it.distanceM < MIN_RENDER_DISTANCE_M);
+        }
         if (lastCameraPose == null) return out;
 
-        for (WrappedAnchor w : new java.util.ArrayList<>(prevAnchors)) {
+        for (WrappedAnchor w : anchors.snapshot(AnchorRegistry.SAVED)) {
             if (w == null) continue;
 
             // Firestore doc id you saved when you created this anchor
             String docId = w.getDocId();
             if (docId == null || docId.isEmpty()) continue;
+            if (camGp != null && eggIndex.get(docId) != null) continue; // already answered by the index
 
             Anchor a = w.getAnchor();
             if (a == null || a.getTrackingState() != TrackingState.TRACKING) continue;
@@ -3254,13 +3234,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             if (distM < MIN_RENDER_DISTANCE_M || distM > (float) MOUNT_RADIUS_M) continue;
 
             String model = (w.getModelType() == ModelType.PUZZLE) ? "puzzle" : "star";
-
-            // Optional meta (only if your WrappedAnchor stores them)
-            String title = (w.getTitle() != null && !w.getTitle().trim().isEmpty()) ? w.getTitle().trim() : null;
-            String thumbUrl = (w.getThumbUrl() != null && !w.getThumbUrl().trim().isEmpty()) ? w.getThumbUrl().trim() : null;
-
             out.add(new com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item(
-                    docId, model, title, distM, thumbUrl
+                    docId, model, w.getTitle(), distM, w.getThumbUrl()
             ));
         }
 
@@ -3268,6 +3243,22 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         return out;
     }
 
+    /** Nearest-first list items for every indexed egg within {@code radiusM}. */
+    private java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item>
+    nearbyItemsFromIndex(double lat, double lng, double radiusM) {
+        EggSpatialIndex.Hits hits = new EggSpatialIndex.Hits();
+        eggIndex.queryRadius(lat, lng, radiusM, hits);
+        java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> out =
+                new java.util.ArrayList<>(hits.count);
+        for (int i = 0; i < hits.count; i++) {
+            EggSummary e = hits.eggs[i];
+            out.add(new com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item(
+                    e.id, e.model, e.title, hits.distM[i], e.thumbUrl
+            ));
+        }
+        return out;
+    }
+
     private void openNearbySheet() {
         Earth earth = null;
         try { earth = (session != null) ? session.getEarth() : null; } catch (Throwable ignore) {}
@@ -3278,9 +3269,11 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             return;
         }
 
-        // Get local (already-mounted) items first
+        // Get local (indexed / already-mounted) items first
+        GeospatialPose camGp = null;
+        try { camGp = earth.getCameraGeospatialPose(); } catch (Throwable ignore) {}
         final java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> localItems =
-                gatherNearbyAnchors();
+                gatherNearbyAnchors(camGp);
 
         fetchNearbyFromFirestore(NEARBY_RADIUS_M, listFromDb -> {
             // Merge: prefer Firestore entries when IDs collide (they carry titles)
@@ -3314,21 +3307,48 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
     }
 
     @Nullable private WrappedAnchor getSavedAnchorByDocId(String docId){
-        for (WrappedAnchor w : new java.util.ArrayList<>(prevAnchors)) {
-            if (w != null && docId.equals(w.getDocId())) return w;
-        }
-        return null;
+        return anchors.get(docId);
+    }
+
+    private interface EggDocsCallback {
+        void onLoaded(DocumentSnapshot doc, @Nullable DocumentSnapshot content);
+    }
+
+    /**
+     * Reads the egg doc and its content subdoc in parallel. {@code content} is null for legacy eggs
+     * (or if the subdoc read fails), in which case the detail fields are still on {@code doc}.
+     */
+    private void loadEggWithContent(String docId, EggDocsCallback cb,
+                                    com.google.android.gms.tasks.OnFailureListener onError) {
+        com.google.android.gms.tasks.Task<DocumentSnapshot> main =
+                FirebaseFirestore.getInstance().collection(EGGS).document(docId).get();
+        com.google.android.gms.tasks.Task<DocumentSnapshot> content = eggRepo.fetchContent(docId);
+        com.google.android.gms.tasks.Tasks.whenAllComplete(main, content).addOnSuccessListener(done -> {
+            if (!main.isSuccessful() || main.getResult() == null) {
+                onError.onFailure(main.getException() != null ? main.getException() : new IllegalStateException("no doc"));
+                return;
+            }
+            DocumentSnapshot c = (content.isSuccessful() && content.getResult() != null && content.getResult().exists())
+                    ? content.getResult() : null;
+            cb.onLoaded(main.getResult(), c);
+        });
+    }
+
+    /** A detail field from the content subdoc, falling back to the legacy copy on the main doc. */
+    @Nullable
+    private static String contentString(DocumentSnapshot doc, @Nullable DocumentSnapshot content, String field) {
+        if (content != null && content.contains(field)) return content.getString(field);
+        return doc.getString(field);
     }
 
     private void openEggDetails(String docId,
                                 @Nullable String fallbackThumb,
                                 @Nullable String fallbackTitle) {
-        FirebaseFirestore.getInstance()
-                .collection(EGGS).document(docId).get()
-                .addOnSuccessListener(doc -> runOnUiThread(() -> {
+        loadEggWithContent(docId,
+                (doc, contentDoc) -> runOnUiThread(() -> {
                     String title = doc.getString("title");
                     if (TextUtils.isEmpty(title)) title = !TextUtils.isEmpty(fallbackTitle) ? fallbackTitle : "Details";
-                    String descr = doc.getString("description");
+                    String descr = contentString(doc, contentDoc, "description");
                     if (TextUtils.isEmpty(descr)) descr = "(no description)";
 
                     View content = LayoutInflater.from(HelloArActivity.this)
@@ -3346,8 +3366,8 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                             .setView(content)
                             .setPositiveButton("OK", null)
                             .show();
-                }))
-                .addOnFailureListener(e -> runOnUiThread(() ->
+                }),
+                e -> runOnUiThread(() ->
                         new androidx.appcompat.app.AlertDialog.Builder(HelloArActivity.this)
                                 .setTitle(TextUtils.isEmpty(fallbackTitle) ? "Details" : fallbackTitle)
                                 .setMessage("Failed to load: " + e.getMessage())
@@ -3358,7 +3378,10 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         void onResult(java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> items);
     }
 
-    /** Query Firestore for anchors within radius of current geospatial camera. */
+    /**
+     * Query Firestore for anchors within radius of current geospatial camera. Overlapping calls
+     * (button scan + sheet) share one query, and results are reused for NEARBY_TTL_MS.
+     */
     private void fetchNearbyFromFirestore(double radiusM, ItemsCallback cb) {
         if (session == null) { cb.onResult(new java.util.ArrayList<>()); return; }
         com.google.ar.core.Earth earth = session.getEarth();
@@ -3371,10 +3394,30 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         final double camLat = camGp.getLatitude();
         final double camLng = camGp.getLongitude();
 
+        // Cached results describe where they were taken; drop them once we've walked away. The key is
+        // the origin, not the camera's cell, so callers a few meters apart never straddle a boundary.
+        final String key;
+        synchronized (nearbyQueries) {
+            if (Double.isNaN(nearbyOriginLat)
+                    || GeoMath.equirectMeters(nearbyOriginLat, nearbyOriginLng, camLat, camLng) > NEARBY_INVALIDATE_M) {
+                nearbyQueries.invalidateAll();
+                nearbyOriginLat = camLat;
+                nearbyOriginLng = camLng;
+                nearbyOriginSeq++;
+            }
+            key = nearbyOriginSeq + "/" + Math.round(radiusM);
+        }
+        nearbyQueries.get(key,
+                done -> queryNearbyFromFirestore(camLat, camLng, radiusM, done::onResult),
+                cb::onResult);
+    }
+
+    private void queryNearbyFromFirestore(double camLat, double camLng, double radiusM, ItemsCallback cb) {
         com.google.firebase.firestore.FirebaseFirestore db =
                 com.google.firebase.firestore.FirebaseFirestore.getInstance();
 
-        java.util.List<String> keys = neighborKeys(camLat, camLng);
+        // Greedy mixed-level cover of the circle, capped at one array-contains-any call's worth of cells.
+        java.util.List<String> keys = GeoHash.cover(camLat, camLng, radiusM);
 
         // NEW: if no keys, go straight to fallback
         if (keys == null || keys.isEmpty()) {
@@ -3382,102 +3425,56 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
             return;
         }
 
-        // NEW: Firestore whereIn() allows up to 10 values — chunk if needed
-        int step = 10;
+        // Firestore array-contains-any allows up to 10 values — chunk if needed; chunks run in parallel
+        int step = ARRAY_CONTAINS_ANY_MAX;
         java.util.List<com.google.android.gms.tasks.Task<com.google.firebase.firestore.QuerySnapshot>> tasks = new java.util.ArrayList<>();
         for (int i = 0; i < keys.size(); i += step) {
             java.util.List<String> part = keys.subList(i, Math.min(i + step, keys.size()));
             tasks.add(
                     db.collection(EGGS)
-                            .whereIn("cellKey", part)
+                            .whereArrayContainsAny("cells", part)
                             .limit(FIRESTORE_FETCH_LIMIT)
                             .get()
             );
         }
 
-        com.google.android.gms.tasks.Tasks.whenAllSuccess(tasks)
-                .addOnSuccessListener(results -> {
-                    java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> out = new java.util.ArrayList<>();
-                    for (Object o : results) {
-                        com.google.firebase.firestore.QuerySnapshot qs = (com.google.firebase.firestore.QuerySnapshot) o;
-                        for (com.google.firebase.firestore.DocumentSnapshot d : qs.getDocuments()) {
-                            com.google.firebase.firestore.GeoPoint gp = d.getGeoPoint("geo");
-                            if (gp == null) continue;
-                            if (!isWithinMeters(camLat, camLng, gp.getLatitude(), gp.getLongitude(), radiusM)) continue;
-
-                            float distM = haversineM(camLat, camLng, gp.getLatitude(), gp.getLongitude());
-
-                            String modelField = d.getString("model");
-                            String model = (modelField != null && modelField.equalsIgnoreCase("puzzle")) ? "puzzle" : "star";
-
-                            String title = d.getString("title");
-                            if (title != null) {
-                                title = title.trim();
-                                if (title.isEmpty()) title = null;
-                            }
-
-                            String thumb = firstPhotoUrlFrom(d);
-                            out.add(new com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item(
-                                    d.getId(), model, title, distM, thumb
-                            ));
+        // A failed chunk only loses its own cells; the fallback below covers an all-empty result.
+        com.google.android.gms.tasks.Tasks.whenAllComplete(tasks)
+                .addOnSuccessListener(done -> {
+                    for (com.google.android.gms.tasks.Task<com.google.firebase.firestore.QuerySnapshot> t : tasks) {
+                        if (!t.isSuccessful() || t.getResult() == null) {
+                            Log.w(TAG, "nearby cells chunk failed", t.getException());
+                            continue;
+                        }
+                        for (com.google.firebase.firestore.DocumentSnapshot d : t.getResult().getDocuments()) {
+                            eggIndex.put(EggSummary.from(d));
                         }
                     }
+                    java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> out =
+                            nearbyItemsFromIndex(camLat, camLng, radiusM);
 
                     // NEW: if we still found nothing, run fallback too
                     if (out.isEmpty()) {
                         fetchFallback(db, camLat, camLng, radiusM, cb);
                         return;
                     }
-
-                    java.util.Collections.sort(out, (a, b) -> Float.compare(a.distanceM, b.distanceM));
                     cb.onResult(out);
                 })
                 .addOnFailureListener(e -> fetchFallback(db, camLat, camLng, radiusM, cb));
     }
 
-    private static float haversineM(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371000.0;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2)*Math.sin(dLat/2)
-                + Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon/2)*Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return (float)(R * c);
-    }
-
     private void fetchFallback(com.google.firebase.firestore.FirebaseFirestore db,
                                double camLat, double camLng, double radiusM, ItemsCallback cb) {
         db.collection(EGGS).limit(FIRESTORE_FETCH_LIMIT).get()
                 .addOnSuccessListener(qs2 -> {
-                    java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> out = new java.util.ArrayList<>();
                     for (com.google.firebase.firestore.DocumentSnapshot d : qs2.getDocuments()) {
-                        com.google.firebase.firestore.GeoPoint gp = d.getGeoPoint("geo");
-                        if (gp == null) continue;
-                        if (!isWithinMeters(camLat, camLng, gp.getLatitude(), gp.getLongitude(), radiusM)) continue;
-
-                        float distM = haversineM(camLat, camLng, gp.getLatitude(), gp.getLongitude());
-
-                        String modelField = d.getString("model");
-                        String model = (modelField != null && modelField.equalsIgnoreCase("puzzle")) ? "puzzle" : "star";
-
-                        String title = d.getString("title");
-                        if (title != null) {
-                            title = title.trim();
-                            if (title.isEmpty()) title = null;
-                        }
-
-                        String thumb = firstPhotoUrlFrom(d);
-                        out.add(new com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item(
-                                d.getId(), model, title, distM, thumb
-                        ));
+                        eggIndex.put(EggSummary.from(d));
                     }
-                    java.util.Collections.sort(out, (a,b) -> Float.compare(a.distanceM, b.distanceM));
-                    cb.onResult(out);
+                    cb.onResult(nearbyItemsFromIndex(camLat, camLng, radiusM));
                 })
                 .addOnFailureListener(err -> cb.onResult(new java.util.ArrayList<>()));
     }
-    private void maybeScanNearbyForButton() {
+    private void maybeScanNearbyForButton(GeospatialPose camGp) {
         if (btnNearby == null) return;
 
         long now = System.currentTimeMillis();
@@ -3485,14 +3482,13 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
         lastNearbyScanAt = now;
 
         // If you're currently placing or already have any anchors in memory, keep it visible.
-        if (currentPlacedAnchor != null || !wrappedAnchors.isEmpty() || !prevAnchors.isEmpty()) {
+        if (currentPlacedAnchor != null || anchors.count(AnchorRegistry.SAVED | AnchorRegistry.PREVIEW) > 0) {
             runOnUiThread(() -> btnNearby.setVisibility(View.VISIBLE));
             return;
         }
 
-        // If local (already-mounted) nearby items exist, show immediately.
-        java.util.List<com.google.ar.core.examples.java.helloar.ui.NearbyAnchorsSheet.Item> local = gatherNearbyAnchors();
-        if (local != null && !local.isEmpty()) {
+        // If the on-device index already knows a nearby egg, show immediately (no network).
+        if (eggIndex.anyWithin(camGp.getLatitude(), camGp.getLongitude(), NEARBY_RADIUS_M)) {
             runOnUiThread(() -> btnNearby.setVisibility(View.VISIBLE));
             return;
         }
@@ -3502,50 +3498,23 @@ public class HelloArActivity extends AppCompatActivity implements SampleRender.R
                 runOnUiThread(() -> btnNearby.setVisibility((items != null && !items.isEmpty()) ? View.VISIBLE : View.GONE))
         );
     }
-    @Nullable
-    private static String firstPhotoUrlFrom(com.google.firebase.firestore.DocumentSnapshot d) {
-        // direct single-string fields
-        String[] singles = {"thumbUrl","photoThumbUrl","thumbnailUrl","imageUrl","photo","url","downloadUrl"};
-        for (String k : singles) {
-            String v = d.getString(k);
-            if (!TextUtils.isEmpty(v)) return v;
-        }
-
-        // array of strings or maps
-        Object photos = d.get("photos");
-        if (photos instanceof java.util.List) {
-            java.util.List<?> arr = (java.util.List<?>) photos;
-            if (!arr.isEmpty()) {
-                Object first = arr.get(0);
-                if (first instanceof String) {
-                    String s = (String) first;
-                    if (!TextUtils.isEmpty(s)) return s;
-                } else if (first instanceof java.util.Map) {
-                    @SuppressWarnings("unchecked")
-                    java.util.Map<String,Object> m = (java.util.Map<String,Object>) first;
-                    for (String k : new String[]{"thumbUrl","url","downloadUrl","gsUrl","path"}) {
-                        Object v = m.get(k);
-                        if (v instanceof String && !TextUtils.isEmpty((String) v)) return (String) v;
-                    }
-                }
-            }
-        }
-
-        Object urls = d.get("photoUrls");
-        if (urls instanceof java.util.List) {
-            java.util.List<?> arr = (java.util.List<?>) urls;
-            if (!arr.isEmpty() && arr.get(0) instanceof String) {
-                String s = (String) arr.get(0);
-                if (!TextUtils.isEmpty(s)) return s;
+    /** Pull a thumbnail into Glide's disk cache ahead of time (prefetch); same sources as loadInto. */
+    private void warmThumbnail(String url) {
+        try {
+            if (url.startsWith("http://") || url.startsWith("https://")) {
+                Glide.with(getApplicationContext()).downloadOnly().load(url).submit();
+            } else {
+                StorageReference ref = url.startsWith("gs://")
+                        ? FirebaseStorage.getInstance().getReferenceFromUrl(url)
+                        : FirebaseStorage.getInstance().getReference().child(url.startsWith("/") ? url.substring(1) : url);
+                ref.getDownloadUrl().addOnSuccessListener(uri ->
+                        Glide.with(getApplicationContext()).downloadOnly().load(uri).submit());
             }
+        } catch (Throwable t) {
+            Log.d(TAG, "thumbnail warm skipped for " + url, t);
         }
-
-        // sometimes people store a Storage path string
-        String path = d.getString("photoPath");
-        if (!TextUtils.isEmpty(path)) return path; // handled by loadPhotoInto()
-
-        return null;
     }
+
     // --- Image loader for dialog (http, gs://, or Storage path) ---
 
     private void loadInto(ImageView iv, @Nullable String photo) {
@@ -0,0 +1,98 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.common.samplerender.Mesh;
+import com.google.ar.core.examples.java.common.samplerender.SampleRender;
+import com.google.ar.core.examples.java.common.samplerender.VertexBuffer;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Per-instance records for instanced egg draws, in draw order (see {@link RenderQueue}).
+ *
+ * Layout matches the INSTANCED variants of environmental_hdr.vert / ar_unlit_object.vert:
+ * position + scale, rotation quaternion, then {billboard, lift, opacity, target px}. The direct
+ * buffer and the VBO are reused frame to frame and only grow. GL thread only.
+ */
+final class InstanceBatch implements Closeable {
+    static final int FLOATS_PER_INSTANCE = 12;
+    private static final int[] ATTRIBUTE_SIZES = { 4, 4, 4 };
+
+    private final VertexBuffer vbo;
+    private FloatBuffer data;
+    private int count = 0;
+
+    InstanceBatch(SampleRender render, int initialCapacity) {
+        data = allocate(Math.max(1, initialCapacity));
+        vbo = new VertexBuffer(render, FLOATS_PER_INSTANCE, null);
+    }
+
+    void reset() {
+        count = 0;
+        data.clear();
+    }
+
+    int size() { return count; }
+
+    /**
+     * Lays out one record at {@code dst[offset]}.
+     *
+     * @param scalePerM model scale per meter of target on-screen height (raw height and size
+     *                  multipliers folded in)
+     * @param q         anchor rotation {qx, qy, qz, qw}; ignored by the shader when billboarding
+     */
+    static void write(float[] dst, int offset, float x, float y, float z, float scalePerM, float[] q,
+                      boolean billboard, float liftM, float opacity, float targetPx) {
+        dst[offset]      = x;
+        dst[offset + 1]  = y;
+        dst[offset + 2]  = z;
+        dst[offset + 3]  = scalePerM;
+        dst[offset + 4]  = q[0];
+        dst[offset + 5]  = q[1];
+        dst[offset + 6]  = q[2];
+        dst[offset + 7]  = q[3];
+        dst[offset + 8]  = billboard ? 1f : 0f;
+        dst[offset + 9]  = liftM;
+        dst[offset + 10] = opacity;
+        dst[offset + 11] = targetPx;
+    }
+
+    /** Append one record already laid out by {@link #write}. */
+    void add(float[] src, int offset) {
+        if (data.remaining() < FLOATS_PER_INSTANCE) grow();
+        data.put(src, offset, FLOATS_PER_INSTANCE);
+        count++;
+    }
+
+    /** Upload this frame's records; call once, after the last add. */
+    void upload() {
+        data.flip();
+        vbo.set(data);
+        data.limit(data.capacity()).position(count * FLOATS_PER_INSTANCE);
+    }
+
+    /** Point {@code mesh}'s instance attributes at the uploaded records, starting at {@code first}. */
+    void bind(Mesh mesh, int first) {
+        mesh.setInstanceBuffer(vbo, first, ATTRIBUTE_SIZES);
+    }
+
+    @Override
+    public void close() {
+        vbo.close();
+    }
+
+    private void grow() {
+        FloatBuffer bigger = allocate(2 * data.capacity() / FLOATS_PER_INSTANCE);
+        data.flip();
+        bigger.put(data);
+        data = bigger;
+    }
+
+    private static FloatBuffer allocate(int instances) {
+        return ByteBuffer.allocateDirect(instances * FLOATS_PER_INSTANCE * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+}
@@ -0,0 +1,127 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.common.samplerender.Mesh;
+import com.google.ar.core.examples.java.common.samplerender.SampleRender;
+
+import java.io.Closeable;
+import java.util.Arrays;
+
+/**
+ * One frame's egg draws, sorted into runs that each need a single state setup and one instanced
+ * draw per sub-mesh.
+ *
+ * Order: the opaque pass first, grouped by model (shader + meshes) and front to back inside a model
+ * for early-Z; then the translucent pass back to front across all models, so blending composes
+ * correctly. A model change inside the translucent pass starts a new run. Records are uploaded once
+ * in that order and each run points the mesh at its slice. GL thread only.
+ */
+final class RenderQueue implements Closeable {
+    private static final int MAX_ENTRIES = 1 << 16;   // index lives in the low 16 bits of a key
+    private static final int MAX_MODELS  = 1 << 7;
+    private static final long TRANSLUCENT_BIT = 1L << 62;
+
+    private final InstanceBatch batch;
+    private float[] records;
+    private long[] keys;
+    private int count = 0;
+
+    // Runs, valid after build()
+    private int[] runFirst  = new int[8];
+    private int[] runLength = new int[8];
+    private int[] runModel  = new int[8];
+    private boolean[] runTranslucent = new boolean[8];
+    private int runCount = 0;
+
+    RenderQueue(SampleRender render, int initialCapacity) {
+        int cap = Math.max(1, initialCapacity);
+        batch = new InstanceBatch(render, cap);
+        records = new float[cap * InstanceBatch.FLOATS_PER_INSTANCE];
+        keys = new long[cap];
+    }
+
+    void reset() {
+        count = 0;
+        runCount = 0;
+    }
+
+    int size() { return count; }
+
+    /**
+     * Queues one instance of {@code model} ({@code 0 <= model < 128}) at view depth {@code depth}.
+     * Remaining arguments as for {@link InstanceBatch#write}.
+     */
+    void add(int model, boolean translucent, float depth,
+             float x, float y, float z, float scalePerM, float[] q,
+             boolean billboard, float liftM, float opacity, float targetPx) {
+        if (count == MAX_ENTRIES || model < 0 || model >= MAX_MODELS) return;
+        if (count == keys.length) grow();
+        InstanceBatch.write(records, count * InstanceBatch.FLOATS_PER_INSTANCE,
+                x, y, z, scalePerM, q, billboard, liftM, opacity, targetPx);
+        // Non-negative floats order the same as their bit patterns
+        long d = Float.floatToRawIntBits(Math.max(0f, depth)) & 0x7FFFFFFFL;
+        keys[count] = translucent
+                ? TRANSLUCENT_BIT | ((0x7FFFFFFFL - d) << 23) | ((long) model << 16) | count
+                : ((long) model << 47) | (d << 16) | count;
+        count++;
+    }
+
+    /** Sort, upload the records in draw order and split them into runs. */
+    void build() {
+        runCount = 0;
+        batch.reset();
+        if (count == 0) return;
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            int index = (int) (key & 0xFFFF);
+            boolean translucent = (key & TRANSLUCENT_BIT) != 0;
+            int model = (int) ((translucent ? key >>> 16 : key >>> 47) & (MAX_MODELS - 1));
+            batch.add(records, index * InstanceBatch.FLOATS_PER_INSTANCE);
+            if (runCount > 0 && runModel[runCount - 1] == model
+                    && runTranslucent[runCount - 1] == translucent) {
+                runLength[runCount - 1]++;
+            } else {
+                if (runCount == runFirst.length) growRuns();
+                runFirst[runCount] = i;
+                runLength[runCount] = 1;
+                runModel[runCount] = model;
+                runTranslucent[runCount] = translucent;
+                runCount++;
+            }
+        }
+        batch.upload();
+    }
+
+    int runCount() { return runCount; }
+    int runFirst(int run) { return runFirst[run]; }
+    int runModel(int run) { return runModel[run]; }
+    boolean runTranslucent(int run) { return runTranslucent[run]; }
+    int runLength(int run) { return runLength[run]; }
+
+    /** Which {@link #add} call (0-based) is drawn at {@code drawIndex}; valid after {@link #build}. */
+    int addedIndexAt(int drawIndex) { return (int) (keys[drawIndex] & 0xFFFF); }
+
+    /** Point {@code mesh}'s instance attributes at {@code run}'s records. */
+    void bindRun(int run, Mesh mesh) {
+        batch.bind(mesh, runFirst[run]);
+    }
+
+    @Override
+    public void close() {
+        batch.close();
+    }
+
+    private void grow() {
+        int cap = Math.min(MAX_ENTRIES, keys.length * 2);
+        keys = Arrays.copyOf(keys, cap);
+        records = Arrays.copyOf(records, cap * InstanceBatch.FLOATS_PER_INSTANCE);
+    }
+
+    private void growRuns() {
+        int cap = runFirst.length * 2;
+        runFirst = Arrays.copyOf(runFirst, cap);
+        runLength = Arrays.copyOf(runLength, cap);
+        runModel = Arrays.copyOf(runModel, cap);
+        runTranslucent = Arrays.copyOf(runTranslucent, cap);
+    }
+}
@@ -0,0 +1,110 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides which live anchors to detach so ARCore only tracks what's near the user.
+ *
+ * Anchors are mounted inside the mount radius but only evicted past {@code evictRadiusM}, which is
+ * larger, so walking along the boundary doesn't mount/detach the same egg every few frames. On top
+ * of that at most {@code maxLive} anchors are kept, nearest first.
+ *
+ * Evicted eggs leave their last resolved geo pose behind, so coming back can use a cheap
+ * {@code earth.createAnchor} instead of another terrain resolve. Not thread-safe; GL thread only.
+ */
+public class AnchorBudget {
+
+    private final double evictRadiusM;
+    private final int maxLive;
+    private final int rememberMax;
+
+    // docId -> {lat, lng, alt, qx, qy, qz, qw}, least recently evicted first
+    private final LinkedHashMap<String, double[]> remembered;
+
+    private String[] ids = new String[32];
+    private float[] dist = new float[32];
+    private int n = 0;
+
+    public AnchorBudget(double evictRadiusM, int maxLive, int rememberMax) {
+        this.evictRadiusM = evictRadiusM;
+        this.maxLive = maxLive;
+        this.rememberMax = rememberMax;
+        this.remembered = new LinkedHashMap<String, double[]>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+                return size() > AnchorBudget.this.rememberMax;
+            }
+        };
+    }
+
+    public int maxLive() { return maxLive; }
+
+    /** Start a pass; then {@link #offer} every evictable anchor and call {@link #select}. */
+    public void begin() {
+        n = 0;
+    }
+
+    public void offer(String docId, float distM) {
+        if (n == ids.length) {
+            ids = Arrays.copyOf(ids, n * 2);
+            dist = Arrays.copyOf(dist, n * 2);
+        }
+        ids[n] = docId;
+        dist[n] = distM;
+        n++;
+    }
+
+    /**
+     * Picks the anchors to evict: everything past the evict radius, then the farthest ones until
+     * at most {@code maxLive - pinned} remain.
+     *
+     * @param pinned live anchors that were not offered (own placements etc.) but still count
+     * @return number of docIds written to {@code out}
+     */
+    public int select(int pinned, String[] out) {
+        // insertion sort by distance, nearest first; n is small and mostly ordered frame to frame
+        for (int i = 1; i < n; i++) {
+            String id = ids[i];
+            float d = dist[i];
+            int j = i - 1;
+            while (j >= 0 && dist[j] > d) {
+                ids[j + 1] = ids[j];
+                dist[j + 1] = dist[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            dist[j + 1] = d;
+        }
+        int keep = Math.max(0, maxLive - pinned);
+        int count = 0;
+        for (int i = 0; i < n && count < out.length; i++) {
+            if (i >= keep || dist[i] > evictRadiusM) out[count++] = ids[i];
+        }
+        for (int i = 0; i < n; i++) ids[i] = null;
+        return count;
+    }
+
+    /** Keep the resolved pose of an evicted egg for a cheap re-mount. */
+    public void remember(String docId, double lat, double lng, double alt, float[] q) {
+        remembered.put(docId, new double[]{ lat, lng, alt, q[0], q[1], q[2], q[3] });
+    }
+
+    /** The remembered pose, {lat, lng, alt, qx, qy, qz, qw}, or null. */
+    @Nullable
+    public double[] recall(String docId) {
+        return remembered.get(docId);
+    }
+
+    /** Drop a remembered pose (egg changed or deleted remotely). */
+    public void forget(String docId) {
+        remembered.remove(docId);
+    }
+
+    public void clear() {
+        remembered.clear();
+        n = 0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every anchor the renderer knows about (saved eggs and live previews) in one place.
+ *
+ * Entries live in dense parallel arrays: the item itself, its docId, flag bits and the smoothed
+ * translation. Saved entries are keyed by docId, so lookup, mount and unmount are O(1); removal
+ * swaps the last slot into the hole, so slot indices are only stable until the next removal.
+ * Removing an entry drops its smoothing state with it. Detaching the ARCore anchor stays with the
+ * caller.
+ *
+ * The GL thread is the only writer and may walk slots directly via {@link #size} / {@link #itemAt}.
+ * Other threads read through {@link #snapshot}, which is rebuilt at most once per change.
+ */
+public final class AnchorRegistry<T> {
+    public static final int SAVED = 1;
+    public static final int PREVIEW = 1 << 1;
+    /** Placed by this user in this session (drawn / picked with priority). */
+    public static final int RECENT = 1 << 2;
+    private static final int HAS_SMOOTH = 1 << 3;
+
+    private Object[] items;
+    private String[] docIds;
+    private int[] flags;
+    private float[] smoothT; // xyz per slot
+    private int size = 0;
+
+    private final Map<String, Integer> slotOfDoc = new HashMap<>();
+    private final IdentityHashMap<T, Integer> slotOfItem = new IdentityHashMap<>();
+    // docIds marked recent, whether or not they're mounted right now
+    private final Set<String> recentDocIds = new HashSet<>();
+
+    private int version = 0;
+    private int snapVersion = -1;
+    private final Map<Integer, List<T>> snaps = new HashMap<>(); // by mask, valid for snapVersion
+
+    public AnchorRegistry(int initialCapacity) {
+        int cap = Math.max(4, initialCapacity);
+        items = new Object[cap];
+        docIds = new String[cap];
+        flags = new int[cap];
+        smoothT = new float[cap * 3];
+    }
+
+    /**
+     * Adds an entry. Returns its slot, or -1 if {@code docId} is already registered (the caller
+     * still owns, and should detach, whatever anchor it was about to add).
+     */
+    public synchronized int add(@Nullable String docId, T item, int entryFlags) {
+        if (docId != null && slotOfDoc.containsKey(docId)) return -1;
+        if (size == items.length) grow();
+        int s = size++;
+        items[s] = item;
+        docIds[s] = docId;
+        flags[s] = entryFlags & ~HAS_SMOOTH;
+        if (docId != null) {
+            slotOfDoc.put(docId, s);
+            if (recentDocIds.contains(docId)) flags[s] |= RECENT;
+        }
+        slotOfItem.put(item, s);
+        version++;
+        return s;
+    }
+
+    public synchronized boolean contains(String docId) {
+        return slotOfDoc.containsKey(docId);
+    }
+
+    public synchronized boolean containsItem(T item) {
+        return slotOfItem.containsKey(item);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public synchronized T get(String docId) {
+        Integer s = slotOfDoc.get(docId);
+        return (s != null) ? (T) items[s] : null;
+    }
+
+    /** Removes the entry for {@code docId} and returns its item, or null. */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public synchronized T remove(String docId) {
+        Integer s = slotOfDoc.get(docId);
+        if (s == null) return null;
+        T item = (T) items[s];
+        removeAt(s);
+        return item;
+    }
+
+    public synchronized boolean removeItem(T item) {
+        Integer s = slotOfItem.get(item);
+        if (s == null) return false;
+        removeAt(s);
+        return true;
+    }
+
+    /** Removes every entry with any of {@code mask}'s flags; returns the removed items. */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> removeAll(int mask) {
+        List<T> out = new ArrayList<>();
+        for (int i = size - 1; i >= 0; i--) {
+            if ((flags[i] & mask) == 0) continue;
+            out.add((T) items[i]);
+            removeAt(i);
+        }
+        return out;
+    }
+
+    /** Swap-remove. Any slot index held across this call may now name a different entry. */
+    public synchronized void removeAt(int s) {
+        if (s < 0 || s >= size) return;
+        if (docIds[s] != null) slotOfDoc.remove(docIds[s]);
+        slotOfItem.remove(items[s]);
+        int last = --size;
+        if (s != last) {
+            items[s] = items[last];
+            docIds[s] = docIds[last];
+            flags[s] = flags[last];
+            System.arraycopy(smoothT, last * 3, smoothT, s * 3, 3);
+            if (docIds[s] != null) slotOfDoc.put(docIds[s], s);
+            @SuppressWarnings("unchecked") T moved = (T) items[s];
+            slotOfItem.put(moved, s);
+        }
+        items[last] = null;
+        docIds[last] = null;
+        flags[last] = 0;
+        version++;
+    }
+
+    /** Flags {@code docId} recent now and whenever it's mounted later. GL thread, like every write. */
+    public synchronized void markRecent(String docId) {
+        recentDocIds.add(docId);
+        Integer s = slotOfDoc.get(docId);
+        if (s != null) { flags[s] |= RECENT; version++; }
+    }
+
+    public synchronized void unmarkRecent(String docId) {
+        recentDocIds.remove(docId);
+        Integer s = slotOfDoc.get(docId);
+        if (s != null) { flags[s] &= ~RECENT; version++; }
+    }
+
+    public synchronized boolean isRecent(@Nullable String docId) {
+        return docId != null && recentDocIds.contains(docId);
+    }
+
+    // ---- slot access (GL thread) ----
+
+    public int size() { return size; }
+
+    /** Bumped on every add, remove and flag change; slot indices are stable while it holds. */
+    public synchronized int version() { return version; }
+
+    @SuppressWarnings("unchecked")
+    public T itemAt(int s) { return (T) items[s]; }
+
+    @Nullable
+    public String docIdAt(int s) { return docIds[s]; }
+
+    public boolean has(int s, int mask) { return (flags[s] & mask) != 0; }
+
+    public synchronized int count(int mask) {
+        int n = 0;
+        for (int i = 0; i < size; i++) if ((flags[i] & mask) != 0) n++;
+        return n;
+    }
+
+    /**
+     * Exponential smoothing of a translation, in place: {@code t = alpha * last + (1 - alpha) * t}.
+     * The first sample for a slot passes through unchanged.
+     */
+    public void smooth(int s, float[] t, float alpha) {
+        int o = s * 3;
+        if ((flags[s] & HAS_SMOOTH) != 0 && alpha < 1f) {
+            for (int i = 0; i < 3; i++) t[i] = alpha * smoothT[o + i] + (1f - alpha) * t[i];
+        }
+        smoothT[o] = t[0];
+        smoothT[o + 1] = t[1];
+        smoothT[o + 2] = t[2];
+        flags[s] |= HAS_SMOOTH;
+    }
+
+    // ---- readers on other threads ----
+
+    /** Immutable list of the items with any of {@code mask}'s flags. */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> snapshot(int mask) {
+        if (snapVersion != version) {
+            snaps.clear();
+            snapVersion = version;
+        }
+        List<T> snap = snaps.get(mask);
+        if (snap == null) {
+            List<T> out = new ArrayList<>();
+            for (int i = 0; i < size; i++) if ((flags[i] & mask) != 0) out.add((T) items[i]);
+            snap = Collections.unmodifiableList(out);
+            snaps.put(mask, snap);
+        }
+        return snap;
+    }
+
+    private void grow() {
+        int cap = items.length * 2;
+        items = Arrays.copyOf(items, cap);
+        docIds = Arrays.copyOf(docIds, cap);
+        flags = Arrays.copyOf(flags, cap);
+        smoothT = Arrays.copyOf(smoothT, cap * 3);
+    }
+}
@@ -0,0 +1,117 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Anchor.CloudAnchorState;
+import com.google.ar.core.HostCloudAnchorFuture;
+import com.google.ar.core.ResolveCloudAnchorFuture;
+import com.google.ar.core.Session;
+
+/**
+ * Thin wrapper over {@code hostCloudAnchorAsync} / {@code resolveCloudAnchorAsync} that adds a
+ * timeout and cancellation, and guarantees exactly one callback per task.
+ *
+ * Callbacks always arrive on the main thread, including for timeouts and {@link Handle#cancel}.
+ * Nothing here needs to be polled per frame.
+ */
+public final class CloudAnchorTasks {
+    private static final String TAG = "CloudAnchorTasks";
+
+    private CloudAnchorTasks() {}
+
+    public enum Outcome { SUCCESS, ERROR, TIMEOUT, CANCELLED }
+
+    public interface HostCallback {
+        /** {@code cloudId} is set only on SUCCESS; {@code state} is null for TIMEOUT / CANCELLED. */
+        void onHosted(Outcome outcome, @Nullable String cloudId, @Nullable CloudAnchorState state);
+    }
+
+    public interface ResolveCallback {
+        /** {@code anchor} is set only on SUCCESS and is then owned by the callee. */
+        void onResolved(Outcome outcome, @Nullable Anchor anchor, @Nullable CloudAnchorState state);
+    }
+
+    /** A running host or resolve. Safe to cancel from any thread, any number of times. */
+    public static final class Handle {
+        private final Runnable cancelFuture;
+        private final Runnable deliverCancelled;
+
+        private Handle(Runnable cancelFuture, Runnable deliverCancelled) {
+            this.cancelFuture = cancelFuture;
+            this.deliverCancelled = deliverCancelled;
+        }
+
+        public void cancel() {
+            try { cancelFuture.run(); } catch (Throwable ignore) {}
+            deliverCancelled.run();
+        }
+    }
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    /** One-shot delivery guard shared by the ARCore callback, the timeout and cancel(). */
+    private static final class Once {
+        private boolean done;
+        synchronized boolean claim() {
+            if (done) return false;
+            done = true;
+            return true;
+        }
+    }
+
+    public static Handle host(Session session, Anchor local, int ttlDays, long timeoutMs, HostCallback cb) {
+        final Once once = new Once();
+        final HostCloudAnchorFuture[] future = new HostCloudAnchorFuture[1];
+        final Runnable timeout = () -> {
+            if (!once.claim()) return;
+            if (future[0] != null) future[0].cancel();
+            Log.w(TAG, "host timed out after " + timeoutMs + " ms");
+            cb.onHosted(Outcome.TIMEOUT, null, null);
+        };
+        future[0] = session.hostCloudAnchorAsync(local, ttlDays, (cloudId, state) -> MAIN.post(() -> {
+            if (!once.claim()) return;
+            MAIN.removeCallbacks(timeout);
+            boolean ok = (state == CloudAnchorState.SUCCESS && cloudId != null);
+            cb.onHosted(ok ? Outcome.SUCCESS : Outcome.ERROR, ok ? cloudId : null, state);
+        }));
+        MAIN.postDelayed(timeout, timeoutMs);
+        return new Handle(() -> future[0].cancel(), () -> MAIN.post(() -> {
+            if (!once.claim()) return;
+            MAIN.removeCallbacks(timeout);
+            cb.onHosted(Outcome.CANCELLED, null, null);
+        }));
+    }
+
+    public static Handle resolve(Session session, String cloudId, long timeoutMs, ResolveCallback cb) {
+        final Once once = new Once();
+        final ResolveCloudAnchorFuture[] future = new ResolveCloudAnchorFuture[1];
+        final Runnable timeout = () -> {
+            if (!once.claim()) return;
+            if (future[0] != null) future[0].cancel();
+            Log.w(TAG, "resolve " + cloudId + " timed out after " + timeoutMs + " ms");
+            cb.onResolved(Outcome.TIMEOUT, null, null);
+        };
+        future[0] = session.resolveCloudAnchorAsync(cloudId, (anchor, state) -> MAIN.post(() -> {
+            if (!once.claim()) {
+                // timed out / cancelled meanwhile: nobody will own this anchor
+                if (anchor != null) try { anchor.detach(); } catch (Throwable ignore) {}
+                return;
+            }
+            MAIN.removeCallbacks(timeout);
+            boolean ok = (state == CloudAnchorState.SUCCESS && anchor != null);
+            if (!ok && anchor != null) try { anchor.detach(); } catch (Throwable ignore) {}
+            cb.onResolved(ok ? Outcome.SUCCESS : Outcome.ERROR, ok ? anchor : null, state);
+        }));
+        MAIN.postDelayed(timeout, timeoutMs);
+        return new Handle(() -> future[0].cancel(), () -> MAIN.post(() -> {
+            if (!once.claim()) return;
+            MAIN.removeCallbacks(timeout);
+            cb.onResolved(Outcome.CANCELLED, null, null);
+        }));
+    }
+}
@@ -0,0 +1,283 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Anchor.CloudAnchorState;
+import com.google.ar.core.Session;
+import com.google.ar.core.TrackingState;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cloud anchor hosting as a queue of independent jobs, one per egg doc.
+ *
+ * Each job keeps its own state, attempt count and backoff, and patches its own egg doc, so saving
+ * a second star while the first is still hosting just queues another job. At most
+ * {@code maxParallel} hosts run at once. Service-side throttling and timeouts are retried with
+ * exponential backoff; other errors fail the job.
+ *
+ * Job records are persisted. The local anchors themselves die with the ARCore session, so a job
+ * can't be resumed in a new activity; {@link #restore} instead settles whatever was left pending
+ * as an ERROR rather than leaving the doc stuck in HOSTING. Main thread only, except
+ * {@link #stateOf} which the HUD reads from the GL thread.
+ */
+public class HostQueue {
+    private static final String TAG = "HostQueue";
+    private static final String PREFS_KEY = "host_jobs";
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF_BASE_MS = 4_000L;
+    private static final long BACKOFF_MAX_MS = 60_000L;
+
+    public enum State { QUEUED, HOSTING, BACKOFF, DONE, FAILED }
+
+    public interface SessionProvider { @Nullable Session get(); }
+
+    /** Terminal results, on the main thread, after the egg doc patch was sent. */
+    public interface Listener {
+        void onHosted(String docId, String cloudId);
+        void onFailed(String docId, CloudAnchorTasks.Outcome outcome, @Nullable CloudAnchorState state);
+    }
+
+    private static final class Job {
+        final String docId;
+        final Anchor local;
+        final long enqueuedAt;
+        State state = State.QUEUED;
+        int attempts = 0;
+        long notBeforeMs = 0L;
+        @Nullable CloudAnchorTasks.Handle task;
+
+        Job(String docId, Anchor local, long enqueuedAt) {
+            this.docId = docId;
+            this.local = local;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final FirebaseFirestore db;
+    private final String collection;
+    private final SessionProvider sessions;
+    private final Listener listener;
+    private final int ttlDays;
+    private final long timeoutMs;
+    private final int maxParallel;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable pumpLater = this::pump;
+
+    // insertion order == submission order
+    private final LinkedHashMap<String, Job> jobs = new LinkedHashMap<>();
+    // current or last state per docId; readable from any thread
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private int running = 0;
+
+    public HostQueue(SharedPreferences prefs, FirebaseFirestore db, String collection,
+                     SessionProvider sessions, Listener listener,
+                     int ttlDays, long timeoutMs, int maxParallel) {
+        this.prefs = prefs;
+        this.db = db;
+        this.collection = collection;
+        this.sessions = sessions;
+        this.listener = listener;
+        this.ttlDays = ttlDays;
+        this.timeoutMs = timeoutMs;
+        this.maxParallel = maxParallel;
+    }
+
+    /** Queue hosting of {@code local} for egg {@code docId}; ignored if that doc already has a job. */
+    public void enqueue(String docId, Anchor local) {
+        if (jobs.containsKey(docId)) return;
+        Job j = new Job(docId, local, System.currentTimeMillis());
+        jobs.put(docId, j);
+        states.put(docId, j.state);
+        persist();
+        pump();
+    }
+
+    /** Current or last state of the job for {@code docId}, or null if it never had one. */
+    @Nullable
+    public State stateOf(@Nullable String docId) {
+        return (docId == null) ? null : states.get(docId);
+    }
+
+    /** Drop the job for a doc the user abandoned. No doc patch. */
+    public void cancel(String docId) {
+        Job j = jobs.remove(docId);
+        if (j == null) return;
+        states.remove(docId);
+        if (j.task != null) j.task.cancel();
+        persist();
+    }
+
+    /**
+     * Stop everything in flight (activity onDestroy). Records stay persisted so the next
+     * {@link #restore} settles them.
+     */
+    public void shutdown() {
+        main.removeCallbacksAndMessages(null);
+        for (Job j : jobs.values()) {
+            if (j.task != null) j.task.cancel();
+        }
+        jobs.clear();
+    }
+
+    /** Settle jobs a previous activity instance left behind (their anchors are gone). */
+    public void restore() {
+        String raw = prefs.getString(PREFS_KEY, null);
+        if (raw == null) return;
+        try {
+            JSONArray arr = new JSONArray(raw);
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                String docId = o.getString("docId");
+                if (jobs.containsKey(docId)) continue;
+                Log.w(TAG, "host job " + docId + " interrupted after " + o.optInt("attempts") + " attempt(s)");
+                patchError(docId, "INTERRUPTED");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "bad persisted host jobs, dropping", e);
+        }
+        persist();
+    }
+
+    private void pump() {
+        long now = System.currentTimeMillis();
+        long nextWakeMs = Long.MAX_VALUE;
+        for (Job j : new ArrayList<>(jobs.values())) {
+            if (j.state != State.QUEUED && j.state != State.BACKOFF) continue;
+            if (j.notBeforeMs > now) {
+                nextWakeMs = Math.min(nextWakeMs, j.notBeforeMs);
+                continue;
+            }
+            if (running >= maxParallel) break;
+            start(j);
+        }
+        if (nextWakeMs != Long.MAX_VALUE) {
+            main.removeCallbacks(pumpLater);
+            main.postDelayed(pumpLater, Math.max(0L, nextWakeMs - now));
+        }
+    }
+
+    private void start(Job j) {
+        Session session = sessions.get();
+        if (session == null || j.local.getTrackingState() == TrackingState.STOPPED) {
+            finish(j, CloudAnchorTasks.Outcome.ERROR, null, null);
+            return;
+        }
+        setState(j, State.HOSTING);
+        j.attempts++;
+        running++;
+        persist();
+        try {
+            j.task = CloudAnchorTasks.host(session, j.local, ttlDays, timeoutMs,
+                    (outcome, cloudId, st) -> onResult(j, outcome, cloudId, st));
+        } catch (Throwable t) {
+            Log.w(TAG, "host start failed for " + j.docId, t);
+            running--;
+            j.task = null;
+            finish(j, CloudAnchorTasks.Outcome.ERROR, null, null);
+        }
+    }
+
+    private void onResult(Job j, CloudAnchorTasks.Outcome outcome, @Nullable String cloudId,
+                          @Nullable CloudAnchorState st) {
+        running--;
+        j.task = null;
+        if (jobs.get(j.docId) != j) { pump(); return; } // cancelled / shut down
+        if (outcome == CloudAnchorTasks.Outcome.CANCELLED) { pump(); return; }
+
+        if (outcome != CloudAnchorTasks.Outcome.SUCCESS && isRetryable(outcome, st) && j.attempts < MAX_ATTEMPTS) {
+            long delay = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << (j.attempts - 1));
+            delay += (long) (Math.random() * delay * 0.25); // jitter so parallel jobs don't retry in lockstep
+            setState(j, State.BACKOFF);
+            j.notBeforeMs = System.currentTimeMillis() + delay;
+            Log.i(TAG, "host " + j.docId + " attempt " + j.attempts + " " + outcome
+                    + (st != null ? " " + st : "") + ", retry in " + delay + " ms");
+            db.collection(collection).document(j.docId)
+                    .update("cloudStatus", "RETRYING", "cloudAttempts", j.attempts,
+                            "updatedAt", FieldValue.serverTimestamp())
+                    .addOnFailureListener(e -> Log.w(TAG, "retry patch failed for " + j.docId, e));
+            persist();
+        } else {
+            finish(j, outcome, cloudId, st);
+        }
+        pump();
+    }
+
+    private void finish(Job j, CloudAnchorTasks.Outcome outcome, @Nullable String cloudId,
+                        @Nullable CloudAnchorState st) {
+        jobs.remove(j.docId);
+        persist();
+        if (outcome == CloudAnchorTasks.Outcome.SUCCESS && cloudId != null) {
+            setState(j, State.DONE);
+            Map<String, Object> patch = new HashMap<>();
+            patch.put("cloudStatus", "SUCCESS");
+            patch.put("cloudId", cloudId);
+            patch.put("cloudHostedAt", FieldValue.serverTimestamp());
+            patch.put("cloudTtlDays", ttlDays);
+            patch.put("cloudAttempts", j.attempts);
+            patch.put("anchorType", "CLOUD");
+            patch.put("updatedAt", FieldValue.serverTimestamp());
+            db.collection(collection).document(j.docId).update(patch)
+                    .addOnFailureListener(e -> Log.e(TAG, "Failed to patch egg with cloudId " + j.docId, e));
+            listener.onHosted(j.docId, cloudId);
+        } else {
+            setState(j, State.FAILED);
+            patchError(j.docId, st != null ? st.toString() : outcome.name());
+            listener.onFailed(j.docId, outcome, st);
+        }
+    }
+
+    private void setState(Job j, State s) {
+        j.state = s;
+        states.put(j.docId, s);
+    }
+
+    private void patchError(String docId, String error) {
+        db.collection(collection).document(docId)
+                .update("cloudStatus", "ERROR", "cloudError", error,
+                        "updatedAt", FieldValue.serverTimestamp())
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to mark cloud error " + docId, e));
+    }
+
+    private static boolean isRetryable(CloudAnchorTasks.Outcome outcome, @Nullable CloudAnchorState st) {
+        if (outcome == CloudAnchorTasks.Outcome.TIMEOUT) return true;
+        return st == CloudAnchorState.ERROR_SERVICE_UNAVAILABLE
+                || st == CloudAnchorState.ERROR_RESOURCE_EXHAUSTED;
+    }
+
+    private void persist() {
+        try {
+            JSONArray arr = new JSONArray();
+            for (Job j : jobs.values()) {
+                JSONObject o = new JSONObject();
+                o.put("docId", j.docId);
+                o.put("state", j.state.name());
+                o.put("attempts", j.attempts);
+                o.put("enqueuedAt", j.enqueuedAt);
+                arr.put(o);
+            }
+            SharedPreferences.Editor ed = prefs.edit();
+            if (arr.length() == 0) ed.remove(PREFS_KEY); else ed.putString(PREFS_KEY, arr.toString());
+            ed.apply();
+        } catch (Exception e) {
+            Log.w(TAG, "persist failed", e);
+        }
+    }
+}
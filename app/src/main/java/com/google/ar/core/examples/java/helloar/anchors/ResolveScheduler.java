@@ -0,0 +1,291 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Queues anchor resolves for previously saved eggs and releases them nearest-first, with a cap on
+ * how many of each kind run at once. It is also the single source of truth for "is this docId
+ * already queued / resolving / mounted", so callers don't need their own dedup sets.
+ *
+ * Call {@link #pump} once per frame from the GL thread; that re-prioritizes by the current camera
+ * position, drops queued work that fell out of range, flags out-of-range in-flight work as
+ * cancelled, and starts what the per-kind limits allow. Everything else is thread-safe.
+ */
+public class ResolveScheduler {
+    private static final String TAG = "ResolveScheduler";
+
+    public enum Kind { GEO, TERRAIN, CLOUD }
+
+    private enum State { QUEUED, RESOLVING, MOUNTED }
+
+    /** The actual ARCore work; must eventually call {@link Ticket#complete} exactly once. */
+    public interface Job { void start(Ticket ticket); }
+
+    /** Handle passed to a running job. */
+    public final class Ticket {
+        public final String docId;
+        public final Kind kind;
+        private boolean cancelled;
+        private boolean done;
+        @Nullable private Runnable onCancel;
+
+        private Ticket(String docId, Kind kind) {
+            this.docId = docId;
+            this.kind = kind;
+        }
+
+        /** True once the egg moved out of range (or was forgotten) while resolving. */
+        public boolean isCancelled() {
+            synchronized (ResolveScheduler.this) { return cancelled; }
+        }
+
+        /**
+         * Run {@code hook} when this ticket gets cancelled (range, forget, clear), e.g. to abort an
+         * ARCore future. Runs immediately if already cancelled; never under the scheduler lock.
+         */
+        public void setOnCancel(Runnable hook) {
+            boolean now;
+            synchronized (ResolveScheduler.this) {
+                now = cancelled && !done;
+                if (!now) onCancel = hook;
+            }
+            if (now) hook.run();
+        }
+
+        /**
+         * Report the outcome. Returns true if the caller should keep the anchor; false means the
+         * ticket was cancelled meanwhile and any anchor it produced should be detached.
+         */
+        public boolean complete(boolean mounted) {
+            return onComplete(this, mounted);
+        }
+    }
+
+    private static final class Entry {
+        final String docId;
+        final Kind kind;
+        final boolean hasGeo;
+        final double lat, lng;
+        Job job;
+        State state = State.QUEUED;
+        @Nullable Ticket ticket;
+        double priorityM;
+
+        Entry(String docId, Kind kind, boolean hasGeo, double lat, double lng, Job job) {
+            this.docId = docId;
+            this.kind = kind;
+            this.hasGeo = hasGeo;
+            this.lat = lat;
+            this.lng = lng;
+            this.job = job;
+        }
+    }
+
+    /** Counters since construction plus the current queue/in-flight sizes. */
+    public static final class Metrics {
+        public final int queued, mounted;
+        public final int[] inFlight;
+        public final long started, succeeded, failed, cancelled, deduped;
+
+        Metrics(int queued, int mounted, int[] inFlight,
+                long started, long succeeded, long failed, long cancelled, long deduped) {
+            this.queued = queued;
+            this.mounted = mounted;
+            this.inFlight = inFlight;
+            this.started = started;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.deduped = deduped;
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.US,
+                    "queued=%d geo/terrain/cloud=%d/%d/%d mounted=%d started=%d ok=%d fail=%d cancel=%d dedup=%d",
+                    queued, inFlight[0], inFlight[1], inFlight[2], mounted,
+                    started, succeeded, failed, cancelled, deduped);
+        }
+    }
+
+    private final int[] maxInFlight = new int[Kind.values().length];
+    private final int[] inFlight = new int[Kind.values().length];
+    private final double cancelRadiusM;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Entry> queue = new ArrayList<>();
+    private long started, succeeded, failed, cancelled, deduped;
+
+    /**
+     * @param cancelRadiusM queued work beyond this from the camera is dropped, in-flight work is
+     *                      cancelled. Eggs without a geo point are never range-cancelled.
+     */
+    public ResolveScheduler(int maxGeo, int maxTerrain, int maxCloud, double cancelRadiusM) {
+        maxInFlight[Kind.GEO.ordinal()] = maxGeo;
+        maxInFlight[Kind.TERRAIN.ordinal()] = maxTerrain;
+        maxInFlight[Kind.CLOUD.ordinal()] = maxCloud;
+        this.cancelRadiusM = cancelRadiusM;
+    }
+
+    /** Queue a resolve unless this docId is already queued, resolving or mounted. */
+    public synchronized boolean submit(String docId, Kind kind, boolean hasGeo, double lat, double lng, Job job) {
+        if (entries.containsKey(docId)) {
+            deduped++;
+            return false;
+        }
+        Entry e = new Entry(docId, kind, hasGeo, lat, lng, job);
+        entries.put(docId, e);
+        queue.add(e);
+        return true;
+    }
+
+    /** True if the docId is queued, resolving or mounted. */
+    public synchronized boolean isKnown(String docId) {
+        return entries.containsKey(docId);
+    }
+
+    /** Record an anchor mounted outside the scheduler (e.g. the user's own fresh placement). */
+    public void markMounted(String docId) {
+        List<Runnable> hooks = new ArrayList<>(1);
+        synchronized (this) {
+            Entry e = entries.get(docId);
+            if (e == null) {
+                e = new Entry(docId, Kind.GEO, false, 0, 0, null);
+                entries.put(docId, e);
+            } else if (e.state == State.QUEUED) {
+                queue.remove(e);
+            } else if (e.state == State.RESOLVING && e.ticket != null) {
+                cancel(e.ticket, hooks); // someone else already mounted it; its result gets dropped
+                e.ticket = null;
+            }
+            e.state = State.MOUNTED;
+        }
+        runHooks(hooks);
+    }
+
+    /** Forget a docId (unmounted / deleted): cancels queued or in-flight work for it. */
+    public void forget(String docId) {
+        List<Runnable> hooks = new ArrayList<>(1);
+        synchronized (this) {
+            Entry e = entries.remove(docId);
+            if (e == null) return;
+            if (e.state == State.QUEUED) queue.remove(e);
+            else if (e.state == State.RESOLVING && e.ticket != null) cancel(e.ticket, hooks);
+        }
+        runHooks(hooks);
+    }
+
+    public void clear() {
+        List<Runnable> hooks = new ArrayList<>();
+        synchronized (this) {
+            for (Entry e : entries.values()) {
+                if (e.state == State.RESOLVING && e.ticket != null) cancel(e.ticket, hooks);
+            }
+            entries.clear();
+            queue.clear();
+        }
+        runHooks(hooks);
+    }
+
+    /** Re-prioritize against the camera, apply range cancellation and start what fits. GL thread. */
+    public void pump(double camLat, double camLng) {
+        List<Entry> toStart = new ArrayList<>();
+        List<Runnable> hooks = new ArrayList<>();
+        synchronized (this) {
+            for (Entry e : entries.values()) {
+                if (e.state == State.MOUNTED) continue;
+                if (!e.hasGeo) { e.priorityM = 0; continue; }
+                e.priorityM = GeoMath.equirectMeters(camLat, camLng, e.lat, e.lng);
+                if (e.priorityM <= cancelRadiusM) continue;
+                if (e.state == State.QUEUED) {
+                    e.state = null; // removed below
+                    cancelled++;
+                } else if (e.state == State.RESOLVING && e.ticket != null && !e.ticket.cancelled) {
+                    cancel(e.ticket, hooks);
+                    cancelled++;
+                }
+            }
+            for (int i = queue.size() - 1; i >= 0; i--) {
+                Entry e = queue.get(i);
+                if (e.state == null) {
+                    queue.remove(i);
+                    entries.remove(e.docId);
+                }
+            }
+
+            queue.sort((a, b) -> Double.compare(a.priorityM, b.priorityM));
+            for (int i = 0; i < queue.size(); ) {
+                Entry e = queue.get(i);
+                int k = e.kind.ordinal();
+                if (inFlight[k] >= maxInFlight[k]) { i++; continue; }
+                queue.remove(i);
+                e.state = State.RESOLVING;
+                e.ticket = new Ticket(e.docId, e.kind);
+                inFlight[k]++;
+                started++;
+                toStart.add(e);
+            }
+        }
+        runHooks(hooks);
+        for (Entry e : toStart) {
+            try {
+                e.job.start(e.ticket);
+            } catch (Throwable t) {
+                Log.w(TAG, "resolve start failed for " + e.docId, t);
+                e.ticket.complete(false);
+            }
+        }
+    }
+
+    public synchronized Metrics metrics() {
+        int mounted = 0;
+        for (Entry e : entries.values()) if (e.state == State.MOUNTED) mounted++;
+        return new Metrics(queue.size(), mounted, inFlight.clone(),
+                started, succeeded, failed, cancelled, deduped);
+    }
+
+    private void cancel(Ticket t, List<Runnable> hooks) {
+        t.cancelled = true;
+        if (t.onCancel != null && !t.done) hooks.add(t.onCancel);
+        t.onCancel = null;
+    }
+
+    private static void runHooks(List<Runnable> hooks) {
+        for (Runnable r : hooks) {
+            try { r.run(); } catch (Throwable t) { Log.w(TAG, "cancel hook failed", t); }
+        }
+    }
+
+    private synchronized boolean onComplete(Ticket t, boolean mounted) {
+        if (t.done) return false;
+        t.done = true;
+        t.onCancel = null;
+        inFlight[t.kind.ordinal()]--;
+
+        Entry e = entries.get(t.docId);
+        boolean current = (e != null && e.ticket == t);
+        if (t.cancelled || !current) {
+            // range-cancelled / forgotten / superseded; let the docId be submitted again later
+            if (current) entries.remove(t.docId);
+            return false;
+        }
+        e.job = null;
+        if (mounted) {
+            e.state = State.MOUNTED;
+            succeeded++;
+        } else {
+            entries.remove(t.docId); // failed: a later sweep may retry
+            failed++;
+        }
+        return mounted;
+    }
+}
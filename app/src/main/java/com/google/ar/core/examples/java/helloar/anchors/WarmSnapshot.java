@@ -0,0 +1,122 @@
+package com.google.ar.core.examples.java.helloar.anchors;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The mounted set as of the last onPause: docId, kind and the resolved geospatial pose of each
+ * anchor, persisted so it also survives the activity being recreated behind the camera / gallery.
+ *
+ * On resume, geo and terrain eggs come straight back with {@code earth.createAnchor} from these
+ * poses instead of waiting on Firestore and another round of resolves; the index sweep and cell
+ * listeners reconcile in the background. Cloud eggs are recorded but left to the normal resolve,
+ * since a geo pose is a worse stand-in for them. Entries older than {@code maxAgeMs} are dropped.
+ */
+public class WarmSnapshot {
+    private static final String TAG = "WarmSnapshot";
+    private static final String PREFS_KEY = "warm_anchors";
+
+    public static final class Entry {
+        public final String docId;
+        public final ResolveScheduler.Kind kind;
+        public final double lat, lng, alt;
+        public final float qx, qy, qz, qw;
+        public final boolean recent;
+        @Nullable public final String modelType;
+        @Nullable public final String title;
+        @Nullable public final String thumbUrl;
+
+        public Entry(String docId, ResolveScheduler.Kind kind, double lat, double lng, double alt,
+                     float[] q, boolean recent,
+                     @Nullable String modelType, @Nullable String title, @Nullable String thumbUrl) {
+            this.docId = docId;
+            this.kind = kind;
+            this.lat = lat;
+            this.lng = lng;
+            this.alt = alt;
+            this.qx = q[0];
+            this.qy = q[1];
+            this.qz = q[2];
+            this.qw = q[3];
+            this.recent = recent;
+            this.modelType = modelType;
+            this.title = title;
+            this.thumbUrl = thumbUrl;
+        }
+    }
+
+    private final SharedPreferences prefs;
+
+    public WarmSnapshot(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    /** Replace the stored snapshot; an empty list clears it. */
+    public void save(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            prefs.edit().remove(PREFS_KEY).apply();
+            return;
+        }
+        try {
+            JSONArray arr = new JSONArray();
+            for (Entry e : entries) {
+                JSONObject o = new JSONObject();
+                o.put("docId", e.docId);
+                o.put("kind", e.kind.name());
+                o.put("lat", e.lat);
+                o.put("lng", e.lng);
+                o.put("alt", e.alt);
+                o.put("q", new JSONArray().put(e.qx).put(e.qy).put(e.qz).put(e.qw));
+                o.put("recent", e.recent);
+                if (e.modelType != null) o.put("model", e.modelType);
+                if (e.title != null) o.put("title", e.title);
+                if (e.thumbUrl != null) o.put("thumb", e.thumbUrl);
+                arr.put(o);
+            }
+            JSONObject root = new JSONObject();
+            root.put("savedAt", System.currentTimeMillis());
+            root.put("anchors", arr);
+            prefs.edit().putString(PREFS_KEY, root.toString()).apply();
+        } catch (Exception e) {
+            Log.w(TAG, "save failed", e);
+        }
+    }
+
+    /** Read and clear the stored snapshot. Empty if none, unreadable or older than {@code maxAgeMs}. */
+    public List<Entry> take(long maxAgeMs) {
+        String raw = prefs.getString(PREFS_KEY, null);
+        if (raw == null) return Collections.emptyList();
+        prefs.edit().remove(PREFS_KEY).apply();
+        try {
+            JSONObject root = new JSONObject(raw);
+            if (System.currentTimeMillis() - root.getLong("savedAt") > maxAgeMs) return Collections.emptyList();
+            JSONArray arr = root.getJSONArray("anchors");
+            List<Entry> out = new ArrayList<>(arr.length());
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                JSONArray q = o.getJSONArray("q");
+                out.add(new Entry(
+                        o.getString("docId"),
+                        ResolveScheduler.Kind.valueOf(o.getString("kind")),
+                        o.getDouble("lat"), o.getDouble("lng"), o.getDouble("alt"),
+                        new float[]{ (float) q.getDouble(0), (float) q.getDouble(1),
+                                (float) q.getDouble(2), (float) q.getDouble(3) },
+                        o.optBoolean("recent"),
+                        o.optString("model", null), o.optString("title", null), o.optString("thumb", null)));
+            }
+            return out;
+        } catch (Exception e) {
+            Log.w(TAG, "bad warm snapshot, dropping", e);
+            return Collections.emptyList();
+        }
+    }
+}
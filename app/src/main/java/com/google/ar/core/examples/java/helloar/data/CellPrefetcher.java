@@ -0,0 +1,219 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Warms egg cells ahead of the user while they walk.
+ *
+ * Velocity comes from smoothed successive camera geo poses; the cells covering the predicted path
+ * over the next {@link #HORIZON_S} seconds are filled through
+ * {@link CellSubscriptionManager#warmCell}, and their thumbnails handed to a {@link ThumbWarmer}.
+ * Doc reads and thumbnails each draw from a per-minute budget. A heading change of more than
+ * {@link #REPLAN_HEADING_DEG} drops everything still queued for the old direction and cancels the
+ * warms in flight for it: their results are neither written nor charged to the doc budget.
+ */
+public class CellPrefetcher {
+    private static final String TAG = "CellPrefetcher";
+
+    private static final long SAMPLE_MIN_MS = 1_000L;
+    private static final double VEL_SMOOTHING = 0.35;     // EMA weight of the newest sample
+    private static final double MIN_SPEED_MPS = 0.4;      // standing / GPS jitter below this
+    private static final double MAX_SPEED_MPS = 3.0;      // faster than a jog is likely a pose jump
+    private static final int HORIZON_S = 60;
+    private static final int HORIZON_STEP_S = 15;
+    private static final double REPLAN_HEADING_DEG = 45.0;
+    private static final long REPLAN_MIN_MS = 5_000L;
+
+    private static final int DOC_BUDGET_PER_MIN = 300;
+    private static final int THUMB_BUDGET_PER_MIN = 30;
+    private static final int MAX_DOCS_PER_CELL = 100;
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final int MAX_WARMED_REMEMBERED = 512;
+
+    /** Preloads a thumbnail URL into the image cache. Called on the main thread. */
+    public interface ThumbWarmer { void warm(String url); }
+
+    private final CellSubscriptionManager subs;
+    private final ThumbWarmer thumbs;
+    private final double radiusM;
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    // motion estimate (guarded by this; fed from the GL thread, cleared by reset)
+    private double lastLat, lastLng;
+    private long lastSampleMs = 0L;
+    private double velN = 0, velE = 0;  // m/s
+
+    // plan (guarded by this)
+    private double planHeadingDeg = Double.NaN;
+    private long planAtMs = 0L;
+    private int generation = 0;
+    private CancellationSignal genCancel = new CancellationSignal(); // fired when generation moves on
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    private final Set<String> warmed = new HashSet<>();
+    private int inFlight = 0;
+    private boolean budgetRetryPosted = false;
+
+    // budgets (guarded by this)
+    private long budgetWindowStartMs = 0L;
+    private int docsSpent = 0, thumbsSpent = 0;
+
+    public CellPrefetcher(CellSubscriptionManager subs, ThumbWarmer thumbs, double radiusM) {
+        this.subs = subs;
+        this.thumbs = thumbs;
+        this.radiusM = radiusM;
+    }
+
+    /** Feed every camera geo pose; cheap unless a new sample or plan is due. */
+    public synchronized void onPose(double lat, double lng, long nowMs) {
+        if (lastSampleMs == 0L) {
+            lastLat = lat; lastLng = lng; lastSampleMs = nowMs;
+            return;
+        }
+        long dt = nowMs - lastSampleMs;
+        if (dt < SAMPLE_MIN_MS) return;
+
+        double s = dt / 1000.0;
+        double vn = (lat - lastLat) * GeoMath.METERS_PER_DEG / s;
+        double ve = GeoMath.deltaLng(lastLng, lng) * GeoMath.METERS_PER_DEG * GeoMath.cosLat(lat) / s;
+        lastLat = lat; lastLng = lng; lastSampleMs = nowMs;
+        if (Math.hypot(vn, ve) > MAX_SPEED_MPS) return; // ignore localization jumps
+
+        velN += VEL_SMOOTHING * (vn - velN);
+        velE += VEL_SMOOTHING * (ve - velE);
+
+        double speed = Math.hypot(velN, velE);
+        if (speed < MIN_SPEED_MPS) return;
+        double heading = Math.toDegrees(Math.atan2(velE, velN));
+        maybeReplan(lat, lng, speed, heading, nowMs);
+    }
+
+    /** Clears motion state, queued and in-flight work, and what was warmed (onPause). */
+    public synchronized void reset() {
+        lastSampleMs = 0L;
+        velN = velE = 0;
+        planHeadingDeg = Double.NaN;
+        queue.clear();
+        // after a pause everything may be stale; re-warm cells as the user walks into them again
+        warmed.clear();
+        nextGeneration();
+    }
+
+    /** Drops in-flight warms for the current plan. Caller holds the lock. */
+    private void nextGeneration() {
+        generation++;
+        genCancel.cancel();
+        genCancel = new CancellationSignal();
+    }
+
+    private synchronized void maybeReplan(double lat, double lng, double speed, double heading, long nowMs) {
+        boolean turned = Double.isNaN(planHeadingDeg) || angleDiff(heading, planHeadingDeg) > REPLAN_HEADING_DEG;
+        if (!turned && nowMs - planAtMs < REPLAN_MIN_MS) return;
+
+        if (turned && (!queue.isEmpty() || inFlight > 0)) {
+            Log.d(TAG, "heading changed, dropping " + queue.size() + " queued and " + inFlight + " in-flight cells");
+            queue.clear();
+            nextGeneration();
+        }
+        planHeadingDeg = heading;
+        planAtMs = nowMs;
+
+        Set<String> planned = new LinkedHashSet<>();
+        double hRad = Math.toRadians(heading);
+        for (int t = HORIZON_STEP_S; t <= HORIZON_S; t += HORIZON_STEP_S) {
+            double d = speed * t;
+            double pLat = lat + GeoMath.metersToDegLat(d * Math.cos(hRad));
+            double pLng = lng + GeoMath.metersToDegLng(d * Math.sin(hRad), lat);
+            if (pLng >= 180) pLng -= 360; else if (pLng < -180) pLng += 360;
+            List<String> cells = GeoHash.cover(pLat, pLng, radiusM);
+            planned.addAll(cells);
+        }
+        for (String c : planned) {
+            if (!warmed.contains(c) && !queue.contains(c)) queue.add(c);
+        }
+        main.post(this::pump);
+    }
+
+    /** Starts queued warms while the budget and in-flight cap allow. Main thread. */
+    private void pump() {
+        while (true) {
+            final String cell;
+            final int gen;
+            final CancellationSignal cancel;
+            final int maxDocs;
+            synchronized (this) {
+                if (queue.isEmpty() || inFlight >= MAX_IN_FLIGHT) return;
+                rollBudgetWindow();
+                maxDocs = Math.min(MAX_DOCS_PER_CELL, DOC_BUDGET_PER_MIN - docsSpent);
+                if (maxDocs <= 0) {
+                    // out of budget: try again when the window rolls over
+                    if (!budgetRetryPosted) {
+                        budgetRetryPosted = true;
+                        main.postDelayed(() -> {
+                            synchronized (this) { budgetRetryPosted = false; }
+                            pump();
+                        }, 60_000L - (System.currentTimeMillis() - budgetWindowStartMs));
+                    }
+                    return;
+                }
+                cell = queue.poll();
+                gen = generation;
+                cancel = genCancel;
+                if (warmed.size() >= MAX_WARMED_REMEMBERED) warmed.clear();
+                warmed.add(cell);
+                inFlight++;
+                docsSpent += maxDocs; // reserve; refunded below once the real count is known
+            }
+            subs.warmCell(cell, maxDocs, cancel, eggs -> {
+                boolean current;
+                synchronized (this) {
+                    inFlight--;
+                    docsSpent = Math.max(0, docsSpent - (maxDocs - eggs.size()));
+                    current = (gen == generation);
+                    // a cancelled warm wrote nothing; let a later plan pick the cell up again
+                    if (!current) warmed.remove(cell);
+                }
+                if (current) warmThumbs(eggs);
+                Log.d(TAG, "warmed " + cell + " (" + eggs.size() + " docs)");
+                pump();
+            });
+        }
+    }
+
+    private void warmThumbs(List<EggSummary> eggs) {
+        for (EggSummary e : eggs) {
+            if (e.thumbUrl == null) continue;
+            synchronized (this) {
+                rollBudgetWindow();
+                if (thumbsSpent >= THUMB_BUDGET_PER_MIN) return;
+                thumbsSpent++;
+            }
+            thumbs.warm(e.thumbUrl);
+        }
+    }
+
+    private void rollBudgetWindow() {
+        long now = System.currentTimeMillis();
+        if (now - budgetWindowStartMs >= 60_000L) {
+            budgetWindowStartMs = now;
+            docsSpent = 0;
+            thumbsSpent = 0;
+        }
+    }
+
+    private static double angleDiff(double a, double b) {
+        double d = Math.abs(a - b) % 360.0;
+        return d > 180 ? 360 - d : d;
+    }
+}
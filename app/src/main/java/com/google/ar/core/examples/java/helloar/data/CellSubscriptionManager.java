@@ -0,0 +1,325 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps one Firestore snapshot listener per geohash cell around the camera and applies the
+ * ADDED / MODIFIED / REMOVED deltas to the shared {@link EggSpatialIndex}.
+ *
+ * Cells are attached when they intersect {@code radiusM} and only detached once the camera is more
+ * than {@code radiusM + detachMarginM} from the cell, so walking along a cell border doesn't churn
+ * listeners. After the initial snapshot a listener only costs reads for docs that actually change.
+ *
+ * With an {@link EggCache}, a newly attached cell is first filled from disk and the listener only
+ * asks for {@code updatedAt > watermark}, so revisiting an area costs almost no reads. A full
+ * (unfiltered) listen is still done when the cell was never synced or its last full sync is older
+ * than {@link #FULL_RESYNC_MS}; that's also what prunes eggs deleted on the server.
+ *
+ * REMOVED only means a doc left one cell's query, not that it was deleted: an egg whose
+ * {@code cells} moved to a neighbouring cell fires REMOVED there and ADDED here, in either order.
+ * It is only dropped from the index (and unmounted) once no other attached cell lists it, confirmed
+ * with a doc read.
+ */
+public class CellSubscriptionManager {
+    private static final String TAG = "CellSubscriptions";
+    private static final long FULL_RESYNC_MS = 24L * 60 * 60 * 1000;
+    // Re-read a little below the watermark; server timestamps of concurrent commits can interleave.
+    private static final long WATERMARK_SKEW_MS = 60_000L;
+
+    /** Called on the main thread after the index has been updated. */
+    public interface Listener {
+        void onEggUpserted(EggSummary egg);
+        void onEggRemoved(String docId);
+    }
+
+    private final FirebaseFirestore db;
+    private final String collection;
+    private final EggSpatialIndex index;
+    private final @Nullable EggCache cache;
+    private final Listener listener;
+    private final double radiusM;
+    private final double detachMarginM;
+    private final double updateStepM;
+
+    /** One attached cell; {@code reg} stays null while the disk load is in flight. */
+    private static final class Sub {
+        final String cell;
+        @Nullable ListenerRegistration reg;
+        boolean full;
+        boolean cancelled;
+
+        Sub(String cell) { this.cell = cell; }
+
+        void cancel() {
+            cancelled = true;
+            if (reg != null) reg.remove();
+        }
+    }
+
+    private final Map<String, Sub> active = new HashMap<>();
+    private double centerLat = Double.NaN, centerLng = Double.NaN;
+
+    /**
+     * @param updateStepM camera movement below this is ignored by {@link #update}, so calling it
+     *                    every frame is cheap.
+     */
+    public CellSubscriptionManager(FirebaseFirestore db, String collection, EggSpatialIndex index,
+                                   @Nullable EggCache cache, Listener listener, double radiusM,
+                                   double detachMarginM, double updateStepM) {
+        this.db = db;
+        this.collection = collection;
+        this.index = index;
+        this.cache = cache;
+        this.listener = listener;
+        this.radiusM = radiusM;
+        this.detachMarginM = detachMarginM;
+        this.updateStepM = updateStepM;
+    }
+
+    /**
+     * Re-centers the subscriptions on the camera. Returns true if the center moved far enough to
+     * recompute the cell set (callers can use that to re-sweep the index).
+     */
+    public synchronized boolean update(double lat, double lng) {
+        if (!Double.isNaN(centerLat) && GeoMath.equirectMeters(centerLat, centerLng, lat, lng) < updateStepM) {
+            return false;
+        }
+        centerLat = lat;
+        centerLng = lng;
+
+        for (String cell : GeoHash.cover(lat, lng, radiusM)) {
+            if (!isCovered(cell)) attach(cell);
+        }
+
+        Iterator<Map.Entry<String, Sub>> it = active.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Sub> e = it.next();
+            if (GeoHash.distanceToCellMeters(lat, lng, e.getKey()) > radiusM + detachMarginM) {
+                e.getValue().cancel();
+                it.remove();
+                Log.d(TAG, "detached " + e.getKey());
+            }
+        }
+        return true;
+    }
+
+    /** Drops every listener (onPause); the next {@link #update} re-attaches from scratch. */
+    public synchronized void detachAll() {
+        for (Sub sub : active.values()) sub.cancel();
+        active.clear();
+        centerLat = centerLng = Double.NaN;
+    }
+
+    public synchronized int activeCount() { return active.size(); }
+
+    /**
+     * One-shot fill of a cell that isn't subscribed yet (used for prefetch). Reads disk, then at most
+     * {@code maxDocs} docs newer than the cell's watermark, updating index and cache like a listener
+     * would. {@code done} gets the eggs that came from the network (empty if nothing was fetched).
+     *
+     * Once {@code cancel} fires nothing more is written: a read not yet sent is skipped, and one
+     * already on the wire is dropped on arrival. {@code done} still runs, with an empty list.
+     */
+    public void warmCell(String cell, int maxDocs, @Nullable CancellationSignal cancel,
+                         EggCache.Callback<List<EggSummary>> done) {
+        synchronized (this) {
+            if (isCovered(cell)) { done.onResult(new ArrayList<>()); return; }
+        }
+        if (cache == null) {
+            fetchOnce(cell, 0L, maxDocs, cancel, done);
+            return;
+        }
+        cache.loadCellAsync(cell, state -> {
+            if (isCanceled(cancel)) { done.onResult(new ArrayList<>()); return; }
+            for (EggSummary egg : state.eggs) index.put(egg);
+            boolean stale = System.currentTimeMillis() - state.fullSyncAtMs > FULL_RESYNC_MS;
+            fetchOnce(cell, stale ? 0L : state.watermarkMs, maxDocs, cancel, done);
+        });
+    }
+
+    private static boolean isCanceled(@Nullable CancellationSignal cancel) {
+        return cancel != null && cancel.isCanceled();
+    }
+
+    private void fetchOnce(String cell, long sinceMs, int maxDocs, @Nullable CancellationSignal cancel,
+                           EggCache.Callback<List<EggSummary>> done) {
+        Query q = db.collection(collection).whereArrayContains("cells", cell);
+        if (sinceMs > 0) {
+            // oldest changes first, so a truncated page still advances the watermark correctly
+            q = q.whereGreaterThan("updatedAt", new Timestamp(new Date(sinceMs - WATERMARK_SKEW_MS)))
+                    .orderBy("updatedAt");
+        }
+        q.limit(maxDocs).get().addOnSuccessListener(qs -> {
+            if (isCanceled(cancel)) { done.onResult(new ArrayList<>()); return; }
+            List<EggSummary> upserts = new ArrayList<>();
+            long maxUpdated = 0L;
+            for (DocumentSnapshot d : qs.getDocuments()) {
+                EggSummary egg = EggSummary.from(d);
+                index.put(egg);
+                listener.onEggUpserted(egg);
+                upserts.add(egg);
+                maxUpdated = Math.max(maxUpdated, egg.updatedAtMs);
+            }
+            if (cache != null && !qs.getMetadata().isFromCache()) {
+                boolean complete = qs.size() < maxDocs;
+                Set<String> fullSet = null;
+                if (sinceMs == 0 && complete) {
+                    fullSet = new HashSet<>();
+                    for (EggSummary e : upserts) fullSet.add(e.id);
+                }
+                // a truncated full read says nothing about what's missing, so no watermark for it
+                long watermark = (sinceMs > 0 || complete) ? maxUpdated : 0L;
+                cache.applyAsync(cell, upserts, new ArrayList<>(), fullSet, watermark);
+            }
+            done.onResult(upserts);
+        }).addOnFailureListener(e -> {
+            Log.w(TAG, "warm " + cell + " failed", e);
+            done.onResult(new ArrayList<>());
+        });
+    }
+
+    /** True if this cell or one of its ancestors already has a listener (covers are mixed-level). */
+    private boolean isCovered(String cell) {
+        for (int len = cell.length(); len >= GeoHash.INDEX_MIN_PRECISION; len--) {
+            if (active.containsKey(cell.substring(0, len))) return true;
+        }
+        return false;
+    }
+
+    private void attach(String cell) {
+        Sub sub = new Sub(cell);
+        active.put(cell, sub);
+        if (cache == null) {
+            listen(sub, 0L);
+            return;
+        }
+        cache.loadCellAsync(cell, state -> {
+            synchronized (this) {
+                if (sub.cancelled) return;
+            }
+            for (EggSummary egg : state.eggs) {
+                index.put(egg);
+                listener.onEggUpserted(egg);
+            }
+            boolean stale = System.currentTimeMillis() - state.fullSyncAtMs > FULL_RESYNC_MS;
+            listen(sub, stale ? 0L : state.watermarkMs);
+            Log.d(TAG, cell + ": " + state.eggs.size() + " from disk, "
+                    + (stale || state.watermarkMs == 0 ? "full sync" : "delta since " + state.watermarkMs));
+        });
+    }
+
+    /** @param sinceMs 0 for a full listen, else only docs updated after this. */
+    private synchronized void listen(Sub sub, long sinceMs) {
+        if (sub.cancelled) return;
+        Query q = db.collection(collection).whereArrayContains("cells", sub.cell);
+        if (sinceMs > 0) {
+            q = q.whereGreaterThan("updatedAt", new Timestamp(new Date(sinceMs - WATERMARK_SKEW_MS)));
+        }
+        sub.full = (sinceMs == 0);
+        // Metadata changes too, so the cache -> server transition (which completes a sync) is seen.
+        sub.reg = q.addSnapshotListener(MetadataChanges.INCLUDE, (qs, err) -> {
+            if (err != null) {
+                Log.w(TAG, "listener " + sub.cell + " failed", err);
+                return;
+            }
+            if (qs != null) applyChanges(sub, qs);
+        });
+        Log.d(TAG, "attached " + sub.cell);
+    }
+
+    private void applyChanges(Sub sub, QuerySnapshot qs) {
+        List<EggSummary> upserts = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        long maxUpdated = 0L;
+        for (DocumentChange dc : qs.getDocumentChanges()) {
+            DocumentSnapshot d = dc.getDocument();
+            switch (dc.getType()) {
+                case ADDED:
+                case MODIFIED: {
+                    EggSummary egg = EggSummary.from(d);
+                    index.put(egg);
+                    listener.onEggUpserted(egg);
+                    upserts.add(egg);
+                    // pending local writes have no server updatedAt yet
+                    if (!d.getMetadata().hasPendingWrites()) maxUpdated = Math.max(maxUpdated, egg.updatedAtMs);
+                    break;
+                }
+                case REMOVED: {
+                    String id = d.getId();
+                    removed.add(id);
+                    // Moved into another cell we're listening to: that listener owns it now
+                    EggSummary known = index.get(id);
+                    if (known != null && watchedElsewhere(known, sub)) break;
+                    confirmRemoved(id);
+                    break;
+                }
+            }
+        }
+
+        if (cache == null) return;
+        // Only a server-backed snapshot proves the cell is complete up to maxUpdated.
+        boolean fromServer = !qs.getMetadata().isFromCache();
+        Set<String> fullSet = null;
+        if (sub.full && fromServer) {
+            sub.full = false; // only the first server snapshot of a full listen is the whole cell
+            fullSet = new HashSet<>();
+            for (DocumentSnapshot d : qs.getDocuments()) fullSet.add(d.getId());
+        }
+        if (upserts.isEmpty() && removed.isEmpty() && fullSet == null) return;
+        // removed only drops the eggs' membership in this cell, not their rows
+        cache.applyAsync(sub.cell, upserts, removed, fullSet, fromServer ? maxUpdated : 0L);
+    }
+
+    /**
+     * Reads the doc behind a REMOVED change. Deleted, or moved out of every attached cell: drop it.
+     * Still listed by an attached cell: keep it (the upsert is harmless if that cell's ADDED already
+     * ran). On failure it stays; the next full sync prunes it if it's really gone.
+     */
+    private void confirmRemoved(String id) {
+        db.collection(collection).document(id).get().addOnSuccessListener(d -> {
+            if (d.exists()) {
+                EggSummary egg = EggSummary.from(d);
+                if (watchedElsewhere(egg, null)) {
+                    index.put(egg);
+                    listener.onEggUpserted(egg);
+                    return;
+                }
+            }
+            index.remove(id);
+            listener.onEggRemoved(id);
+        }).addOnFailureListener(e -> Log.w(TAG, "confirming removal of " + id + " failed; keeping it", e));
+    }
+
+    /** True if an attached cell other than {@code except} lists the egg (its cells are its geohash prefixes). */
+    private synchronized boolean watchedElsewhere(EggSummary egg, @Nullable Sub except) {
+        if (!egg.hasGeo) return false;
+        for (String cell : GeoHash.cellKeys(egg.lat, egg.lng)) {
+            Sub other = active.get(cell);
+            if (other != null && other != except) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,276 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-disk cache of {@link EggSummary} rows plus a per-cell sync watermark.
+ *
+ * A cell's watermark is the highest server {@code updatedAt} such that every egg in the cell with
+ * {@code updatedAt <= watermark} is already on disk. A watermark on a coarser cell also covers all
+ * of its descendants, so lookups take the best one along the prefix chain. It also keeps resolved
+ * terrain altitudes for {@link TerrainCache}. All disk work runs on a single background thread;
+ * callbacks come back on the main thread.
+ */
+public class EggCache extends SQLiteOpenHelper {
+    private static final String TAG = "EggCache";
+    private static final String DB_NAME = "egg_cache.db";
+    private static final int DB_VERSION = 2;
+
+    private static final String T_EGGS = "eggs";
+    private static final String T_SYNC = "cell_sync";
+    private static final String T_TERRAIN = "terrain";
+
+    public interface Callback<T> { void onResult(T value); }
+
+    /** Cached eggs of one cell and how far that cell has been synced. */
+    public static final class CellState {
+        public final List<EggSummary> eggs;
+        public final long watermarkMs;
+        public final long fullSyncAtMs;
+
+        CellState(List<EggSummary> eggs, long watermarkMs, long fullSyncAtMs) {
+            this.eggs = eggs;
+            this.watermarkMs = watermarkMs;
+            this.fullSyncAtMs = fullSyncAtMs;
+        }
+    }
+
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    public EggCache(Context ctx) {
+        super(ctx.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_EGGS + " ("
+                + "id TEXT PRIMARY KEY, geohash TEXT NOT NULL, lat REAL, lng REAL, alt REAL, heading REAL,"
+                + "model TEXT, anchorType TEXT, cloudId TEXT, title TEXT, thumbUrl TEXT,"
+                + "qx REAL, qy REAL, qz REAL, qw REAL, hat REAL, updatedAt INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX eggs_geohash ON " + T_EGGS + "(geohash)");
+        db.execSQL("CREATE TABLE " + T_SYNC + " ("
+                + "cell TEXT PRIMARY KEY, watermark INTEGER NOT NULL, fullSyncAt INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + T_TERRAIN + " ("
+                + "key TEXT PRIMARY KEY, alt REAL NOT NULL, resolvedAt INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // It's a cache: start over rather than migrate.
+        db.execSQL("DROP TABLE IF EXISTS " + T_EGGS);
+        db.execSQL("DROP TABLE IF EXISTS " + T_SYNC);
+        db.execSQL("DROP TABLE IF EXISTS " + T_TERRAIN);
+        onCreate(db);
+    }
+
+    /** Loads every cached egg under {@code cell} and the cell's effective watermark. */
+    public void loadCellAsync(String cell, Callback<CellState> cb) {
+        if (io.isShutdown()) return;
+        io.execute(() -> {
+            CellState state;
+            try {
+                state = loadCell(cell);
+            } catch (Exception e) {
+                Log.w(TAG, "loadCell " + cell + " failed", e);
+                state = new CellState(new ArrayList<>(), 0L, 0L);
+            }
+            final CellState fState = state;
+            main.post(() -> cb.onResult(fState));
+        });
+    }
+
+    /**
+     * Writes one batch of listener changes for {@code cell} in a single transaction.
+     *
+     * @param removedIds ids that left the cell's query. Only their membership in {@code cell} is
+     *                   dropped: a row is deleted while it is still filed under the cell, but an egg
+     *                   that moved to another cell keeps the row that cell's upsert wrote.
+     * @param fullSetIds when non-null, the complete set of ids the server holds for the cell;
+     *                   cached rows under the cell that are not in it are deleted.
+     * @param watermarkMs new watermark, or 0 to leave it unchanged. Never moves backwards.
+     */
+    public void applyAsync(String cell, List<EggSummary> upserts, List<String> removedIds,
+                           @Nullable Set<String> fullSetIds, long watermarkMs) {
+        if (io.isShutdown()) return;
+        io.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (EggSummary e : upserts) {
+                    if (e.hasGeo) db.insertWithOnConflict(T_EGGS, null, toValues(e), SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                String cellEnd = cell + "~";
+                for (String id : removedIds) {
+                    db.delete(T_EGGS, "id = ? AND geohash >= ? AND geohash < ?", new String[]{ id, cell, cellEnd });
+                }
+                if (fullSetIds != null) prune(db, cell, fullSetIds);
+                if (watermarkMs > 0 || fullSetIds != null) writeSync(db, cell, watermarkMs, fullSetIds != null);
+                db.setTransactionSuccessful();
+            } catch (Exception ex) {
+                Log.w(TAG, "apply " + cell + " failed", ex);
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /** Terrain altitude (WGS84) stored under {@code key}, or null if none. */
+    public void loadTerrainAsync(String key, Callback<Double> cb) {
+        if (io.isShutdown()) return;
+        io.execute(() -> {
+            Double alt = null;
+            try (Cursor c = getReadableDatabase().query(T_TERRAIN, new String[]{ "alt" }, "key = ?",
+                    new String[]{ key }, null, null, null)) {
+                if (c.moveToFirst()) alt = c.getDouble(0);
+            } catch (Exception e) {
+                Log.w(TAG, "loadTerrain " + key + " failed", e);
+            }
+            final Double fAlt = alt;
+            main.post(() -> cb.onResult(fAlt));
+        });
+    }
+
+    public void putTerrainAsync(String key, double alt) {
+        if (io.isShutdown()) return;
+        io.execute(() -> {
+            try {
+                ContentValues v = new ContentValues();
+                v.put("key", key);
+                v.put("alt", alt);
+                v.put("resolvedAt", System.currentTimeMillis());
+                getWritableDatabase().insertWithOnConflict(T_TERRAIN, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+            } catch (Exception e) {
+                Log.w(TAG, "putTerrain " + key + " failed", e);
+            }
+        });
+    }
+
+    /** Drops the background thread and the connection (activity onDestroy). */
+    public void shutdown() {
+        io.execute(this::close);
+        io.shutdown();
+    }
+
+    private CellState loadCell(String cell) {
+        SQLiteDatabase db = getReadableDatabase();
+        List<EggSummary> eggs = new ArrayList<>();
+        try (Cursor c = db.query(T_EGGS, null, "geohash >= ? AND geohash < ?",
+                new String[]{ cell, cell + "~" }, null, null, null)) {
+            while (c.moveToNext()) eggs.add(fromCursor(c));
+        }
+
+        long watermark = 0L, fullSyncAt = 0L;
+        String[] prefixes = new String[cell.length() - GeoHash.INDEX_MIN_PRECISION + 1];
+        StringBuilder where = new StringBuilder("cell IN (");
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = cell.substring(0, GeoHash.INDEX_MIN_PRECISION + i);
+            where.append(i == 0 ? "?" : ",?");
+        }
+        where.append(')');
+        try (Cursor c = db.query(T_SYNC, new String[]{ "watermark", "fullSyncAt" }, where.toString(),
+                prefixes, null, null, null)) {
+            while (c.moveToNext()) {
+                watermark = Math.max(watermark, c.getLong(0));
+                fullSyncAt = Math.max(fullSyncAt, c.getLong(1));
+            }
+        }
+        return new CellState(eggs, watermark, fullSyncAt);
+    }
+
+    private static void prune(SQLiteDatabase db, String cell, Set<String> keep) {
+        List<String> stale = new ArrayList<>();
+        try (Cursor c = db.query(T_EGGS, new String[]{ "id" }, "geohash >= ? AND geohash < ?",
+                new String[]{ cell, cell + "~" }, null, null, null)) {
+            while (c.moveToNext()) {
+                String id = c.getString(0);
+                if (!keep.contains(id)) stale.add(id);
+            }
+        }
+        for (String id : stale) db.delete(T_EGGS, "id = ?", new String[]{ id });
+    }
+
+    private static void writeSync(SQLiteDatabase db, String cell, long watermarkMs, boolean full) {
+        long prevWatermark = 0L, prevFull = 0L;
+        try (Cursor c = db.query(T_SYNC, new String[]{ "watermark", "fullSyncAt" }, "cell = ?",
+                new String[]{ cell }, null, null, null)) {
+            if (c.moveToFirst()) {
+                prevWatermark = c.getLong(0);
+                prevFull = c.getLong(1);
+            }
+        }
+        ContentValues v = new ContentValues();
+        v.put("cell", cell);
+        v.put("watermark", Math.max(prevWatermark, watermarkMs));
+        v.put("fullSyncAt", full ? System.currentTimeMillis() : prevFull);
+        db.insertWithOnConflict(T_SYNC, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static ContentValues toValues(EggSummary e) {
+        ContentValues v = new ContentValues();
+        v.put("id", e.id);
+        v.put("geohash", GeoHash.encode(e.lat, e.lng, GeoHash.FULL_PRECISION));
+        v.put("lat", e.lat);
+        v.put("lng", e.lng);
+        v.put("alt", e.alt);
+        v.put("heading", e.heading);
+        v.put("model", e.model);
+        v.put("anchorType", e.anchorType);
+        v.put("cloudId", e.cloudId);
+        v.put("title", e.title);
+        v.put("thumbUrl", e.thumbUrl);
+        if (e.localQ != null) {
+            v.put("qx", e.localQ[0]);
+            v.put("qy", e.localQ[1]);
+            v.put("qz", e.localQ[2]);
+            v.put("qw", e.localQ[3]);
+        }
+        v.put("hat", e.heightAboveTerrain);
+        v.put("updatedAt", e.updatedAtMs);
+        return v;
+    }
+
+    private static EggSummary fromCursor(Cursor c) {
+        float[] q = c.isNull(c.getColumnIndexOrThrow("qx")) ? null : new float[]{
+                c.getFloat(c.getColumnIndexOrThrow("qx")), c.getFloat(c.getColumnIndexOrThrow("qy")),
+                c.getFloat(c.getColumnIndexOrThrow("qz")), c.getFloat(c.getColumnIndexOrThrow("qw")) };
+        return new EggSummary(
+                c.getString(c.getColumnIndexOrThrow("id")),
+                true,
+                c.getDouble(c.getColumnIndexOrThrow("lat")),
+                c.getDouble(c.getColumnIndexOrThrow("lng")),
+                nullableDouble(c, "alt"),
+                c.getDouble(c.getColumnIndexOrThrow("heading")),
+                c.getString(c.getColumnIndexOrThrow("model")),
+                c.getString(c.getColumnIndexOrThrow("anchorType")),
+                c.getString(c.getColumnIndexOrThrow("cloudId")),
+                c.getString(c.getColumnIndexOrThrow("title")),
+                c.getString(c.getColumnIndexOrThrow("thumbUrl")),
+                q,
+                nullableDouble(c, "hat"),
+                c.getLong(c.getColumnIndexOrThrow("updatedAt")));
+    }
+
+    @Nullable
+    private static Double nullableDouble(Cursor c, String col) {
+        int i = c.getColumnIndexOrThrow(col);
+        return c.isNull(i) ? null : c.getDouble(i);
+    }
+}
@@ -21,6 +21,8 @@ public class EggEntry {
     public String userId;
 
     // ---------- Content ----------
+    // description, speechTranscript, quiz and poseMatrix are written to eggs/{id}/content/main
+    // (see EggRepository#createDraft); only legacy docs carry them on the main doc.
     public String title;
     public String description;
 
@@ -32,6 +34,10 @@ public class EggEntry {
     public @Nullable Double heading;
     public @Nullable Double horizAcc;  // meters
     public @Nullable Double vertAcc;   // meters
+    /** Full-precision geohash of {@link #geo}. */
+    public @Nullable String geohash;
+    /** Geohash prefixes at every indexed level (see GeoHash#cellKeys). */
+    public @Nullable List<String> cells;
 
     // Pose snapshot (4x4 matrix flattened, length 16)
     public @Nullable List<Float> poseMatrix;
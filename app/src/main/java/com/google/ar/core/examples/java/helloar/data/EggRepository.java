@@ -10,17 +10,24 @@ import android.webkit.MimeTypeMap;
 import androidx.annotation.Nullable;
 
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
 import com.google.ar.core.examples.java.helloar.util.MediaPrep;
 
 import java.io.File;
@@ -30,12 +37,23 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 // FIX: single functional type for progress
 import java.util.function.IntConsumer;
 
 /** Handles Firestore doc + Storage uploads for eggs. */
 public class EggRepository {
     private static final String TAG = "EggRepository";
+    private static final int NEAR_PAGE_SIZE = 50;
+
+    /**
+     * Heavy, detail-only fields live in eggs/{id}/content/main so spatial queries (which always read
+     * whole docs) only pay for what the list and anchor mounting need. Older eggs still carry these
+     * fields on the main doc; readers fall back to it.
+     */
+    public static final String CONTENT_COLLECTION = "content";
+    public static final String CONTENT_DOC = "main";
 
     private final FirebaseFirestore db;
     private final StorageReference storage;
@@ -67,18 +85,36 @@ public class EggRepository {
     @Deprecated public EggRepository() { this(FirebaseApp.getInstance().getApplicationContext()); }
     @Deprecated public EggRepository(@Nullable String unusedBucketUrl) { this(FirebaseApp.getInstance().getApplicationContext()); }
 
+    public static DocumentReference contentRef(DocumentReference eggRef) {
+        return eggRef.collection(CONTENT_COLLECTION).document(CONTENT_DOC);
+    }
+
+    public DocumentReference contentRef(String docId) {
+        return contentRef(db.collection("eggs").document(docId));
+    }
+
+    /** Detail content for an egg; a missing snapshot means a legacy egg (content is on the main doc). */
+    public Task<DocumentSnapshot> fetchContent(String docId) {
+        return contentRef(docId).get();
+    }
+
     public Task<DocumentReference> createDraft(EggEntry e) {
         Map<String, Object> doc = new HashMap<>();
+        Map<String, Object> content = new HashMap<>();
         if (e.userId != null)        doc.put("userId", e.userId);
         if (e.title != null)         doc.put("title", e.title);
-        if (e.description != null)   doc.put("description", e.description);
+        if (e.description != null)   content.put("description", e.description);
 
-        if (e.geo != null)           doc.put("geo", e.geo);
+        if (e.geo != null) {
+            doc.put("geo", e.geo);
+            doc.put("geohash", GeoHash.encode(e.lat(), e.lng(), GeoHash.FULL_PRECISION));
+            doc.put("cells", GeoHash.cellKeys(e.lat(), e.lng()));
+        }
         if (e.alt != null)           doc.put("alt", e.alt);
         if (e.heading != null)       doc.put("heading", e.heading);
         if (e.horizAcc != null)      doc.put("horizAcc", e.horizAcc);
         if (e.vertAcc != null)       doc.put("vertAcc", e.vertAcc);
-        if (e.poseMatrix != null)    doc.put("poseMatrix", e.poseMatrix);
+        if (e.poseMatrix != null)    content.put("poseMatrix", e.poseMatrix);
 
         if (e.refImage != null)            doc.put("refImage", e.refImage);
         if (e.placementType != null)       doc.put("placementType", e.placementType);
@@ -88,12 +124,23 @@ public class EggRepository {
         if (e.cloudId != null)       doc.put("cloudId", e.cloudId);
         if (e.cloudTtlDays != null)  doc.put("cloudTtlDays", e.cloudTtlDays);
 
-        if (e.speechTranscript != null) doc.put("speechTranscript", e.speechTranscript);
-        if (e.quiz != null)             doc.put("quiz", e.quiz);
+        if (e.speechTranscript != null) content.put("speechTranscript", e.speechTranscript);
+        if (e.quiz != null)             content.put("quiz", e.quiz);
 
         doc.put("hasMedia", false);
+        doc.put("hasContent", true);
         doc.put("createdAt", FieldValue.serverTimestamp());
-        return db.collection("eggs").add(doc);
+        doc.put("updatedAt", FieldValue.serverTimestamp()); // drives cache delta sync
+
+        // Both docs in one batch so readers never see an egg without its content.
+        DocumentReference ref = db.collection("eggs").document();
+        WriteBatch batch = db.batch();
+        batch.set(ref, doc);
+        batch.set(contentRef(ref), content);
+        return batch.commit().continueWith(t -> {
+            if (!t.isSuccessful()) throw t.getException();
+            return ref;
+        });
     }
 
     // --------------------------------------------------------------------------------------------
@@ -393,30 +440,102 @@ public class EggRepository {
         });
     }
 
-    public Task<List<EggEntry>> fetchEggsNear(double lat, double lng, double radiusMeters) {
-        return fetchAllEggs().onSuccessTask(list -> {
-            List<EggEntry> filtered = new ArrayList<>();
-            for (EggEntry e : list) {
-                if (e.geo == null) continue;
-                if (distanceMeters(lat, lng, e.lat(), e.lng()) <= radiusMeters) filtered.add(e);
+    /** Receives nearby eggs page by page as the geohash range scans return. */
+    public interface NearbyStream {
+        void onBatch(List<EggEntry> batch);
+        void onComplete();
+        void onError(Exception e);
+    }
+
+    /** Handle returned by streaming queries; cancel() stops further pages and callbacks. */
+    public interface Cancellable { void cancel(); }
+
+    /**
+     * Bounded radius query: one geohash range scan per covering cell, each paginated with a cursor.
+     * Pages are filtered by distance and streamed to {@code sink} as they arrive; onComplete fires
+     * once every scan is exhausted. Cost scales with eggs near the circle, not the whole collection.
+     */
+    public Cancellable streamEggsNear(double lat, double lng, double radiusMeters, NearbyStream sink) {
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final List<String> ranges = GeoHash.cover(lat, lng, radiusMeters);
+        final AtomicInteger pending = new AtomicInteger(ranges.size());
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        for (String prefix : ranges) {
+            scanRange(prefix, null, lat, lng, radiusMeters, sink, cancelled, failed, pending);
+        }
+        return () -> cancelled.set(true);
+    }
+
+    private void scanRange(String prefix,
+                           @Nullable DocumentSnapshot cursor,
+                           double lat, double lng, double radiusMeters,
+                           NearbyStream sink,
+                           AtomicBoolean cancelled,
+                           AtomicBoolean failed,
+                           AtomicInteger pending) {
+        Query q = db.collection("eggs")
+                .orderBy("geohash")
+                .startAt(prefix)
+                .endAt(prefix + "\uf8ff")
+                .limit(NEAR_PAGE_SIZE);
+        if (cursor != null) q = q.startAfter(cursor);
+
+        q.get().addOnSuccessListener(snap -> {
+            if (cancelled.get() || failed.get()) return;
+            List<DocumentSnapshot> docs = snap.getDocuments();
+            List<EggEntry> batch = filterByRadius(docs, lat, lng, radiusMeters);
+            if (!batch.isEmpty()) sink.onBatch(batch);
+
+            if (docs.size() == NEAR_PAGE_SIZE) {
+                scanRange(prefix, docs.get(docs.size() - 1), lat, lng, radiusMeters, sink, cancelled, failed, pending);
+            } else if (pending.decrementAndGet() == 0) {
+                sink.onComplete();
             }
-            return Tasks.forResult(filtered);
+        }).addOnFailureListener(e -> {
+            if (cancelled.get() || !failed.compareAndSet(false, true)) return;
+            Log.w(TAG, "geohash range scan failed for " + prefix, e);
+            sink.onError(e);
         });
     }
 
+    /** Aggregating wrapper over {@link #streamEggsNear} for callers that want a single result. */
+    public Task<List<EggEntry>> fetchEggsNear(double lat, double lng, double radiusMeters) {
+        final TaskCompletionSource<List<EggEntry>> tcs = new TaskCompletionSource<>();
+        final List<EggEntry> out = new ArrayList<>();
+        streamEggsNear(lat, lng, radiusMeters, new NearbyStream() {
+            @Override public void onBatch(List<EggEntry> batch) { out.addAll(batch); }
+            @Override public void onComplete() { tcs.trySetResult(out); }
+            @Override public void onError(Exception e) { tcs.trySetException(e); }
+        });
+        return tcs.getTask();
+    }
+
     public Task<Uri> downloadUrlFromPath(String storagePath) {
         String clean = storagePath.startsWith("/") ? storagePath.substring(1) : storagePath;
         return storage.child(clean).getDownloadUrl();
     }
 
-    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371000d;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2)*Math.sin(dLat/2)
-                + Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon/2)*Math.sin(dLon/2);
-        return 2*R*Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
+    /** Deserializes a page and keeps the eggs inside the circle (one batch distance pass). */
+    private static List<EggEntry> filterByRadius(List<DocumentSnapshot> docs,
+                                                 double lat, double lng, double radiusMeters) {
+        int n = 0;
+        EggEntry[] entries = new EggEntry[docs.size()];
+        double[] lats = new double[docs.size()];
+        double[] lngs = new double[docs.size()];
+        for (DocumentSnapshot d : docs) {
+            EggEntry e = d.toObject(EggEntry.class);
+            if (e == null || e.geo == null) continue;
+            e.id = d.getId();
+            entries[n] = e;
+            lats[n] = e.lat();
+            lngs[n] = e.lng();
+            n++;
+        }
+        int[] idx = new int[n];
+        int hits = GeoMath.withinRadius(lat, lng, radiusMeters, lats, lngs, n, idx, null);
+        List<EggEntry> out = new ArrayList<>(hits);
+        for (int i = 0; i < hits; i++) out.add(entries[idx[i]]);
+        return out;
     }
 
     public Task<Void> patchCloudAnchor(DocumentReference docRef, String cloudId, @Nullable Integer ttlDays) {
@@ -425,6 +544,7 @@ public class EggRepository {
         patch.put("cloudId", cloudId);
         if (ttlDays != null) patch.put("cloudTtlDays", ttlDays);
         patch.put("cloudHostedAt", FieldValue.serverTimestamp());
+        patch.put("updatedAt", FieldValue.serverTimestamp());
         return docRef.update(patch);
     }
 
@@ -447,7 +567,6 @@ public class EggRepository {
     public Task<Void> updateQuiz(DocumentReference docRef, @Nullable List<EggEntry.QuizQuestion> quiz) {
         Map<String, Object> patch = new HashMap<>();
         patch.put("quiz", quiz);
-        patch.put("updatedAt", FieldValue.serverTimestamp());
-        return docRef.update(patch);
+        return contentRef(docRef).set(patch, SetOptions.merge());
     }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory grid index over egg positions, keyed by docId.
+ *
+ * Positions live in primitive lat/lng arrays indexed by slot; each grid bucket holds the slots that
+ * fall inside it. Radius and k-nearest queries only visit the buckets overlapping the query box,
+ * and puts/removes are O(1) amortized. Columns are counted from -180° and wrap at the antimeridian,
+ * so a query box that crosses it visits the buckets on both sides. All methods are synchronized:
+ * writers are Firestore callbacks on the main thread, readers include the GL thread.
+ */
+public class EggSpatialIndex {
+    private static final double METERS_PER_DEG = GeoMath.METERS_PER_DEG;
+
+    /** Reusable query result: parallel arrays of eggs and their distances in meters. */
+    public static final class Hits {
+        public int count;
+        public EggSummary[] eggs = new EggSummary[16];
+        public float[] distM = new float[16];
+
+        public void clear() {
+            Arrays.fill(eggs, 0, count, null);
+            count = 0;
+        }
+
+        void add(EggSummary e, float d) {
+            if (count == eggs.length) {
+                eggs = Arrays.copyOf(eggs, count * 2);
+                distM = Arrays.copyOf(distM, count * 2);
+            }
+            eggs[count] = e;
+            distM[count] = d;
+            count++;
+        }
+
+        void sortByDistance() {
+            // insertion sort: result sets are small and usually nearly ordered
+            for (int i = 1; i < count; i++) {
+                float d = distM[i];
+                EggSummary e = eggs[i];
+                int j = i - 1;
+                while (j >= 0 && distM[j] > d) {
+                    distM[j + 1] = distM[j];
+                    eggs[j + 1] = eggs[j];
+                    j--;
+                }
+                distM[j + 1] = d;
+                eggs[j + 1] = e;
+            }
+        }
+    }
+
+    private final double cellDeg;
+    // Bucket columns around the globe; the last one is narrower unless cellDeg divides 360
+    private final long columns;
+
+    private double[] lats = new double[64];
+    private double[] lngs = new double[64];
+    private long[] cellOf = new long[64];
+    private EggSummary[] payload = new EggSummary[64];
+    private int highWater = 0;
+    private int[] free = new int[16];
+    private int freeCount = 0;
+
+    private final Map<String, Integer> slotOf = new HashMap<>();
+    private final Map<Long, int[]> buckets = new HashMap<>(); // [0] = size, [1..] = slots
+
+    /** @param cellMeters bucket edge along latitude; around the typical query radius works best. */
+    public EggSpatialIndex(double cellMeters) {
+        this.cellDeg = cellMeters / METERS_PER_DEG;
+        this.columns = (long) Math.ceil(360.0 / cellDeg);
+    }
+
+    public synchronized int size() { return slotOf.size(); }
+
+    @Nullable
+    public synchronized EggSummary get(String docId) {
+        Integer s = slotOf.get(docId);
+        return (s == null) ? null : payload[s];
+    }
+
+    /** Insert or move an egg. Eggs without a geo point are removed from the index. */
+    public synchronized void put(EggSummary e) {
+        if (!e.hasGeo) { remove(e.id); return; }
+        long cell = cellKey(e.lat, e.lng);
+        Integer existing = slotOf.get(e.id);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            if (cellOf[slot] != cell) {
+                bucketRemove(cellOf[slot], slot);
+                bucketAdd(cell, slot);
+            }
+        } else {
+            slot = allocSlot();
+            slotOf.put(e.id, slot);
+            bucketAdd(cell, slot);
+        }
+        lats[slot] = e.lat;
+        lngs[slot] = e.lng;
+        cellOf[slot] = cell;
+        payload[slot] = e;
+    }
+
+    public synchronized boolean remove(String docId) {
+        Integer s = slotOf.remove(docId);
+        if (s == null) return false;
+        bucketRemove(cellOf[s], s);
+        payload[s] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = s;
+        return true;
+    }
+
+    public synchronized void clear() {
+        slotOf.clear();
+        buckets.clear();
+        Arrays.fill(payload, 0, highWater, null);
+        highWater = 0;
+        freeCount = 0;
+    }
+
+    /** True if any egg lies within {@code radiusM} (early-outs on the first match). */
+    public synchronized boolean anyWithin(double lat, double lng, double radiusM) {
+        return scan(lat, lng, radiusM, null, true);
+    }
+
+    /** All eggs within {@code radiusM}, nearest first, appended to a cleared {@code out}. */
+    public synchronized void queryRadius(double lat, double lng, double radiusM, Hits out) {
+        out.clear();
+        scan(lat, lng, radiusM, out, false);
+        out.sortByDistance();
+    }
+
+    /** Up to {@code k} nearest eggs within {@code maxRadiusM}, nearest first. */
+    public synchronized void kNearest(double lat, double lng, int k, double maxRadiusM, Hits out) {
+        double r = Math.min(maxRadiusM, cellDeg * METERS_PER_DEG);
+        while (true) {
+            out.clear();
+            scan(lat, lng, r, out, false);
+            if (out.count >= k || r >= maxRadiusM) break;
+            r = Math.min(maxRadiusM, r * 2);
+        }
+        out.sortByDistance();
+        if (out.count > k) {
+            Arrays.fill(out.eggs, k, out.count, null);
+            out.count = k;
+        }
+    }
+
+    private boolean scan(double lat, double lng, double radiusM, @Nullable Hits out, boolean firstOnly) {
+        if (slotOf.isEmpty()) return false;
+        final double cosLat = GeoMath.cosLat(lat);
+        final double dLat = GeoMath.metersToDegLat(radiusM);
+        final double dLng = GeoMath.metersToDegLng(radiusM, lat);
+        final long cy0 = (long) Math.floor(Math.max(-90.0, lat - dLat) / cellDeg);
+        final long cy1 = (long) Math.floor(Math.min(90.0, lat + dLat) / cellDeg);
+
+        // Longitude span as offsets from -180°, split where it wraps. A span of a full revolution
+        // (near the poles dLng blows up) or one whose two halves meet in a column walks every column.
+        final double west = lng + 180.0 - dLng, east = lng + 180.0 + dLng;
+        long lo0 = 0, hi0 = columns - 1, lo1 = 0, hi1 = -1;
+        if (east - west < 360.0) {
+            if (west < 0) {
+                lo0 = column(west + 360.0);
+                hi1 = column(east);
+            } else if (east >= 360.0) {
+                lo0 = column(west);
+                hi1 = column(east - 360.0);
+            } else {
+                lo0 = column(west);
+                hi0 = column(east);
+            }
+            if (hi1 >= lo0) {
+                lo0 = 0;
+                hi0 = columns - 1;
+                hi1 = -1;
+            }
+        }
+        return scanColumns(lat, lng, cosLat, radiusM * radiusM, cy0, cy1, lo0, hi0, out, firstOnly)
+                || scanColumns(lat, lng, cosLat, radiusM * radiusM, cy0, cy1, lo1, hi1, out, firstOnly)
+                || (out != null && out.count > 0);
+    }
+
+    /** Visits rows cy0..cy1 x columns cx0..cx1; true only if {@code firstOnly} found a hit. */
+    private boolean scanColumns(double lat, double lng, double cosLat, double r2,
+                                long cy0, long cy1, long cx0, long cx1,
+                                @Nullable Hits out, boolean firstOnly) {
+        for (long cy = cy0; cy <= cy1; cy++) {
+            for (long cx = cx0; cx <= cx1; cx++) {
+                int[] b = buckets.get(pack(cy, cx));
+                if (b == null) continue;
+                for (int i = 1; i <= b[0]; i++) {
+                    int s = b[i];
+                    // equirectangular distance (same math as GeoMath); exact enough at the radii we query
+                    double y = (lats[s] - lat) * METERS_PER_DEG;
+                    double x = GeoMath.deltaLng(lng, lngs[s]) * METERS_PER_DEG * cosLat;
+                    double d2 = x * x + y * y;
+                    if (d2 > r2) continue;
+                    if (firstOnly) return true;
+                    if (out != null) out.add(payload[s], (float) Math.sqrt(d2));
+                }
+            }
+        }
+        return false;
+    }
+
+    private int allocSlot() {
+        if (freeCount > 0) return free[--freeCount];
+        if (highWater == lats.length) {
+            int n = highWater * 2;
+            lats = Arrays.copyOf(lats, n);
+            lngs = Arrays.copyOf(lngs, n);
+            cellOf = Arrays.copyOf(cellOf, n);
+            payload = Arrays.copyOf(payload, n);
+        }
+        return highWater++;
+    }
+
+    private long cellKey(double lat, double lng) {
+        double x = lng + 180.0;
+        if (x >= 360.0) x -= 360.0;
+        else if (x < 0.0) x += 360.0;
+        return pack((long) Math.floor(lat / cellDeg), column(x));
+    }
+
+    /** Column of a longitude offset from -180° in [0, 360). */
+    private long column(double offsetDeg) {
+        return Math.max(0L, Math.min(columns - 1, (long) Math.floor(offsetDeg / cellDeg)));
+    }
+
+    private static long pack(long cy, long cx) {
+        return (cy << 32) ^ (cx & 0xffffffffL);
+    }
+
+    private void bucketAdd(long cell, int slot) {
+        int[] b = buckets.get(cell);
+        if (b == null) {
+            b = new int[5];
+            buckets.put(cell, b);
+        } else if (b[0] + 1 == b.length) {
+            b = Arrays.copyOf(b, b.length * 2);
+            buckets.put(cell, b);
+        }
+        b[++b[0]] = slot;
+    }
+
+    private void bucketRemove(long cell, int slot) {
+        int[] b = buckets.get(cell);
+        if (b == null) return;
+        for (int i = 1; i <= b[0]; i++) {
+            if (b[i] == slot) {
+                b[i] = b[b[0]];
+                b[0]--;
+                break;
+            }
+        }
+        if (b[0] == 0) buckets.remove(cell);
+    }
+}
@@ -0,0 +1,140 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.util.List;
+import java.util.Map;
+
+/** The slice of an egg doc needed to list it nearby and mount its anchor (no heavy content). */
+public class EggSummary {
+    public final String id;
+    public final boolean hasGeo;
+    public final double lat;
+    public final double lng;
+    public final @Nullable Double alt;
+    public final double heading;
+    /** "star" or "puzzle". */
+    public final String model;
+    public final @Nullable String anchorType;
+    public final @Nullable String cloudId;
+    public final @Nullable String title;
+    public final @Nullable String thumbUrl;
+    /** Saved local rotation {x, y, z, w}, or null when the doc has none. */
+    public final @Nullable float[] localQ;
+    public final @Nullable Double heightAboveTerrain;
+    public final long updatedAtMs;
+
+    public EggSummary(String id, boolean hasGeo, double lat, double lng,
+                      @Nullable Double alt, double heading, String model,
+                      @Nullable String anchorType, @Nullable String cloudId,
+                      @Nullable String title, @Nullable String thumbUrl,
+                      @Nullable float[] localQ, @Nullable Double heightAboveTerrain,
+                      long updatedAtMs) {
+        this.id = id;
+        this.hasGeo = hasGeo;
+        this.lat = lat;
+        this.lng = lng;
+        this.alt = alt;
+        this.heading = heading;
+        this.model = model;
+        this.anchorType = anchorType;
+        this.cloudId = (cloudId != null && !cloudId.isEmpty()) ? cloudId : null;
+        this.title = title;
+        this.thumbUrl = thumbUrl;
+        this.localQ = localQ;
+        this.heightAboveTerrain = heightAboveTerrain;
+        this.updatedAtMs = updatedAtMs;
+    }
+
+    public boolean isPuzzle() { return "puzzle".equals(model); }
+
+    public static EggSummary from(DocumentSnapshot d) {
+        GeoPoint gp = d.getGeoPoint("geo");
+
+        Double heading = d.getDouble("heading");
+        String modelField = d.getString("model");
+        String model = (modelField != null && modelField.equalsIgnoreCase("puzzle")) ? "puzzle" : "star";
+
+        String title = d.getString("title");
+        if (title != null) {
+            title = title.trim();
+            if (title.isEmpty()) title = null;
+        }
+
+        Double qx = d.getDouble("localQx"), qy = d.getDouble("localQy");
+        Double qz = d.getDouble("localQz"), qw = d.getDouble("localQw");
+        float[] q = (qx != null && qy != null && qz != null && qw != null)
+                ? new float[]{ qx.floatValue(), qy.floatValue(), qz.floatValue(), qw.floatValue() }
+                : null;
+
+        Timestamp ts = d.getTimestamp("updatedAt");
+        if (ts == null) ts = d.getTimestamp("createdAt");
+
+        return new EggSummary(
+                d.getId(),
+                gp != null,
+                gp != null ? gp.getLatitude() : 0,
+                gp != null ? gp.getLongitude() : 0,
+                d.getDouble("alt"),
+                heading != null ? heading : 0.0,
+                model,
+                d.getString("anchorType"),
+                d.getString("cloudId"),
+                title,
+                firstPhotoUrl(d),
+                q,
+                d.getDouble("heightAboveTerrain"),
+                ts != null ? ts.toDate().getTime() : 0L);
+    }
+
+    /** Best thumbnail candidate on a doc: direct URL fields, then photos/photoUrls arrays, then a Storage path. */
+    @Nullable
+    public static String firstPhotoUrl(DocumentSnapshot d) {
+        // direct single-string fields
+        String[] singles = {"thumbUrl","photoThumbUrl","thumbnailUrl","imageUrl","photo","url","downloadUrl"};
+        for (String k : singles) {
+            String v = d.getString(k);
+            if (!TextUtils.isEmpty(v)) return v;
+        }
+
+        // array of strings or maps
+        Object photos = d.get("photos");
+        if (photos instanceof List) {
+            List<?> arr = (List<?>) photos;
+            if (!arr.isEmpty()) {
+                Object first = arr.get(0);
+                if (first instanceof String) {
+                    String s = (String) first;
+                    if (!TextUtils.isEmpty(s)) return s;
+                } else if (first instanceof Map) {
+                    Map<?, ?> m = (Map<?, ?>) first;
+                    for (String k : new String[]{"thumbUrl","url","downloadUrl","gsUrl","path"}) {
+                        Object v = m.get(k);
+                        if (v instanceof String && !TextUtils.isEmpty((String) v)) return (String) v;
+                    }
+                }
+            }
+        }
+
+        Object urls = d.get("photoUrls");
+        if (urls instanceof List) {
+            List<?> arr = (List<?>) urls;
+            if (!arr.isEmpty() && arr.get(0) instanceof String) {
+                String s = (String) arr.get(0);
+                if (!TextUtils.isEmpty(s)) return s;
+            }
+        }
+
+        // sometimes people store a Storage path string
+        String path = d.getString("photoPath");
+        if (!TextUtils.isEmpty(path)) return path;
+
+        return null;
+    }
+}
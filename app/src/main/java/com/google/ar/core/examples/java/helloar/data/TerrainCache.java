@@ -0,0 +1,76 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.helloar.util.GeoHash;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolved terrain altitudes keyed by a ~5 m geohash cell, in memory with {@link EggCache} behind
+ * it on disk.
+ *
+ * A hit lets the mount path place an egg with a plain {@code earth.createAnchor} at terrain +
+ * height-above-terrain instead of another {@code resolveAnchorOnTerrainAsync}. Terrain doesn't
+ * change, so entries never expire. {@link #peek} is cheap and safe from the GL thread.
+ */
+public class TerrainCache {
+    /** Geohash precision of a key; 9 chars is ~4.8 m x 4.8 m. */
+    static final int KEY_PRECISION = 9;
+
+    /** What {@link #peek} returns when the disk has been checked and has nothing. */
+    public static final double MISS = Double.NaN;
+
+    public interface Done { void run(); }
+
+    private final EggCache disk;
+    private final Set<String> loading = new HashSet<>();
+    // key -> altitude, or MISS once disk said no; LRU
+    private final LinkedHashMap<String, Double> mem;
+
+    public TerrainCache(EggCache disk, int memMax) {
+        this.disk = disk;
+        this.mem = new LinkedHashMap<String, Double>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > memMax;
+            }
+        };
+    }
+
+    public static String keyOf(double lat, double lng) {
+        return GeoHash.encode(lat, lng, KEY_PRECISION);
+    }
+
+    /**
+     * Terrain altitude for {@code key}; {@link #MISS} (test with {@code Double.isNaN}) if known to
+     * be absent; null if the disk hasn't been checked yet (call {@link #load}).
+     */
+    @Nullable
+    public synchronized Double peek(String key) {
+        return mem.get(key);
+    }
+
+    /** Pull {@code key} from disk into memory; {@code done} runs on the main thread. Deduped. */
+    public void load(String key, Done done) {
+        synchronized (this) {
+            if (mem.containsKey(key) || !loading.add(key)) return;
+        }
+        disk.loadTerrainAsync(key, alt -> {
+            synchronized (this) {
+                loading.remove(key);
+                if (!mem.containsKey(key)) mem.put(key, alt != null ? alt : MISS);
+            }
+            done.run();
+        });
+    }
+
+    public void put(String key, double terrainAlt) {
+        synchronized (this) {
+            mem.put(key, terrainAlt);
+        }
+        disk.putTerrainAsync(key, terrainAlt);
+    }
+}
@@ -0,0 +1,196 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Geohash encoding + hierarchical cell keys for eggs.
+ *
+ * Every saved egg carries its geohash prefixes for {@link #INDEX_MIN_PRECISION}..{@link #INDEX_MAX_PRECISION}
+ * in a "cells" array, so a query can cover its circle with a few cells (at whatever levels fit best)
+ * and use array-contains-any.
+ */
+public final class GeoHash {
+    private GeoHash() {}
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final double METERS_PER_DEG_LAT = GeoMath.METERS_PER_DEG;
+
+    /** Full precision stored in the "geohash" field (~1 m cells). */
+    public static final int FULL_PRECISION = 10;
+    /** Coarsest level written to "cells" (~39 km × 19 km). */
+    public static final int INDEX_MIN_PRECISION = 4;
+    /** Finest level written to "cells" (~38 m × 19 m). */
+    public static final int INDEX_MAX_PRECISION = 8;
+
+    public static String encode(double lat, double lng, int precision) {
+        double latMin = -90, latMax = 90, lngMin = -180, lngMax = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true; // geohash starts with longitude
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lngMin + lngMax) / 2;
+                if (lng >= mid) { ch = (ch << 1) | 1; lngMin = mid; } else { ch <<= 1; lngMax = mid; }
+            } else {
+                double mid = (latMin + latMax) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latMin = mid; } else { ch <<= 1; latMax = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                sb.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Prefixes at every indexed level, coarse → fine. Written to the "cells" field at save time. */
+    public static List<String> cellKeys(double lat, double lng) {
+        String full = encode(lat, lng, INDEX_MAX_PRECISION);
+        List<String> out = new ArrayList<>(INDEX_MAX_PRECISION - INDEX_MIN_PRECISION + 1);
+        for (int p = INDEX_MIN_PRECISION; p <= INDEX_MAX_PRECISION; p++) out.add(full.substring(0, p));
+        return out;
+    }
+
+    /** Cell height in degrees of latitude at the given precision. */
+    public static double cellHeightDeg(int precision) {
+        int latBits = (5 * precision) / 2;
+        return 180.0 / (1L << latBits);
+    }
+
+    /** Cell width in degrees of longitude at the given precision. */
+    public static double cellWidthDeg(int precision) {
+        int lngBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << lngBits);
+    }
+
+    /** Smaller of the cell's two sides in meters at this latitude (longitude cells shrink towards the poles). */
+    public static double minCellSideMeters(int precision, double lat) {
+        double h = cellHeightDeg(precision) * METERS_PER_DEG_LAT;
+        double w = cellWidthDeg(precision) * METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat));
+        return Math.min(h, w);
+    }
+
+    /** Default cap for {@link #cover}: one Firestore array-contains-any / whereIn call. */
+    public static final int MAX_COVER_CELLS = 10;
+
+    /** {@link #cover(double, double, double, int)} with {@link #MAX_COVER_CELLS}. */
+    public static List<String> cover(double lat, double lng, double radiusM) {
+        return cover(lat, lng, radiusM, MAX_COVER_CELLS);
+    }
+
+    /**
+     * Indexed cells (possibly mixed levels) that together cover the circle, at most {@code maxCells}
+     * of them. Greedy, not minimal.
+     *
+     * Picks the finest level whose bounding box holds at most 4 x {@code maxCells} cells, keeps only
+     * cells that actually touch the circle (cell width is latitude-aware), then repeatedly replaces
+     * the largest sibling group with its parent until the budget is met. With the default budget an
+     * 80 m circle comes back as about 4-5 level-7 cells on average and up to 10; at
+     * (37.4, -122.1) it's 6.
+     */
+    public static List<String> cover(double lat, double lng, double radiusM, int maxCells) {
+        final int budget = Math.max(1, maxCells);
+        final double dLat = GeoMath.metersToDegLat(radiusM);
+        final double dLng = Math.min(180.0, GeoMath.metersToDegLng(radiusM, lat));
+        final double lat0 = Math.max(-90.0, lat - dLat), lat1 = Math.min(89.999999, lat + dLat);
+
+        for (int p = INDEX_MAX_PRECISION; p >= INDEX_MIN_PRECISION; p--) {
+            double h = cellHeightDeg(p), w = cellWidthDeg(p);
+            long y0 = (long) Math.floor((lat0 + 90.0) / h), y1 = (long) Math.floor((lat1 + 90.0) / h);
+            long x0 = (long) Math.floor((lng - dLng + 180.0) / w), x1 = (long) Math.floor((lng + dLng + 180.0) / w);
+            long boxCells = (y1 - y0 + 1) * (x1 - x0 + 1);
+            if (boxCells > 4L * budget && p > INDEX_MIN_PRECISION) continue;
+
+            Set<String> cells = new LinkedHashSet<>();
+            for (long y = y0; y <= y1; y++) {
+                double cLat = -90.0 + (y + 0.5) * h;
+                for (long x = x0; x <= x1; x++) {
+                    double cLng = wrapLng(-180.0 + (x + 0.5) * w);
+                    String key = encode(cLat, cLng, p);
+                    if (distanceToCellMeters(lat, lng, key) <= radiusM) cells.add(key);
+                }
+            }
+            return mergeToBudget(cells, budget);
+        }
+        return new ArrayList<>(); // unreachable: the coarsest level always returns
+    }
+
+    /** Replace the biggest same-parent groups with their parent until {@code budget} is met. */
+    private static List<String> mergeToBudget(Set<String> cells, int budget) {
+        List<String> out = new ArrayList<>(cells);
+        while (out.size() > budget) {
+            Map<String, Integer> groups = new HashMap<>();
+            String best = null;
+            int bestCount = 0;
+            for (String c : out) {
+                if (c.length() <= INDEX_MIN_PRECISION) continue;
+                String parent = c.substring(0, c.length() - 1);
+                int n = groups.merge(parent, 1, Integer::sum);
+                // prefer merging the most siblings; ties (including all-singletons) go to the finer parent
+                if (n > bestCount || (n == bestCount && best != null && parent.length() > best.length())) {
+                    best = parent;
+                    bestCount = n;
+                }
+            }
+            if (best == null) break; // everything is already at the coarsest level
+            final String parent = best;
+            List<String> next = new ArrayList<>(out.size());
+            for (String c : out) if (!c.startsWith(parent)) next.add(c);
+            next.add(parent);
+            out = next;
+        }
+        return out;
+    }
+
+    /** Bounds of a geohash cell as {latMin, latMax, lngMin, lngMax}. */
+    public static double[] decodeBounds(String hash) {
+        double latMin = -90, latMax = 90, lngMin = -180, lngMax = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int cd = indexOf(hash.charAt(i));
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                boolean on = (cd & mask) != 0;
+                if (evenBit) {
+                    double mid = (lngMin + lngMax) / 2;
+                    if (on) lngMin = mid; else lngMax = mid;
+                } else {
+                    double mid = (latMin + latMax) / 2;
+                    if (on) latMin = mid; else latMax = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{ latMin, latMax, lngMin, lngMax };
+    }
+
+    /** Approximate distance in meters from a point to the nearest edge of a cell (0 if inside). */
+    public static double distanceToCellMeters(double lat, double lng, String hash) {
+        double[] b = decodeBounds(hash);
+        double cLat = Math.max(b[0], Math.min(b[1], lat));
+        // measure longitude from the cell center so cells across the antimeridian stay adjacent
+        double halfW = (b[3] - b[2]) / 2;
+        double dl = GeoMath.deltaLng((b[2] + b[3]) / 2, lng);
+        double outLng = Math.abs(dl) - halfW;
+        double y = (lat - cLat) * GeoMath.METERS_PER_DEG;
+        double x = (outLng > 0) ? outLng * GeoMath.METERS_PER_DEG * GeoMath.cosLat(lat) : 0;
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) if (BASE32[i] == c) return i;
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+
+    static double wrapLng(double lng) {
+        if (lng >= 180) return lng - 360;
+        if (lng < -180) return lng + 360;
+        return lng;
+    }
+}
@@ -0,0 +1,137 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+/**
+ * The one place for lat/lng distance math.
+ *
+ * Short distances use an equirectangular approximation (one cos per query, none per candidate);
+ * haversine is only used past {@link #EQUIRECT_MAX_M}, where the flat-earth error starts to matter.
+ * Below that range the error against haversine grows with latitude and latitude span: about 0.1%
+ * for a 1 km span at 60°, about 0.6% for a full 20 km span at 60° (see GeoMathTest).
+ */
+public final class GeoMath {
+    private GeoMath() {}
+
+    public static final double EARTH_RADIUS_M = 6_371_000.0;
+    /** Meters per degree of latitude (and of longitude at the equator), on the same sphere as haversine. */
+    public static final double METERS_PER_DEG = EARTH_RADIUS_M * Math.PI / 180.0;
+    /** Beyond this the equirectangular result is replaced by haversine. */
+    public static final double EQUIRECT_MAX_M = 20_000.0;
+
+    private static final double MIN_COS = 1e-6;
+    // withinRadius: above this |lat| the equirect error gets large, so use haversine throughout
+    private static final double EQUIRECT_MAX_LAT = 80.0;
+    // withinRadius: equirect hits within this fraction of the radius are confirmed with haversine.
+    // Covers the worst equirect error at EQUIRECT_MAX_LAT / EQUIRECT_MAX_M (~2%).
+    private static final double CONFIRM_BAND = 0.03;
+    // Rounding slack on the bounding box, in degrees
+    private static final double BOX_SLACK_DEG = 1e-9;
+
+    /** Great-circle distance in meters. */
+    public static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(deltaLng(lng1, lng2));
+        double sLat = Math.sin(dLat / 2), sLng = Math.sin(dLng / 2);
+        double a = sLat * sLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sLng * sLng;
+        return 2 * EARTH_RADIUS_M * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /** Flat-earth distance using the cosine of the first point's latitude. */
+    public static double equirectMeters(double lat1, double lng1, double lat2, double lng2) {
+        return equirectMeters(lat1, lng1, lat2, lng2, cosLat(lat1));
+    }
+
+    /** Same as above with a precomputed {@link #cosLat} for the reference latitude. */
+    public static double equirectMeters(double lat1, double lng1, double lat2, double lng2, double cosLat) {
+        double y = (lat2 - lat1) * METERS_PER_DEG;
+        double x = deltaLng(lng1, lng2) * METERS_PER_DEG * cosLat;
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /** Equirectangular at short range, haversine beyond {@link #EQUIRECT_MAX_M}. */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double d = equirectMeters(lat1, lng1, lat2, lng2);
+        return (d <= EQUIRECT_MAX_M) ? d : haversineMeters(lat1, lng1, lat2, lng2);
+    }
+
+    /** Cosine of a latitude, clamped away from zero so longitude spans stay finite at the poles. */
+    public static double cosLat(double lat) {
+        return Math.max(MIN_COS, Math.cos(Math.toRadians(lat)));
+    }
+
+    public static double metersToDegLat(double meters) {
+        return meters / METERS_PER_DEG;
+    }
+
+    public static double metersToDegLng(double meters, double lat) {
+        return meters / (METERS_PER_DEG * cosLat(lat));
+    }
+
+    /** Signed shortest longitude difference lng2 - lng1 in degrees, across the antimeridian. */
+    public static double deltaLng(double lng1, double lng2) {
+        double d = lng2 - lng1;
+        if (d > 180) d -= 360;
+        else if (d < -180) d += 360;
+        return d;
+    }
+
+    /**
+     * Batch radius filter over parallel lat/lng arrays.
+     *
+     * Candidates outside the circle's lat/lng bounding box are rejected with two compares; the rest
+     * get an equirectangular distance, and only those within {@link #CONFIRM_BAND} of the radius
+     * are rechecked with haversine. Radii past {@link #EQUIRECT_MAX_M} and queries near the poles
+     * use haversine throughout. The hit set is the same as filtering every candidate by
+     * {@link #haversineMeters}. Indices of hits go to {@code outIdx} and, if non-null, their
+     * distances to {@code outDistM}. Both output arrays must hold at least {@code n} entries.
+     *
+     * @return number of hits written
+     */
+    public static int withinRadius(double lat, double lng, double radiusM,
+                                   double[] lats, double[] lngs, int n,
+                                   int[] outIdx, float[] outDistM) {
+        final double cos = cosLat(lat);
+        // Bounding box of the spherical cap: the widest longitude is asin(sin(rho) / cos(lat)),
+        // not rho / cos(lat), and a cap over a pole spans every longitude.
+        final double rho = radiusM / EARTH_RADIUS_M;
+        final double dLat = Math.toDegrees(rho) + BOX_SLACK_DEG;
+        final double sinRatio = Math.sin(Math.min(rho, Math.PI / 2)) / cos;
+        final double dLng = (rho >= Math.PI / 2 || sinRatio >= 1.0
+                || lat + dLat >= 90.0 || lat - dLat <= -90.0)
+                ? 180.0
+                : Math.toDegrees(Math.asin(sinRatio)) + BOX_SLACK_DEG;
+        final boolean precise = radiusM > EQUIRECT_MAX_M || Math.abs(lat) > EQUIRECT_MAX_LAT;
+        final double r2 = radiusM * radiusM;
+        final double confirmBelow2 = r2 * (1 - CONFIRM_BAND) * (1 - CONFIRM_BAND);
+        final double rejectAbove2 = r2 * (1 + CONFIRM_BAND) * (1 + CONFIRM_BAND);
+
+        int hits = 0;
+        for (int i = 0; i < n; i++) {
+            double la = lats[i];
+            if (la < lat - dLat || la > lat + dLat) continue;
+            double dl = deltaLng(lng, lngs[i]);
+            if (dl < -dLng || dl > dLng) continue;
+
+            double d;
+            if (precise) {
+                d = haversineMeters(lat, lng, la, lngs[i]);
+                if (d > radiusM) continue;
+            } else {
+                double y = (la - lat) * METERS_PER_DEG;
+                double x = dl * METERS_PER_DEG * cos;
+                double d2 = x * x + y * y;
+                if (d2 > rejectAbove2) continue;
+                if (d2 < confirmBelow2) {
+                    d = Math.sqrt(d2);
+                } else {
+                    d = haversineMeters(lat, lng, la, lngs[i]);
+                    if (d > radiusM) continue;
+                }
+            }
+            outIdx[hits] = i;
+            if (outDistM != null) outDistM[hits] = (float) d;
+            hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,132 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+/**
+ * Quaternion / projection helpers that write into caller-owned arrays instead of
+ * returning new ones, so the per-frame paths can run without allocating.
+ *
+ * Quaternions are {x, y, z, w}; yaw is about +Y with the convention the placement code uses
+ * (yaw 0 faces +Z). Matrices are column-major like {@link android.opengl.Matrix}. Outputs may not
+ * alias inputs unless noted. Stateless and thread-safe; any scratch is the caller's.
+ */
+public final class PoseMath {
+    private PoseMath() {}
+
+    /** out = a ∘ b. */
+    public static void quatMul(float[] a, float[] b, float[] out) {
+        float x = a[3]*b[0] + a[0]*b[3] + a[1]*b[2] - a[2]*b[1];
+        float y = a[3]*b[1] - a[0]*b[2] + a[1]*b[3] + a[2]*b[0];
+        float z = a[3]*b[2] + a[0]*b[1] - a[1]*b[0] + a[2]*b[3];
+        float w = a[3]*b[3] - a[0]*b[0] - a[1]*b[1] - a[2]*b[2];
+        out[0] = x; out[1] = y; out[2] = z; out[3] = w; // safe if out aliases a or b
+    }
+
+    public static void yawToQuat(float yawDeg, float[] out) {
+        double r = Math.toRadians(yawDeg) * 0.5;
+        out[0] = 0f;
+        out[1] = (float) Math.sin(r);
+        out[2] = 0f;
+        out[3] = (float) Math.cos(r);
+    }
+
+    /** out = yaw(yawDeg) ∘ fix; the upright billboard rotation. */
+    public static void yawThen(float yawDeg, float[] fix, float[] out) {
+        double r = Math.toRadians(yawDeg) * 0.5;
+        float s = (float) Math.sin(r), c = (float) Math.cos(r);
+        float x = c*fix[0] + s*fix[2];
+        float y = c*fix[1] + s*fix[3];
+        float z = c*fix[2] - s*fix[0];
+        float w = c*fix[3] - s*fix[1];
+        out[0] = x; out[1] = y; out[2] = z; out[3] = w;
+    }
+
+    public static void axisAngle(float ax, float ay, float az, float deg, float[] out) {
+        float len = (float) Math.sqrt(ax*ax + ay*ay + az*az);
+        if (len < 1e-6f) {
+            out[0] = 0f; out[1] = 0f; out[2] = 0f; out[3] = 1f;
+            return;
+        }
+        double r = Math.toRadians(deg) * 0.5;
+        float s = (float) Math.sin(r) / len;
+        out[0] = ax * s; out[1] = ay * s; out[2] = az * s; out[3] = (float) Math.cos(r);
+    }
+
+    /** Yaw about +Y in radians. */
+    public static float yawOf(float[] q) {
+        float sinyCosp = 2f * (q[3]*q[1] + q[0]*q[2]);
+        float cosyCosp = 1f - 2f * (q[1]*q[1] + q[2]*q[2]);
+        return (float) Math.atan2(sinyCosp, cosyCosp);
+    }
+
+    /** Yaw in degrees that turns an object at {@code (tx, tz)} to face {@code (cx, cz)}. */
+    public static float yawToFaceDeg(float tx, float tz, float cx, float cz) {
+        return (float) Math.toDegrees(Math.atan2(cx - tx, cz - tz));
+    }
+
+    /** out = a * b for 4x4 matrices; {@code out} may not alias either input. */
+    public static void multiplyMM(float[] a, float[] b, float[] out) {
+        for (int c = 0; c < 4; c++) {
+            float b0 = b[c*4], b1 = b[c*4 + 1], b2 = b[c*4 + 2], b3 = b[c*4 + 3];
+            for (int r = 0; r < 4; r++) {
+                out[c*4 + r] = a[r]*b0 + a[4 + r]*b1 + a[8 + r]*b2 + a[12 + r]*b3;
+            }
+        }
+    }
+
+    /** View-space depth (positive in front of the camera) of a world point. */
+    public static float viewDepth(float[] view, float x, float y, float z) {
+        return -(view[2]*x + view[6]*y + view[10]*z + view[14]);
+    }
+
+    /**
+     * Projects a world point to screen pixels (origin top-left) through {@code viewProj}.
+     * Writes {xPx, yPx, wClip} into {@code out}; returns false (out untouched) if it's behind the
+     * camera.
+     */
+    public static boolean worldToScreen(float[] viewProj, float x, float y, float z,
+                                        int viewportW, int viewportH, float[] out) {
+        float cw = viewProj[3]*x + viewProj[7]*y + viewProj[11]*z + viewProj[15];
+        if (cw < 1e-6f) return false; // clip w is view depth for a perspective projection
+        float cx = viewProj[0]*x + viewProj[4]*y + viewProj[8]*z  + viewProj[12];
+        float cy = viewProj[1]*x + viewProj[5]*y + viewProj[9]*z  + viewProj[13];
+        out[0] = ((cx / cw + 1f) * 0.5f) * viewportW;
+        out[1] = ((1f - cy / cw) * 0.5f) * viewportH;
+        out[2] = cw;
+        return true;
+    }
+
+    /**
+     * Unprojects an NDC point through {@code invViewProj}; writes world xyz into {@code out}.
+     */
+    public static void unproject(float[] invViewProj, float ndcX, float ndcY, float ndcZ, float[] out) {
+        float x = invViewProj[0]*ndcX + invViewProj[4]*ndcY + invViewProj[8]*ndcZ  + invViewProj[12];
+        float y = invViewProj[1]*ndcX + invViewProj[5]*ndcY + invViewProj[9]*ndcZ  + invViewProj[13];
+        float z = invViewProj[2]*ndcX + invViewProj[6]*ndcY + invViewProj[10]*ndcZ + invViewProj[14];
+        float w = invViewProj[3]*ndcX + invViewProj[7]*ndcY + invViewProj[11]*ndcZ + invViewProj[15];
+        out[0] = x / w; out[1] = y / w; out[2] = z / w;
+    }
+
+    /**
+     * The six planes {nx, ny, nz, d} of the frustum of {@code viewProj} (left, right, bottom, top,
+     * near, far) into {@code out[24]}, normalized and facing inward.
+     */
+    public static void frustumPlanes(float[] viewProj, float[] out) {
+        for (int p = 0; p < 6; p++) {
+            int row = p >> 1;                    // 0: x, 1: y, 2: z
+            float sign = (p & 1) == 0 ? 1f : -1f; // row3 + row, then row3 - row
+            float a = viewProj[3]  + sign * viewProj[row];
+            float b = viewProj[7]  + sign * viewProj[4 + row];
+            float c = viewProj[11] + sign * viewProj[8 + row];
+            float d = viewProj[15] + sign * viewProj[12 + row];
+            float inv = 1f / Math.max(1e-12f, (float) Math.sqrt(a*a + b*b + c*c));
+            out[p*4] = a * inv; out[p*4 + 1] = b * inv; out[p*4 + 2] = c * inv; out[p*4 + 3] = d * inv;
+        }
+    }
+
+    /** False if the sphere is entirely outside any of {@code planes} (from {@link #frustumPlanes}). */
+    public static boolean sphereInFrustum(float[] planes, float x, float y, float z, float radius) {
+        for (int o = 0; o < 24; o += 4) {
+            if (planes[o]*x + planes[o + 1]*y + planes[o + 2]*z + planes[o + 3] < -radius) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request coalescer with a short-lived result cache.
+ *
+ * Concurrent {@link #get} calls for the same key share one load; the result is then served from
+ * memory for {@code ttlMs}. Callbacks run on whatever thread the loader completes on (or the
+ * caller's thread for a cache hit). Results are shared between callers, so treat them as read-only.
+ */
+public final class SingleFlight<K, V> {
+
+    public interface Callback<V> { void onResult(V value); }
+
+    /** Does the actual work once per key; must call {@code done} exactly once. */
+    public interface Loader<V> { void load(Callback<V> done); }
+
+    private static final class Entry<V> {
+        V value;
+        long loadedAtMs;
+        int generation;
+        List<Callback<V>> waiters; // non-null while in flight
+    }
+
+    private final long ttlMs;
+    private final Map<K, Entry<V>> entries = new HashMap<>();
+    private int generation = 0;
+
+    public SingleFlight(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public void get(K key, Loader<V> loader, Callback<V> cb) {
+        final Entry<V> e;
+        V hit = null;
+        boolean isHit = false;
+        synchronized (this) {
+            Entry<V> cur = entries.get(key);
+            if (cur != null && cur.waiters != null) {
+                cur.waiters.add(cb); // join the in-flight load
+                return;
+            }
+            if (cur != null && SystemClock.elapsedRealtime() - cur.loadedAtMs < ttlMs) {
+                hit = cur.value;
+                isHit = true;
+                e = null;
+            } else {
+                e = new Entry<>();
+                e.generation = generation;
+                e.waiters = new ArrayList<>();
+                e.waiters.add(cb);
+                entries.put(key, e);
+            }
+        }
+        if (isHit) {
+            cb.onResult(hit);
+            return;
+        }
+        loader.load(value -> complete(key, e, value));
+    }
+
+    /**
+     * Drops cached results. Loads already in flight still deliver to their waiters, but their
+     * results aren't cached since they may describe the old state.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.values().removeIf(x -> x.waiters == null);
+    }
+
+    private void complete(K key, Entry<V> e, V value) {
+        List<Callback<V>> waiters;
+        synchronized (this) {
+            waiters = e.waiters;
+            if (waiters == null) return; // loader called done twice
+            e.waiters = null;
+            e.value = value;
+            e.loadedAtMs = SystemClock.elapsedRealtime();
+            if (e.generation != generation) entries.remove(key, e);
+            // prune anything expired while we're here
+            entries.values().removeIf(x -> x.waiters == null && e.loadedAtMs - x.loadedAtMs >= ttlMs);
+        }
+        for (Callback<V> w : waiters) w.onResult(value);
+    }
+}
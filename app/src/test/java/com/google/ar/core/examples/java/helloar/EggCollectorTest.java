@@ -0,0 +1,190 @@
+package com.google.ar.core.examples.java.helloar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.ar.core.TrackingState;
+import com.google.ar.core.examples.java.helloar.anchors.AnchorRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * The egg path the activity runs each frame (FrameContext capture, EggCollector cull / smooth /
+ * queue, RenderQueue build and run walk), fed from plain arrays instead of ARCore. GL calls hit the
+ * android.jar stubs (unitTests.returnDefaultValues), so only the draws themselves are missing.
+ */
+public class EggCollectorTest {
+    private static final int ANCHORS = 48;
+    private static final int PREVIEWS = 4;
+    private static final int WARMUP_FRAMES = 2_000;
+    private static final int MEASURED_FRAMES = 10_000;
+    private static final float MIN_DISTANCE_M = 0.35f;
+    private static final float MAX_SAVED_DISTANCE_M = 30f;
+
+    /** Stand-in for WrappedAnchor: which pose row it reads and which model it draws. */
+    private static final class Item {
+        final int row;
+        final int model;
+
+        Item(int row, int model) {
+            this.row = row;
+            this.model = model;
+        }
+    }
+
+    private final AnchorRegistry<Item> anchors = new AnchorRegistry<>(8);
+    private final FrameContext frame = new FrameContext();
+    private final EggCollector<Item> collector = new EggCollector<>(
+            item -> item.model,
+            new EggCollector.Sizing(1.6f, 0.5f, 1f, 65f, /*billboard=*/ true),
+            new EggCollector.Sizing(1.6f, 1f, 1f, 52f, /*billboard=*/ false),
+            /*baseScale=*/ 0.3f, MIN_DISTANCE_M, MAX_SAVED_DISTANCE_M);
+    private RenderQueue queue;
+
+    // What ARCore would report, one row per item
+    private float[] poses = new float[0];
+    private TrackingState[] states = new TrackingState[0];
+    private final FrameContext.AnchorReader<Item> reader = (item, pose, offset) -> {
+        System.arraycopy(poses, item.row * 7, pose, offset, 7);
+        return states[item.row];
+    };
+
+    private final float[] camT = new float[3];
+    private final float[] view = new float[16];
+    private final float[] projection = perspective(90f, 1080f / 1920f, 0.1f, 100f);
+
+    @Before
+    public void setUp() {
+        queue = new RenderQueue(/*render=*/ null, 16);
+        view[0] = view[5] = view[10] = view[15] = 1f; // camera at the origin looking down -Z
+    }
+
+    @After
+    public void tearDown() {
+        queue.close();
+    }
+
+    @Test
+    public void collectCullsLikeTheDrawPath() {
+        add("inView", AnchorRegistry.SAVED, true, 0f, 0f, -2f, EggCollector.MODEL_STAR);
+        add("notRecent", AnchorRegistry.SAVED, false, 0f, 0f, -3f, EggCollector.MODEL_STAR);
+        add("tooClose", AnchorRegistry.SAVED, true, 0f, 0f, -0.05f, EggCollector.MODEL_STAR);
+        add("closeRecent", AnchorRegistry.SAVED, true, 0f, 0f, -0.2f, EggCollector.MODEL_PUZZLE);
+        add("behind", AnchorRegistry.SAVED, true, 0f, 0f, 5f, EggCollector.MODEL_STAR);
+        add("pastMount", AnchorRegistry.SAVED, true, 0f, 0f, -40f, EggCollector.MODEL_STAR);
+        int paused = add(null, AnchorRegistry.PREVIEW, false, 1f, 0f, -4f, EggCollector.MODEL_STAR);
+        int stopped = add(null, AnchorRegistry.PREVIEW, false, 0f, 0f, -4f, EggCollector.MODEL_STAR);
+        add(null, AnchorRegistry.PREVIEW, false, 0f, 0f, -0.2f, EggCollector.MODEL_STAR);
+        states[paused] = TrackingState.PAUSED;
+        states[stopped] = TrackingState.STOPPED;
+
+        frame.setCamera(camT, view, projection, 1080, 1920);
+        frame.captureAnchors(anchors, reader);
+        queue.reset();
+        assertEquals(2, collector.collect(anchors, frame, queue, AnchorRegistry.SAVED, /*recentOnly=*/ true));
+        assertEquals(1, collector.collect(anchors, frame, queue, AnchorRegistry.PREVIEW, false));
+        queue.build();
+
+        // inView (star) and closeRecent (puzzle) opaque, the paused preview translucent
+        assertEquals(3, queue.runCount());
+        assertFalse(queue.runTranslucent(0));
+        assertEquals(EggCollector.MODEL_STAR, queue.runModel(0));
+        assertFalse(queue.runTranslucent(1));
+        assertEquals(EggCollector.MODEL_PUZZLE, queue.runModel(1));
+        assertTrue(queue.runTranslucent(2));
+
+        // Without recentOnly the not-recent one shows too; the recent-only near cull no longer applies
+        queue.reset();
+        assertEquals(2, collector.collect(anchors, frame, queue, AnchorRegistry.SAVED, false));
+    }
+
+    @Test
+    public void steadyStateFrameDoesNotAllocate() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long tid = Thread.currentThread().getId();
+
+        for (int i = 0; i < ANCHORS; i++) {
+            int model = (i % 2 == 0) ? EggCollector.MODEL_STAR : EggCollector.MODEL_PUZZLE;
+            int row = add("e" + i, AnchorRegistry.SAVED, true,
+                    (i % 7) - 3f, (i % 3) - 1f, -1f - (i * 37 % 19), model);
+            if (i % 5 == 0) states[row] = TrackingState.PAUSED;
+        }
+        for (int i = 0; i < PREVIEWS; i++) {
+            add(null, AnchorRegistry.PREVIEW, false, i - 2f, 0f, -2f, EggCollector.MODEL_STAR);
+        }
+
+        // Warm-up grows the queue to its steady-state size and lets the JIT settle
+        for (int f = 0; f < WARMUP_FRAMES; f++) drawFrame(f);
+        assertTrue(queue.size() > ANCHORS / 2);
+
+        // Cost of the measurement itself
+        long probe0 = threads.getThreadAllocatedBytes(tid);
+        long probe1 = threads.getThreadAllocatedBytes(tid);
+        long overhead = probe1 - probe0;
+
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int f = 0; f < MEASURED_FRAMES; f++) drawFrame(WARMUP_FRAMES + f);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before - overhead;
+
+        assertEquals("bytes allocated per frame", 0L, allocated / MEASURED_FRAMES);
+    }
+
+    /** onDrawFrame's egg work: capture, collect both lists, build, walk the runs as drawEggQueue does. */
+    private void drawFrame(int f) {
+        // Small camera drift and pose jitter so culling and smoothing see real changes
+        camT[0] = 0.001f * (f & 15);
+        view[12] = -camT[0];
+        for (int i = 0; i < states.length; i++) poses[i * 7 + 1] += ((f + i) & 1) == 0 ? 1e-4f : -1e-4f;
+
+        frame.setCamera(camT, view, projection, 1080, 1920);
+        frame.captureAnchors(anchors, reader);
+        queue.reset();
+        collector.collect(anchors, frame, queue, AnchorRegistry.SAVED, /*recentOnly=*/ true);
+        collector.collect(anchors, frame, queue, AnchorRegistry.PREVIEW, false);
+        queue.build();
+        for (int run = 0; run < queue.runCount(); run++) {
+            queue.runModel(run);
+            queue.runTranslucent(run);
+            queue.runLength(run);
+        }
+    }
+
+    /** Registers an item tracking at (x, y, z) with identity rotation; returns its pose row. */
+    private int add(String docId, int kind, boolean recent, float x, float y, float z, int model) {
+        int row = states.length;
+        states = Arrays.copyOf(states, row + 1);
+        poses = Arrays.copyOf(poses, (row + 1) * 7);
+        states[row] = TrackingState.TRACKING;
+        poses[row * 7] = x;
+        poses[row * 7 + 1] = y;
+        poses[row * 7 + 2] = z;
+        poses[row * 7 + 6] = 1f;
+        if (recent && docId != null) anchors.markRecent(docId);
+        anchors.add(docId, new Item(row, model), kind);
+        return row;
+    }
+
+    /** Column-major, like android.opengl.Matrix.perspectiveM. */
+    private static float[] perspective(float fovyDeg, float aspect, float near, float far) {
+        float f = 1f / (float) Math.tan(Math.toRadians(fovyDeg) / 2);
+        float[] m = new float[16];
+        m[0] = f / aspect;
+        m[5] = f;
+        m[10] = (far + near) / (near - far);
+        m[11] = -1f;
+        m[14] = 2f * far * near / (near - far);
+        return m;
+    }
+}
@@ -0,0 +1,103 @@
+package com.google.ar.core.examples.java.helloar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Draw order of {@link RenderQueue}. GL calls hit the android.jar stubs
+ * (unitTests.returnDefaultValues), so the queue runs without a context.
+ */
+public class RenderQueueTest {
+    private static final int MODELS = 3;
+    private static final int ENTRIES = 300;
+
+    private RenderQueue queue;
+    private final float[] q = { 0f, 0f, 0f, 1f };
+
+    @Before
+    public void setUp() {
+        queue = new RenderQueue(/*render=*/ null, 16);
+    }
+
+    @After
+    public void tearDown() {
+        queue.close();
+    }
+
+    @Test
+    public void opaqueRunsByModelThenTranslucentBackToFront() {
+        Random rng = new Random(1);
+        float[] depth = new float[ENTRIES];
+        int[] model = new int[ENTRIES];
+        boolean[] translucent = new boolean[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            // Some exact ties, and a few behind the camera (clamped to 0)
+            depth[i] = (i % 17 == 0) ? 2f : (i % 23 == 0) ? -1f : 50f * rng.nextFloat();
+            model[i] = rng.nextInt(MODELS);
+            translucent[i] = rng.nextInt(4) == 0;
+            queue.add(model[i], translucent[i], depth[i], 0f, 0f, 0f, 0.01f, q,
+                    /*billboard=*/ true, /*liftM=*/ 0f, translucent[i] ? 0.85f : 1f, /*targetPx=*/ 64f);
+        }
+        queue.build();
+
+        boolean[] modelSeen = new boolean[MODELS];
+        boolean seenTranslucent = false;
+        float lastTranslucentDepth = Float.MAX_VALUE;
+        int total = 0;
+        for (int run = 0; run < queue.runCount(); run++) {
+            assertEquals("runs are contiguous", total, queue.runFirst(run));
+            int first = queue.runFirst(run), len = queue.runLength(run);
+            total += len;
+            if (!queue.runTranslucent(run)) {
+                assertFalse("opaque after translucent", seenTranslucent);
+                assertFalse("one opaque run per model", modelSeen[queue.runModel(run)]);
+                modelSeen[queue.runModel(run)] = true;
+                // Front to back inside a model
+                float last = -Float.MAX_VALUE;
+                for (int i = first; i < first + len; i++) {
+                    int e = queue.addedIndexAt(i);
+                    assertFalse(translucent[e]);
+                    assertEquals(queue.runModel(run), model[e]);
+                    float d = Math.max(0f, depth[e]);
+                    assertTrue("opaque depth " + d + " after " + last, d >= last);
+                    last = d;
+                }
+            } else {
+                seenTranslucent = true;
+                // Back to front across the whole translucent pass, whatever the model
+                for (int i = first; i < first + len; i++) {
+                    int e = queue.addedIndexAt(i);
+                    assertTrue(translucent[e]);
+                    assertEquals(queue.runModel(run), model[e]);
+                    float d = Math.max(0f, depth[e]);
+                    assertTrue("translucent depth " + d + " after " + lastTranslucentDepth,
+                            d <= lastTranslucentDepth);
+                    lastTranslucentDepth = d;
+                }
+            }
+        }
+        assertTrue(seenTranslucent);
+        assertEquals(ENTRIES, queue.size());
+        assertEquals(ENTRIES, total);
+    }
+
+    @Test
+    public void translucentModelChangeStartsNewRun() {
+        queue.add(0, true, 9f, 0f, 0f, 0f, 0.01f, q, true, 0f, 0.85f, 64f);
+        queue.add(1, true, 5f, 0f, 0f, 0f, 0.01f, q, true, 0f, 0.85f, 64f);
+        queue.add(0, true, 1f, 0f, 0f, 0f, 0.01f, q, true, 0f, 0.85f, 64f);
+        queue.build();
+        assertEquals(3, queue.runCount());
+        for (int run = 0; run < 3; run++) {
+            assertEquals(run, queue.addedIndexAt(queue.runFirst(run)));
+            assertEquals(1, queue.runLength(run));
+        }
+    }
+}
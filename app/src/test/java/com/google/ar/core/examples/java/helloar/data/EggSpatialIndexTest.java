@@ -0,0 +1,109 @@
+package com.google.ar.core.examples.java.helloar.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.ar.core.examples.java.helloar.util.GeoMath;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class EggSpatialIndexTest {
+
+    @Test
+    public void findsEggsAcrossTheAntimeridian() {
+        EggSpatialIndex index = new EggSpatialIndex(250);
+        index.put(egg("east", 10.0, 179.9995));
+        index.put(egg("west", 10.0, -179.9995));
+
+        assertEquals(ids("east", "west"), query(index, 10.0, 179.9999, 200));
+        assertEquals(ids("east", "west"), query(index, 10.0, -179.9999, 200));
+        index.remove("east");
+        // "west" is ~160 m away, on the other side of the wrap
+        assertTrue(index.anyWithin(10.0, 179.9990, 200));
+    }
+
+    @Test
+    public void longitudePlusMinus180IsOneMeridian() {
+        EggSpatialIndex index = new EggSpatialIndex(250);
+        index.put(egg("a", -33.0, 180.0));
+        assertEquals(ids("a"), query(index, -33.0, -180.0, 10));
+        assertEquals(ids("a"), query(index, -33.0, 179.99999, 10));
+    }
+
+    @Test
+    public void nearThePoleWalksEveryColumnOnce() {
+        EggSpatialIndex index = new EggSpatialIndex(250);
+        for (int i = 0; i < 36; i++) index.put(egg("p" + i, 89.9999, -180.0 + 10.0 * i));
+        // dLng is effectively unbounded this close to the pole; must terminate and not duplicate
+        EggSpatialIndex.Hits hits = new EggSpatialIndex.Hits();
+        index.queryRadius(89.99995, 0.0, 100, hits);
+        assertEquals(36, hits.count);
+        assertEquals(36, idsOf(hits).size());
+    }
+
+    @Test
+    public void matchesBruteForceEverywhere() {
+        Random rng = new Random(7);
+        double[] centerLngs = { 0.0, 179.99, -179.99, 179.9999, -120.0 };
+        double[] centerLats = { 0.0, 45.0, -70.0, 85.0, 89.99 };
+        for (double clng : centerLngs) {
+            for (double clat : centerLats) {
+                EggSpatialIndex index = new EggSpatialIndex(300);
+                EggSummary[] eggs = new EggSummary[400];
+                for (int i = 0; i < eggs.length; i++) {
+                    double lat = Math.max(-90, Math.min(90, clat + (rng.nextDouble() - 0.5) * 0.05));
+                    double lng = wrap(clng + (rng.nextDouble() - 0.5) * 0.2);
+                    eggs[i] = egg("e" + i, lat, lng);
+                    index.put(eggs[i]);
+                }
+                for (double r : new double[] { 50, 500, 2_000 }) {
+                    Set<String> expected = new HashSet<>();
+                    double cos = GeoMath.cosLat(clat);
+                    for (EggSummary e : eggs) {
+                        double y = (e.lat - clat) * GeoMath.METERS_PER_DEG;
+                        double x = GeoMath.deltaLng(clng, e.lng) * GeoMath.METERS_PER_DEG * cos;
+                        if (x * x + y * y <= r * r) expected.add(e.id);
+                    }
+                    EggSpatialIndex.Hits hits = new EggSpatialIndex.Hits();
+                    index.queryRadius(clat, clng, r, hits);
+                    assertEquals("lat " + clat + " lng " + clng + " r " + r, expected, idsOf(hits));
+                    assertEquals("duplicates", expected.size(), hits.count);
+                    assertEquals(!expected.isEmpty(), index.anyWithin(clat, clng, r));
+                }
+            }
+        }
+    }
+
+    private static Set<String> query(EggSpatialIndex index, double lat, double lng, double r) {
+        EggSpatialIndex.Hits hits = new EggSpatialIndex.Hits();
+        index.queryRadius(lat, lng, r, hits);
+        return idsOf(hits);
+    }
+
+    private static Set<String> idsOf(EggSpatialIndex.Hits hits) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < hits.count; i++) ids.add(hits.eggs[i].id);
+        return ids;
+    }
+
+    private static Set<String> ids(String... ids) {
+        Set<String> out = new HashSet<>();
+        for (String id : ids) out.add(id);
+        return out;
+    }
+
+    private static double wrap(double lng) {
+        if (lng >= 180.0) return lng - 360.0;
+        if (lng < -180.0) return lng + 360.0;
+        return lng;
+    }
+
+    private static EggSummary egg(String id, double lat, double lng) {
+        return new EggSummary(id, true, lat, lng, null, 0.0, "star", null, null, null, null,
+                null, null, 0L);
+    }
+}
@@ -0,0 +1,55 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Timing of {@link GeoMath#withinRadius} against the haversine loop it replaced. Skipped unless the
+ * runBenchmarks system property is set ({@code ./gradlew testDebugUnitTest -PrunBenchmarks}); the
+ * result sets are compared in {@link GeoMathTest} on every run.
+ */
+public class GeoMathBenchmark {
+    private static final int ROUNDS = 30;
+
+    @Before
+    public void onlyWhenAsked() {
+        assumeTrue(Boolean.getBoolean("runBenchmarks"));
+    }
+
+    /** 100k candidates, the old per-candidate haversine loop vs withinRadius. Prints the speed-up. */
+    @Test
+    public void withinRadius100k() {
+        final int n = GeoMathTest.BENCH_CANDIDATES;
+        Random rng = new Random(6);
+        double lat = 37.4, lng = -122.1, r = 500;
+        // Mostly outside the radius, like a cell scan: spread over ~20 km
+        double[][] c = GeoMathTest.candidatesAround(rng, lat, lng, 20_000, n);
+        double[] lats = c[0], lngs = c[1];
+        int[] idx = new int[n];
+        int[] legacyIdx = new int[n];
+
+        long legacyNs = Long.MAX_VALUE, kernelNs = Long.MAX_VALUE;
+        int legacyHits = 0, hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            legacyHits = 0;
+            for (int i = 0; i < n; i++) {
+                if (GeoMathTest.legacyDistanceMeters(lat, lng, lats[i], lngs[i]) <= r) legacyIdx[legacyHits++] = i;
+            }
+            long t1 = System.nanoTime();
+            hits = GeoMath.withinRadius(lat, lng, r, lats, lngs, n, idx, null);
+            long t2 = System.nanoTime();
+            legacyNs = Math.min(legacyNs, t1 - t0);
+            kernelNs = Math.min(kernelNs, t2 - t1);
+        }
+        assertArrayEquals(Arrays.copyOf(legacyIdx, legacyHits), Arrays.copyOf(idx, hits));
+        System.out.printf("withinRadius 100k: haversine loop %.2f ms, kernel %.2f ms, %.1fx%n",
+                legacyNs / 1e6, kernelNs / 1e6, (double) legacyNs / kernelNs);
+    }
+}
@@ -0,0 +1,177 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class GeoMathTest {
+    static final int BENCH_CANDIDATES = 100_000;
+
+    // ---- distance bounds vs haversine ----
+
+    @Test
+    public void equirectWithinPointOnePercentAtShortRange() {
+        Random rng = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            double lat = -60 + 120 * rng.nextDouble();
+            double lng = -180 + 360 * rng.nextDouble();
+            double[] p = offset(lat, lng, 1 + 999 * rng.nextDouble(), rng.nextDouble() * 2 * Math.PI);
+            assertRelative(GeoMath.haversineMeters(lat, lng, p[0], p[1]),
+                    GeoMath.equirectMeters(lat, lng, p[0], p[1]), 1e-3);
+        }
+    }
+
+    @Test
+    public void equirectWithinSixTenthsPercentUpToSwitchover() {
+        Random rng = new Random(2);
+        for (int i = 0; i < 20_000; i++) {
+            double lat = -60 + 120 * rng.nextDouble();
+            double lng = -180 + 360 * rng.nextDouble();
+            double[] p = offset(lat, lng, GeoMath.EQUIRECT_MAX_M * rng.nextDouble() + 1,
+                    rng.nextDouble() * 2 * Math.PI);
+            assertRelative(GeoMath.haversineMeters(lat, lng, p[0], p[1]),
+                    GeoMath.equirectMeters(lat, lng, p[0], p[1]), 6e-3);
+        }
+    }
+
+    @Test
+    public void distanceMetersIsHaversineAtLongRange() {
+        Random rng = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            double lat1 = -89 + 178 * rng.nextDouble();
+            double lng1 = -180 + 360 * rng.nextDouble();
+            double lat2 = -89 + 178 * rng.nextDouble();
+            double lng2 = -180 + 360 * rng.nextDouble();
+            double h = GeoMath.haversineMeters(lat1, lng1, lat2, lng2);
+            double d = GeoMath.distanceMeters(lat1, lng1, lat2, lng2);
+            if (h > 2 * GeoMath.EQUIRECT_MAX_M) assertEquals(h, d, 0.0);
+            else assertRelative(h, d, 0.05);
+        }
+    }
+
+    @Test
+    public void distancesWrapAcrossAntimeridian() {
+        for (double lat : new double[] { -60, -10, 0, 35, 60 }) {
+            double h = GeoMath.haversineMeters(lat, 179.999, lat, -179.999);
+            double expected = 0.002 * GeoMath.METERS_PER_DEG * Math.cos(Math.toRadians(lat));
+            assertRelative(expected, h, 1e-6);
+            assertRelative(h, GeoMath.equirectMeters(lat, 179.999, lat, -179.999), 1e-6);
+            assertRelative(h, GeoMath.distanceMeters(lat, -179.999, lat, 179.999), 1e-6);
+        }
+        assertEquals(0.002, GeoMath.deltaLng(179.999, -179.999), 1e-9);
+        assertEquals(-0.002, GeoMath.deltaLng(-179.999, 179.999), 1e-9);
+    }
+
+    // ---- withinRadius vs the haversine filter ----
+
+    @Test
+    public void withinRadiusMatchesHaversineFilter() {
+        Random rng = new Random(4);
+        double[] radii = { 25, 150, 1_000, 5_000, 19_999, 20_001, 100_000, 2_000_000 };
+        double[] centerLats = { 0, 37.4, -51.2, 70, 79.9, 80.1, 89.5, -89.9 };
+        double[] centerLngs = { 0, -122.1, 179.99, -179.99, 10 };
+        for (double r : radii) {
+            for (double lat : centerLats) {
+                for (double lng : centerLngs) {
+                    assertSameAsHaversine(lat, lng, r, candidatesAround(rng, lat, lng, r, 2_000));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void withinRadiusReportsDistances() {
+        Random rng = new Random(5);
+        double[][] c = candidatesAround(rng, 48.1, 11.6, 500, 1_000);
+        int[] idx = new int[1_000];
+        float[] dist = new float[1_000];
+        int hits = GeoMath.withinRadius(48.1, 11.6, 500, c[0], c[1], 1_000, idx, dist);
+        assertTrue(hits > 0);
+        for (int k = 0; k < hits; k++) {
+            double h = GeoMath.haversineMeters(48.1, 11.6, c[0][idx[k]], c[1][idx[k]]);
+            assertTrue(dist[k] <= 500f);
+            assertEquals(h, dist[k], Math.max(0.01, h * 1e-3));
+        }
+    }
+
+    @Test
+    public void withinRadiusMatchesLegacyLoopOn100k() {
+        Random rng = new Random(6);
+        double lat = 37.4, lng = -122.1, r = 500;
+        double[][] c = candidatesAround(rng, lat, lng, 20_000, BENCH_CANDIDATES);
+        int[] idx = new int[BENCH_CANDIDATES];
+        int hits = GeoMath.withinRadius(lat, lng, r, c[0], c[1], BENCH_CANDIDATES, idx, null);
+        int[] legacy = legacyWithinRadius(lat, lng, r, c[0], c[1]);
+        assertArrayEquals(legacy, Arrays.copyOf(idx, hits));
+    }
+
+    // ---- helpers ----
+
+    private static void assertSameAsHaversine(double lat, double lng, double r, double[][] c) {
+        int n = c[0].length;
+        int[] idx = new int[n];
+        int hits = GeoMath.withinRadius(lat, lng, r, c[0], c[1], n, idx, null);
+        int[] expected = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (GeoMath.haversineMeters(lat, lng, c[0][i], c[1][i]) <= r) expected[m++] = i;
+        }
+        assertArrayEquals("lat " + lat + " lng " + lng + " r " + r,
+                Arrays.copyOf(expected, m), Arrays.copyOf(idx, hits));
+    }
+
+    /** Candidates out to 2r, half of them within 1% of the circle's edge. */
+    static double[][] candidatesAround(Random rng, double lat, double lng, double r, int n) {
+        double[] lats = new double[n], lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            double d = (i % 2 == 0) ? r * (0.99 + 0.02 * rng.nextDouble()) : 2 * r * rng.nextDouble();
+            double[] p = offset(lat, lng, d, rng.nextDouble() * 2 * Math.PI);
+            lats[i] = p[0];
+            lngs[i] = p[1];
+        }
+        return new double[][] { lats, lngs };
+    }
+
+    /** Destination point {@code meters} along {@code bearing} on the haversine sphere. */
+    private static double[] offset(double lat, double lng, double meters, double bearing) {
+        double d = meters / GeoMath.EARTH_RADIUS_M;
+        double la = Math.toRadians(lat), lo = Math.toRadians(lng);
+        double la2 = Math.asin(Math.sin(la) * Math.cos(d) + Math.cos(la) * Math.sin(d) * Math.cos(bearing));
+        double lo2 = lo + Math.atan2(Math.sin(bearing) * Math.sin(d) * Math.cos(la),
+                Math.cos(d) - Math.sin(la) * Math.sin(la2));
+        double lngDeg = Math.toDegrees(lo2);
+        lngDeg = ((lngDeg + 540) % 360) - 180;
+        return new double[] { Math.toDegrees(la2), lngDeg };
+    }
+
+    private static void assertRelative(double expected, double actual, double tolerance) {
+        double err = Math.abs(actual - expected) / Math.max(expected, 1e-9);
+        assertTrue("expected " + expected + " got " + actual + " (" + err + ")", err <= tolerance);
+    }
+
+    /** Indices within {@code r}, by the per-candidate haversine loop EggRepository used before GeoMath. */
+    static int[] legacyWithinRadius(double lat, double lng, double r, double[] lats, double[] lngs) {
+        int[] idx = new int[lats.length];
+        int hits = 0;
+        for (int i = 0; i < lats.length; i++) {
+            if (legacyDistanceMeters(lat, lng, lats[i], lngs[i]) <= r) idx[hits++] = i;
+        }
+        return Arrays.copyOf(idx, hits);
+    }
+
+    /** The per-candidate haversine EggRepository used before GeoMath. */
+    static double legacyDistanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double R = 6371000d;
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat/2)*Math.sin(dLat/2)
+                + Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon/2)*Math.sin(dLon/2);
+        return 2*R*Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
+    }
+}
@@ -0,0 +1,295 @@
+package com.google.ar.core.examples.java.helloar.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PoseMathTest {
+    private static final float EPS = 1e-5f;
+
+    // ---- quaternions ----
+
+    @Test
+    public void quatMulMatchesHamiltonProduct() {
+        Random rng = new Random(1);
+        float[] out = new float[4];
+        for (int i = 0; i < 1_000; i++) {
+            float[] a = randomQuat(rng), b = randomQuat(rng);
+            PoseMath.quatMul(a, b, out);
+            assertArrayEquals(hamilton(a, b), out, EPS);
+        }
+    }
+
+    @Test
+    public void quatMulAllowsAliasedOut() {
+        Random rng = new Random(2);
+        for (int i = 0; i < 1_000; i++) {
+            float[] a = randomQuat(rng), b = randomQuat(rng);
+            float[] expected = hamilton(a, b);
+
+            float[] outIsA = a.clone();
+            PoseMath.quatMul(outIsA, b, outIsA);
+            assertArrayEquals(expected, outIsA, EPS);
+
+            float[] outIsB = b.clone();
+            PoseMath.quatMul(a, outIsB, outIsB);
+            assertArrayEquals(expected, outIsB, EPS);
+        }
+        float[] q = { 0f, (float) Math.sin(Math.PI / 4), 0f, (float) Math.cos(Math.PI / 4) };
+        PoseMath.quatMul(q, q, q); // 90° twice about +Y
+        assertQuatEquals(yaw(180f), q);
+    }
+
+    @Test
+    public void quatMulComposesYaws() {
+        float[] out = new float[4];
+        PoseMath.quatMul(yaw(30f), yaw(45f), out);
+        assertQuatEquals(yaw(75f), out);
+    }
+
+    @Test
+    public void yawThenIsYawTimesFix() {
+        Random rng = new Random(3);
+        float[] out = new float[4];
+        for (int i = 0; i < 1_000; i++) {
+            float yawDeg = -360f + 720f * rng.nextFloat();
+            float[] fix = randomQuat(rng);
+            PoseMath.yawThen(yawDeg, fix, out);
+            assertArrayEquals(hamilton(yaw(yawDeg), fix), out, EPS);
+        }
+        float[] fix = randomQuat(rng);
+        float[] aliased = fix.clone();
+        PoseMath.yawThen(20f, aliased, aliased);
+        assertArrayEquals(hamilton(yaw(20f), fix), aliased, EPS);
+    }
+
+    @Test
+    public void yawOfInvertsYawToQuat() {
+        for (float d = -179f; d <= 179f; d += 0.5f) {
+            assertEquals(Math.toRadians(d), PoseMath.yawOf(yaw(d)), 1e-5);
+        }
+        // Sign of q doesn't matter
+        float[] q = yaw(60f);
+        for (int i = 0; i < 4; i++) q[i] = -q[i];
+        assertEquals(Math.toRadians(60f), PoseMath.yawOf(q), 1e-5);
+    }
+
+    @Test
+    public void axisAngleNormalizesAxisAndHandlesZero() {
+        float[] out = new float[4];
+        PoseMath.axisAngle(0f, 5f, 0f, 90f, out);
+        assertQuatEquals(yaw(90f), out);
+        PoseMath.axisAngle(0f, 0f, 0f, 90f, out);
+        assertArrayEquals(new float[] { 0f, 0f, 0f, 1f }, out, 0f);
+    }
+
+    @Test
+    public void yawToFaceDegPointsAtTarget() {
+        assertEquals(0f, PoseMath.yawToFaceDeg(0f, 0f, 0f, 5f), EPS);
+        assertEquals(90f, PoseMath.yawToFaceDeg(0f, 0f, 5f, 0f), EPS);
+        assertEquals(-90f, PoseMath.yawToFaceDeg(0f, 0f, -5f, 0f), EPS);
+    }
+
+    // ---- projection ----
+
+    @Test
+    public void worldToScreenMapsCenterEdgesAndRejectsBehind() {
+        float[] viewProj = perspective(90f, 1f, 0.1f, 100f); // identity view
+        float[] out = { -1f, -1f, -1f };
+
+        assertTrue(PoseMath.worldToScreen(viewProj, 0f, 0f, -5f, 800, 600, out));
+        assertArrayEquals(new float[] { 400f, 300f, 5f }, out, 1e-3f);
+
+        // fovy 90, aspect 1: y = z is the top edge, x = z the right edge
+        assertTrue(PoseMath.worldToScreen(viewProj, 2f, 2f, -2f, 800, 600, out));
+        assertArrayEquals(new float[] { 800f, 0f, 2f }, out, 1e-3f);
+
+        float[] untouched = { 7f, 8f, 9f };
+        assertFalse(PoseMath.worldToScreen(viewProj, 0f, 0f, 5f, 800, 600, untouched));
+        assertArrayEquals(new float[] { 7f, 8f, 9f }, untouched, 0f);
+    }
+
+    @Test
+    public void multiplyMMMatchesReference() {
+        Random rng = new Random(5);
+        float[] a = new float[16], b = new float[16], out = new float[16];
+        for (int i = 0; i < 200; i++) {
+            for (int k = 0; k < 16; k++) {
+                a[k] = rng.nextFloat() * 4f - 2f;
+                b[k] = rng.nextFloat() * 4f - 2f;
+            }
+            PoseMath.multiplyMM(a, b, out);
+            assertArrayEquals(multiply(a, b), out, 1e-5f);
+        }
+        // projection * view: a point 5 m in front of a camera at z = 3 projects like z = -5 without it
+        float[] proj = perspective(90f, 1f, 0.1f, 100f);
+        PoseMath.multiplyMM(proj, translation(0f, 0f, -3f), out);
+        assertArrayEquals(transform(proj, 0f, 0f, -5f), transform(out, 0f, 0f, -2f), 1e-5f);
+    }
+
+    @Test
+    public void viewDepthIsPositiveInFront() {
+        float[] view = translation(0f, 0f, -3f); // camera 3 m back along +Z
+        assertEquals(3f, PoseMath.viewDepth(view, 0f, 0f, 0f), EPS);
+        assertEquals(5f, PoseMath.viewDepth(view, 1f, 1f, -2f), EPS);
+    }
+
+    @Test
+    public void unprojectInvertsProjection() {
+        float[] viewProj = multiply(perspective(60f, 1.5f, 0.1f, 50f), translation(1f, -2f, 0.5f));
+        float[] inv = invert(viewProj);
+        Random rng = new Random(4);
+        float[] out = new float[3];
+        for (int i = 0; i < 500; i++) {
+            float x = -3f + 6f * rng.nextFloat();
+            float y = -3f + 6f * rng.nextFloat();
+            float z = -1f - 20f * rng.nextFloat();
+            float[] clip = transform(viewProj, x, y, z);
+            PoseMath.unproject(inv, clip[0] / clip[3], clip[1] / clip[3], clip[2] / clip[3], out);
+            assertArrayEquals(new float[] { x, y, z }, out, 1e-3f * Math.abs(z));
+        }
+    }
+
+    // ---- frustum ----
+
+    @Test
+    public void frustumPlanesAreUnitAndFaceInward() {
+        float[] planes = new float[24];
+        PoseMath.frustumPlanes(perspective(90f, 1f, 0.1f, 100f), planes);
+        for (int p = 0; p < 6; p++) {
+            float nx = planes[p * 4], ny = planes[p * 4 + 1], nz = planes[p * 4 + 2];
+            assertEquals(1f, (float) Math.sqrt(nx * nx + ny * ny + nz * nz), EPS);
+            // A point well inside is on the positive side of every plane
+            float dist = nx * 0f + ny * 0f + nz * -5f + planes[p * 4 + 3];
+            assertTrue("plane " + p, dist > 0f);
+        }
+        // near: -z - 0.1 >= 0, far: z + 100 >= 0
+        assertArrayEquals(new float[] { 0f, 0f, -1f, -0.1f }, slice(planes, 16), 1e-3f);
+        assertArrayEquals(new float[] { 0f, 0f, 1f, 100f }, slice(planes, 20), 1e-2f);
+    }
+
+    @Test
+    public void sphereInFrustumCullsOutsideOnly() {
+        float[] planes = new float[24];
+        PoseMath.frustumPlanes(perspective(90f, 1f, 0.1f, 100f), planes);
+
+        assertTrue(PoseMath.sphereInFrustum(planes, 0f, 0f, -5f, 0.1f));
+        assertFalse(PoseMath.sphereInFrustum(planes, 0f, 0f, 5f, 0.5f));    // behind
+        assertFalse(PoseMath.sphereInFrustum(planes, 0f, 0f, -200f, 1f));   // past far
+        assertFalse(PoseMath.sphereInFrustum(planes, -10f, 0f, -5f, 1f));   // left
+        assertFalse(PoseMath.sphereInFrustum(planes, 0f, 10f, -5f, 1f));    // above
+
+        // Center just outside the left plane (x = z), but the radius reaches back in
+        float outside = 0.5f / (float) Math.sqrt(2); // distance of (-5.5, 0, -5) from the plane
+        assertFalse(PoseMath.sphereInFrustum(planes, -5.5f, 0f, -5f, outside * 0.9f));
+        assertTrue(PoseMath.sphereInFrustum(planes, -5.5f, 0f, -5f, outside * 1.1f));
+    }
+
+    // ---- helpers ----
+
+    private static float[] yaw(float deg) {
+        float[] q = new float[4];
+        PoseMath.yawToQuat(deg, q);
+        return q;
+    }
+
+    private static float[] randomQuat(Random rng) {
+        float[] q = new float[4];
+        PoseMath.axisAngle(rng.nextFloat() - 0.5f, rng.nextFloat() - 0.5f, rng.nextFloat() - 0.5f,
+                360f * rng.nextFloat(), q);
+        return q;
+    }
+
+    private static float[] slice(float[] planes, int offset) {
+        float[] p = new float[4];
+        System.arraycopy(planes, offset, p, 0, 4);
+        return p;
+    }
+
+    /** Reference a ∘ b written out independently of PoseMath. */
+    private static float[] hamilton(float[] a, float[] b) {
+        double ax = a[0], ay = a[1], az = a[2], aw = a[3];
+        double bx = b[0], by = b[1], bz = b[2], bw = b[3];
+        return new float[] {
+                (float) (aw * bx + bw * ax + (ay * bz - az * by)),
+                (float) (aw * by + bw * ay + (az * bx - ax * bz)),
+                (float) (aw * bz + bw * az + (ax * by - ay * bx)),
+                (float) (aw * bw - (ax * bx + ay * by + az * bz)),
+        };
+    }
+
+    /** Quaternions equal up to sign. */
+    private static void assertQuatEquals(float[] expected, float[] actual) {
+        float dot = 0f;
+        for (int i = 0; i < 4; i++) dot += expected[i] * actual[i];
+        assertEquals(1f, Math.abs(dot), 1e-5f);
+    }
+
+    /** Column-major, like android.opengl.Matrix.perspectiveM. */
+    private static float[] perspective(float fovyDeg, float aspect, float near, float far) {
+        float f = 1f / (float) Math.tan(Math.toRadians(fovyDeg) / 2);
+        float[] m = new float[16];
+        m[0] = f / aspect;
+        m[5] = f;
+        m[10] = (far + near) / (near - far);
+        m[11] = -1f;
+        m[14] = 2f * far * near / (near - far);
+        return m;
+    }
+
+    private static float[] translation(float x, float y, float z) {
+        float[] m = new float[16];
+        m[0] = m[5] = m[10] = m[15] = 1f;
+        m[12] = x; m[13] = y; m[14] = z;
+        return m;
+    }
+
+    private static float[] multiply(float[] a, float[] b) {
+        float[] m = new float[16];
+        for (int c = 0; c < 4; c++) {
+            for (int r = 0; r < 4; r++) {
+                float s = 0f;
+                for (int k = 0; k < 4; k++) s += a[k * 4 + r] * b[c * 4 + k];
+                m[c * 4 + r] = s;
+            }
+        }
+        return m;
+    }
+
+    private static float[] transform(float[] m, float x, float y, float z) {
+        float[] v = new float[4];
+        for (int r = 0; r < 4; r++) v[r] = m[r] * x + m[4 + r] * y + m[8 + r] * z + m[12 + r];
+        return v;
+    }
+
+    /** Gauss-Jordan with partial pivoting, in double. */
+    private static float[] invert(float[] m) {
+        double[][] a = new double[4][8];
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) a[r][c] = m[c * 4 + r];
+            a[r][4 + r] = 1.0;
+        }
+        for (int c = 0; c < 4; c++) {
+            int pivot = c;
+            for (int r = c + 1; r < 4; r++) if (Math.abs(a[r][c]) > Math.abs(a[pivot][c])) pivot = r;
+            double[] tmp = a[c]; a[c] = a[pivot]; a[pivot] = tmp;
+            double inv = 1.0 / a[c][c];
+            for (int k = 0; k < 8; k++) a[c][k] *= inv;
+            for (int r = 0; r < 4; r++) {
+                if (r == c) continue;
+                double f = a[r][c];
+                for (int k = 0; k < 8; k++) a[r][k] -= f * a[c][k];
+            }
+        }
+        float[] out = new float[16];
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) out[c * 4 + r] = (float) a[r][4 + c];
+        }
+        return out;
+    }
+}